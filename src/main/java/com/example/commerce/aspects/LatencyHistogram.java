@@ -0,0 +1,128 @@
+package com.example.commerce.aspects;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rolling latency histogram in nanoseconds with the bucket layout HdrHistogram uses: 32 linear
+ * sub-buckets per power of two, so a reported percentile is within ~3% of the recorded value.
+ * Counts are kept per minute in a ring of {@link #SLOTS} slots, each split into stripes picked
+ * by thread, so recording is one uncontended atomic add and never takes a lock.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+    // ~68 s; anything slower lands in the top bucket, the exact max is kept apart
+    private static final int MAX_VALUE_BITS = 36;
+    private static final long MAX_TRACKED = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 2) * HALF_SUB_BUCKETS;
+
+    // One slot per minute, enough for a 15 minute window plus the minute being recorded
+    static final int SLOTS = 16;
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    private static final int STRIPES = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 4));
+
+    private final AtomicReferenceArray<Minute> slots = new AtomicReferenceArray<>(SLOTS);
+
+    void record(long nanos, long nowNanos) {
+        Minute slot = slot(Math.floorDiv(nowNanos, NANOS_PER_MINUTE));
+        int stripe = (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        slot.counts.incrementAndGet(stripe * BUCKETS + index(nanos));
+        slot.totalNanos.add(nanos);
+        slot.maxNanos.accumulate(nanos);
+    }
+
+    // The window covers the current, partly recorded minute plus the given number of whole minutes before it
+    Snapshot snapshot(int minutes, long nowNanos) {
+        long current = Math.floorDiv(nowNanos, NANOS_PER_MINUTE);
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        long totalNanos = 0;
+        long maxNanos = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            Minute slot = slots.get(i);
+            if (slot == null || slot.minute < current - minutes || slot.minute > current) {
+                continue;
+            }
+            for (int cell = 0; cell < slot.counts.length(); cell++) {
+                int n = slot.counts.get(cell);
+                counts[cell % BUCKETS] += n;
+                count += n;
+            }
+            totalNanos += slot.totalNanos.sum();
+            maxNanos = Math.max(maxNanos, slot.maxNanos.get());
+        }
+        return new Snapshot(count, totalNanos, maxNanos, counts);
+    }
+
+    private Minute slot(long minute) {
+        int i = (int) Math.floorMod(minute, SLOTS);
+        Minute slot = slots.get(i);
+        while (slot == null || slot.minute < minute) {
+            Minute fresh = new Minute(minute);
+            if (slots.compareAndSet(i, slot, fresh)) {
+                return fresh;
+            }
+            slot = slots.get(i);
+        }
+        return slot;
+    }
+
+    static int index(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_TRACKED);
+        if (value < (1L << SUB_BUCKET_BITS)) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long highestEquivalent(int index) {
+        return lowestEquivalent(index + 1) - 1;
+    }
+
+    private static long lowestEquivalent(int index) {
+        if (index < (1 << SUB_BUCKET_BITS)) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKETS - 1;
+        return (long) (index - shift * HALF_SUB_BUCKETS) << shift;
+    }
+
+    record Snapshot(long count, long totalNanos, long maxNanos, long[] counts) {
+
+        double meanNanos() {
+            return count > 0 ? (double) totalNanos / count : 0;
+        }
+
+        long percentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestEquivalent(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    private static final class Minute {
+        final long minute;
+        final AtomicIntegerArray counts = new AtomicIntegerArray(STRIPES * BUCKETS);
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Minute(long minute) {
+            this.minute = minute;
+        }
+    }
+}
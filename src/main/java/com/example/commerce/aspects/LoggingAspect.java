@@ -1,57 +1,139 @@
 package com.example.commerce.aspects;
 
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.util.Arrays;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+/**
+ * One key=value access line per controller call, written at the end of the call to the
+ * "com.example.commerce.access" logger, which logback-spring.xml sends through an async appender.
+ * Successful calls are sampled; failed and slow ones are always logged. Arguments are only
+ * rendered for failures or with the access logger at DEBUG, collections by size only.
+ */
 @Aspect
 @Component
-@Slf4j
 public class LoggingAspect {
 
+    private static final Logger accessLog = LoggerFactory.getLogger("com.example.commerce.access");
+    private static final int MAX_ARGUMENT_LENGTH = 200;
+    private static final Pattern SECRETS = Pattern.compile("(?i)(password|token)=[^,)]*");
+
+    private final double sampleRate;
+    private final long slowNanos;
+
+    public LoggingAspect(@Value("${logging.access.sample-rate:0.01}") double sampleRate,
+                         @Value("${logging.access.slow-ms:1000}") long slowMs) {
+        this.sampleRate = sampleRate;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMs);
+    }
+
     @Pointcut("within(com.example.commerce.controllers..*)")
     public void controllerLayer() {
     }
 
     @Around("controllerLayer()")
     public Object logAroundControllerMethods(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
-
-        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
-        String method = request.getMethod();
-        String path = request.getRequestURI();
-        String clientIp = request.getRemoteAddr();
-
-        Object[] args = joinPoint.getArgs();
-        String params = args.length > 0 ? Arrays.toString(args) : "none";
-
-        log.info("→ {} {} | Controller: {} | Params: {} | IP: {}",
-                method, path, joinPoint.getSignature().getName(), params, clientIp);
-
+        long startTime = System.nanoTime();
         try {
             Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-
-            log.info("← {} {} | Controller: {} | Status: SUCCESS | Time: {}ms",
-                    method, path, joinPoint.getSignature().getName(), executionTime);
+            long executionTime = System.nanoTime() - startTime;
 
+            if (executionTime >= slowNanos) {
+                accessLog.warn("method={} path={} handler={} status=SLOW timeMs={}{}",
+                        httpMethod(), path(), handler(joinPoint), millis(executionTime), debugArguments(joinPoint));
+            } else if (accessLog.isDebugEnabled() || (accessLog.isInfoEnabled() && sampled())) {
+                accessLog.info("method={} path={} handler={} status=SUCCESS timeMs={}{}",
+                        httpMethod(), path(), handler(joinPoint), millis(executionTime), debugArguments(joinPoint));
+            }
             return result;
         } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
+            long executionTime = System.nanoTime() - startTime;
 
-            log.error("← {} {} | Controller: {} | Status: FAILED | Time: {}ms | Error: {} - {}",
-                    method, path, joinPoint.getSignature().getName(), executionTime,
-                    e.getClass().getSimpleName(), e.getMessage());
+            accessLog.error("method={} path={} handler={} status=FAILED timeMs={} ip={} error={} message=\"{}\" args={}",
+                    httpMethod(), path(), handler(joinPoint), millis(executionTime), clientIp(),
+                    e.getClass().getSimpleName(), e.getMessage(), arguments(joinPoint.getArgs()));
 
             throw e;
         }
     }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private String debugArguments(ProceedingJoinPoint joinPoint) {
+        return accessLog.isDebugEnabled() ? " args=" + arguments(joinPoint.getArgs()) : "";
+    }
+
+    static String arguments(Object[] args) {
+        StringJoiner rendered = new StringJoiner(", ", "[", "]");
+        for (Object arg : args) {
+            if (!(arg instanceof ServletRequest || arg instanceof ServletResponse)) {
+                rendered.add(argument(arg));
+            }
+        }
+        return rendered.toString();
+    }
+
+    // Bulk bodies are the expensive case: they are summarized, never printed
+    private static String argument(Object arg) {
+        if (arg instanceof Collection<?> collection) {
+            return collection.getClass().getSimpleName() + "(" + collection.size() + ")";
+        }
+        if (arg instanceof Map<?, ?> map) {
+            return map.getClass().getSimpleName() + "(" + map.size() + ")";
+        }
+        if (arg != null && arg.getClass().isArray()) {
+            return arg.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(arg) + "]";
+        }
+        String value = SECRETS.matcher(String.valueOf(arg)).replaceAll("$1=***");
+        return value.length() > MAX_ARGUMENT_LENGTH ? value.substring(0, MAX_ARGUMENT_LENGTH) + "..." : value;
+    }
+
+    private static String handler(ProceedingJoinPoint joinPoint) {
+        return joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+    }
+
+    private static HttpServletRequest request() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest()
+                : null;
+    }
+
+    private static String httpMethod() {
+        HttpServletRequest request = request();
+        return request != null ? request.getMethod() : "-";
+    }
+
+    private static String path() {
+        HttpServletRequest request = request();
+        return request != null ? request.getRequestURI() : "-";
+    }
+
+    private static String clientIp() {
+        HttpServletRequest request = request();
+        return request != null ? request.getRemoteAddr() : "-";
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
 }
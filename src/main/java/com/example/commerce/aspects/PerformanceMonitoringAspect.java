@@ -1,5 +1,9 @@
 package com.example.commerce.aspects;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -7,17 +11,37 @@ import org.aspectj.lang.annotation.Aspect;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Times repository calls and counts cache hits per region. Besides the JSON views behind
+ * PerformanceController, everything is published as Micrometer meters for /actuator/prometheus.
+ * Tags only ever hold repository and method names, cache regions and fixed outcomes, so the
+ * number of series is bounded by the code, not by the data.
+ */
 @Aspect
 @Component
 @Slf4j
 public class PerformanceMonitoringAspect {
 
+    private static final int[] WINDOW_MINUTES = {1, 5, 15};
+    private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p95", "p99", "p999"};
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
     private final Map<String, QueryMetrics> dbMetrics = new ConcurrentHashMap<>();
     private final Map<String, CacheMetrics> cacheMetrics = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public PerformanceMonitoringAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @Around("execution(* com.example.commerce.repositories..*(..))")
     public Object monitorDatabaseFetch(ProceedingJoinPoint joinPoint) throws Throwable {
@@ -25,53 +49,114 @@ public class PerformanceMonitoringAspect {
         String className = fullSignature.substring(fullSignature.lastIndexOf('.') + 1);
         String methodName = joinPoint.getSignature().getName();
         String fullKey = className + "." + methodName;
+        RequestQueryStats.recordRepositoryCall();
 
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         try {
             Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
+            long endTime = System.nanoTime();
+            long executionTime = endTime - startTime;
 
-            dbMetrics.computeIfAbsent(fullKey, k -> new QueryMetrics())
-                    .recordExecution(executionTime);
+            queryMetricsFor(fullKey, className, methodName, "success").recordExecution(executionTime, endTime);
 
-            log.info("DB Query: {} took {}ms", fullKey, executionTime);
+            if (log.isDebugEnabled()) {
+                log.debug("DB Query: {} took {}ms", fullKey, TimeUnit.NANOSECONDS.toMillis(executionTime));
+            }
 
             return result;
         } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            dbMetrics.computeIfAbsent(fullKey + "_ERROR", k -> new QueryMetrics())
-                    .recordExecution(executionTime);
+            long endTime = System.nanoTime();
+            queryMetricsFor(fullKey + "_ERROR", className, methodName, "error").recordExecution(endTime - startTime, endTime);
             throw e;
         }
     }
 
+    private QueryMetrics queryMetricsFor(String key, String repository, String method, String outcome) {
+        QueryMetrics metrics = dbMetrics.get(key);
+        return metrics != null ? metrics : dbMetrics.computeIfAbsent(key, k -> new QueryMetrics(
+                Timer.builder("commerce.db.query")
+                        .description("Repository method execution time")
+                        .tag("repository", repository)
+                        .tag("method", method)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry)));
+    }
+
+    // Totals since the last clear, plus percentiles over the last 1, 5 and 15 minutes
     public Map<String, Map<String, Object>> getDbFetchTimes() {
+        long now = System.nanoTime();
         Map<String, Map<String, Object>> result = new HashMap<>();
         dbMetrics.forEach((key, metrics) -> {
             Map<String, Object> metricData = new HashMap<>();
             metricData.put("count", metrics.getCount());
-            metricData.put("totalTime", metrics.getTotalTime());
-            metricData.put("avgTime", metrics.getAverageTime());
-            metricData.put("minTime", metrics.getMinTime());
-            metricData.put("maxTime", metrics.getMaxTime());
+            metricData.put("totalTime", millis(metrics.getTotalTime()));
+            metricData.put("avgTime", metrics.getAverageTime() / NANOS_PER_MILLI);
+            metricData.put("minTime", millis(metrics.getMinTime()));
+            metricData.put("maxTime", millis(metrics.getMaxTime()));
+            Map<String, Object> windows = new LinkedHashMap<>();
+            for (int minutes : WINDOW_MINUTES) {
+                windows.put(minutes + "m", window(metrics.latencies.snapshot(minutes, now)));
+            }
+            metricData.put("windows", windows);
             metricData.put("unit", "ms");
             result.put(key, metricData);
         });
         return result;
     }
 
+    private static Map<String, Object> window(LatencyHistogram.Snapshot snapshot) {
+        Map<String, Object> window = new LinkedHashMap<>();
+        window.put("count", snapshot.count());
+        window.put("avgTime", snapshot.meanNanos() / NANOS_PER_MILLI);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            window.put(PERCENTILE_NAMES[i], millis(snapshot.percentileNanos(PERCENTILES[i])));
+        }
+        window.put("maxTime", millis(snapshot.maxNanos()));
+        return window;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    // Only resets the JSON views: published meters are cumulative, as scrapers expect
     public void clearMetrics() {
         dbMetrics.clear();
         cacheMetrics.clear();
     }
 
-    public void recordCacheHit(String key) {
-        cacheMetrics.computeIfAbsent(key, k -> new CacheMetrics()).incrementHit();
+    // Counted per cache region, so the map stays as small as the number of regions
+    public void recordCacheHit(String region) {
+        cacheMetricsFor(region).incrementHit();
+    }
+
+    public void recordCacheMiss(String region) {
+        cacheMetricsFor(region).incrementMiss();
+    }
+
+    private CacheMetrics cacheMetricsFor(String region) {
+        CacheMetrics metrics = cacheMetrics.get(region);
+        return metrics != null ? metrics : cacheMetrics.computeIfAbsent(region, k -> new CacheMetrics(
+                cacheRequests(region, "hit"), cacheRequests(region, "miss")));
     }
 
-    public void recordCacheMiss(String key) {
-        cacheMetrics.computeIfAbsent(key, k -> new CacheMetrics()).incrementMiss();
+    private Counter cacheRequests(String region, String result) {
+        return Counter.builder("commerce.cache.requests")
+                .description("Cache lookups by region and result")
+                .tag("region", region)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // store is "values" or "not-found"; the supplier is held strongly since caches live as long as the app
+    public void monitorCacheSize(String region, String store, IntSupplier size) {
+        Gauge.builder("commerce.cache.size", size, IntSupplier::getAsInt)
+                .description("Entries held per cache region")
+                .tag("region", region)
+                .tag("store", store)
+                .strongReference(true)
+                .register(meterRegistry);
     }
 
     public Map<String, Map<String, Object>> getCacheMetrics() {
@@ -86,63 +171,84 @@ public class PerformanceMonitoringAspect {
         return result;
     }
 
+    // Lock-free: every field is striped or accumulated, so concurrent queries never wait on each other
     private static class QueryMetrics {
-        private final AtomicInteger count = new AtomicInteger(0);
-        private long totalTime = 0;
-        private long minTime = Long.MAX_VALUE;
-        private long maxTime = 0;
-
-        public synchronized void recordExecution(long time) {
-            count.incrementAndGet();
-            totalTime += time;
-            minTime = Math.min(minTime, time);
-            maxTime = Math.max(maxTime, time);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+        private final LongAccumulator minTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final Timer timer;
+
+        QueryMetrics(Timer timer) {
+            this.timer = timer;
         }
 
-        public int getCount() {
-            return count.get();
+        public void recordExecution(long nanos, long now) {
+            count.increment();
+            totalTime.add(nanos);
+            minTime.accumulate(nanos);
+            maxTime.accumulate(nanos);
+            latencies.record(nanos, now);
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public long getCount() {
+            return count.sum();
         }
 
         public long getTotalTime() {
-            return totalTime;
+            return totalTime.sum();
         }
 
         public double getAverageTime() {
-            return count.get() > 0 ? (double) totalTime / count.get() : 0;
+            long executions = count.sum();
+            return executions > 0 ? (double) totalTime.sum() / executions : 0;
         }
 
         public long getMinTime() {
-            return minTime == Long.MAX_VALUE ? 0 : minTime;
+            long min = minTime.get();
+            return min == Long.MAX_VALUE ? 0 : min;
         }
 
         public long getMaxTime() {
-            return maxTime;
+            return maxTime.get();
         }
     }
 
     private static class CacheMetrics {
-        private final AtomicInteger hits = new AtomicInteger(0);
-        private final AtomicInteger misses = new AtomicInteger(0);
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final Counter hitCounter;
+        private final Counter missCounter;
+
+        CacheMetrics(Counter hitCounter, Counter missCounter) {
+            this.hitCounter = hitCounter;
+            this.missCounter = missCounter;
+        }
 
         public void incrementHit() {
-            hits.incrementAndGet();
+            hits.increment();
+            hitCounter.increment();
         }
 
         public void incrementMiss() {
-            misses.incrementAndGet();
+            misses.increment();
+            missCounter.increment();
         }
 
-        public int getHits() {
-            return hits.get();
+        public long getHits() {
+            return hits.sum();
         }
 
-        public int getMisses() {
-            return misses.get();
+        public long getMisses() {
+            return misses.sum();
         }
 
         public double getHitRate() {
-            int total = hits.get() + misses.get();
-            return total > 0 ? (double) hits.get() / total * 100 : 0;
+            long hitCount = hits.sum();
+            long total = hitCount + misses.sum();
+            return total > 0 ? (double) hitCount / total * 100 : 0;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package com.example.commerce.aspects;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Hands out connections whose statements and result sets report to {@link SqlProfiler}. A query
+ * is recorded once its rows have been read, when the result set is exhausted or closed, so the
+ * fetch time is part of it; updates and batches are recorded when they return.
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final SqlProfiler profiler;
+
+    public ProfilingDataSource(DataSource targetDataSource, SqlProfiler profiler) {
+        super(targetDataSource);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return profile(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return profile(super.getConnection(username, password));
+    }
+
+    private Connection profile(Connection connection) {
+        return profiler.isEnabled() ? proxy(Connection.class, new ConnectionHandler(connection)) : connection;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Proxies compare by identity, since the target's equals doesn't know about them
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> args != null && args.length == 1 && proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> null;
+        };
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            Object result = ProfilingDataSource.invoke(connection, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" -> proxy(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+                case "createStatement" -> proxy(Statement.class, new StatementHandler((Statement) result, null));
+                default -> result;
+            };
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private Object[] binds;
+        private int lastBound;
+        private int batchSize;
+        private Execution pending;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            String name = method.getName();
+            if (EXECUTE_METHODS.contains(name)) {
+                return execute(method, args);
+            }
+            if (name.startsWith("set") && preparedSql != null && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearParameters")) {
+                binds = null;
+                lastBound = 0;
+            } else if (name.equals("close")) {
+                finishPending();
+            }
+            Object result = ProfilingDataSource.invoke(statement, method, args);
+            if (name.equals("getResultSet") && result instanceof ResultSet resultSet && pending != null) {
+                return proxy(ResultSet.class, new ResultSetHandler(resultSet, pending));
+            }
+            return result;
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finishPending();
+            String sql = preparedSql != null ? preparedSql : (args != null && args.length > 0 ? (String) args[0] : null);
+            Object[] executedBinds = binds != null ? Arrays.copyOf(binds, lastBound + 1) : null;
+            int executedBatch = batchSize;
+            batchSize = 0;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = ProfilingDataSource.invoke(statement, method, args);
+            } catch (SQLException e) {
+                profiler.record(sql, executedBinds, executedBatch, System.nanoTime() - start, 0, 0, true);
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (result instanceof ResultSet resultSet) {
+                pending = new Execution(sql, executedBinds, elapsed);
+                return proxy(ResultSet.class, new ResultSetHandler(resultSet, pending));
+            }
+            if (Boolean.TRUE.equals(result)) {
+                // execute() produced a result set: recorded once it is read through getResultSet()
+                pending = new Execution(sql, executedBinds, elapsed);
+                return result;
+            }
+            profiler.record(sql, executedBinds, executedBatch, elapsed, 0, updatedRows(result), false);
+            return result;
+        }
+
+        private void bind(int index, Object value) {
+            if (binds == null || binds.length <= index) {
+                binds = Arrays.copyOf(binds != null ? binds : new Object[0], Math.max(index + 1, 8));
+            }
+            binds[index] = value;
+            lastBound = Math.max(lastBound, index);
+        }
+
+        private void finishPending() {
+            if (pending != null) {
+                pending.finish();
+                pending = null;
+            }
+        }
+    }
+
+    private static long updatedRows(Object result) {
+        if (result instanceof Number count) {
+            return Math.max(count.longValue(), 0);
+        }
+        if (result instanceof int[] counts) {
+            return Arrays.stream(counts).filter(count -> count > 0).asLongStream().sum();
+        }
+        if (result instanceof long[] counts) {
+            return Arrays.stream(counts).filter(count -> count > 0).sum();
+        }
+        return 0;
+    }
+
+    private final class Execution {
+        private final String sql;
+        private final Object[] binds;
+        private final long executeNanos;
+        private long fetchNanos;
+        private long rows;
+        private boolean finished;
+
+        Execution(String sql, Object[] binds, long executeNanos) {
+            this.sql = sql;
+            this.binds = binds;
+            this.executeNanos = executeNanos;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                profiler.record(sql, binds, 0, executeNanos, fetchNanos, rows, false);
+            }
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final Execution execution;
+
+        ResultSetHandler(ResultSet resultSet, Execution execution) {
+            this.resultSet = resultSet;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            switch (method.getName()) {
+                case "next" -> {
+                    long start = System.nanoTime();
+                    boolean hasRow = resultSet.next();
+                    execution.fetchNanos += System.nanoTime() - start;
+                    if (hasRow) {
+                        execution.rows++;
+                    } else {
+                        execution.finish();
+                    }
+                    return hasRow;
+                }
+                case "close" -> execution.finish();
+                default -> {
+                }
+            }
+            return ProfilingDataSource.invoke(resultSet, method, args);
+        }
+    }
+}
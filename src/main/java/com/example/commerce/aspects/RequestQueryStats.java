@@ -0,0 +1,111 @@
+package com.example.commerce.aspects;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository calls and SQL statements of the request handled on the current thread, fed by
+ * {@link PerformanceMonitoringAspect} and {@link SqlProfiler}. One statement shape run many
+ * times in a single request is what an N+1 looks like, so repeats have their own budget.
+ */
+public final class RequestQueryStats {
+
+    private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+    private static final int REPORTED_REPEATS = 5;
+
+    private final Map<String, Integer> statements = new HashMap<>();
+    private int statementCount;
+    private int repositoryCallCount;
+    private int maxStatements;
+    private int maxRepeats;
+
+    private RequestQueryStats(int maxStatements, int maxRepeats) {
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+    }
+
+    public static RequestQueryStats start(int maxStatements, int maxRepeats) {
+        RequestQueryStats stats = new RequestQueryStats(maxStatements, maxRepeats);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static RequestQueryStats current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static void recordStatement(String statement) {
+        RequestQueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statementCount++;
+            stats.statements.merge(statement, 1, Integer::sum);
+        }
+    }
+
+    public static void recordRepositoryCall() {
+        RequestQueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.repositoryCallCount++;
+        }
+    }
+
+    // A negative value keeps the configured default
+    public void declareBudget(int maxStatements, int maxRepeats) {
+        if (maxStatements >= 0) {
+            this.maxStatements = maxStatements;
+        }
+        if (maxRepeats >= 0) {
+            this.maxRepeats = maxRepeats;
+        }
+    }
+
+    public int statementCount() {
+        return statementCount;
+    }
+
+    public int repositoryCallCount() {
+        return repositoryCallCount;
+    }
+
+    // Statements run more than once, most repeated first
+    public Map<String, Integer> repeatedStatements() {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        statements.entrySet().stream()
+                .filter(entry -> entry.getValue() > 1)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(REPORTED_REPEATS)
+                .forEach(entry -> repeated.put(entry.getKey(), entry.getValue()));
+        return repeated;
+    }
+
+    public List<String> violations() {
+        List<String> violations = new ArrayList<>();
+        if (statementCount > maxStatements) {
+            violations.add(statementCount + " SQL statements, budget " + maxStatements);
+        }
+        statements.forEach((statement, count) -> {
+            if (count > maxRepeats) {
+                violations.add(count + "x " + statement + ", budget " + maxRepeats);
+            }
+        });
+        return violations;
+    }
+
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("statements", statementCount);
+        summary.put("repositoryCalls", repositoryCallCount);
+        summary.put("repeated", repeatedStatements());
+        summary.put("maxStatements", maxStatements);
+        summary.put("maxRepeats", maxRepeats);
+        summary.put("violations", violations());
+        return summary;
+    }
+}
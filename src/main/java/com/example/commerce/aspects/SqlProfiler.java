@@ -0,0 +1,172 @@
+package com.example.commerce.aspects;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Execution time, rows and fetch time per normalized SQL statement, recorded by the JDBC proxies
+ * of {@link ProfilingDataSource}. Repository timings hide which statement of a method is slow,
+ * e.g. the COUNT behind a paged listing; these don't. Statements slower than the threshold are
+ * logged with the shape of their bind parameters, never the values.
+ */
+@Component
+@Slf4j
+public class SqlProfiler {
+
+    static final String OTHER_STATEMENTS = "(other statements)";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN ?\\( ?\\?(?: ?, ?\\?)* ?\\)");
+    private static final int MAX_NORMALIZED = 2048;
+
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+    private final Map<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long slowQueryNanos;
+    private final int maxStatements;
+    private final Counter slowQueries;
+
+    public SqlProfiler(MeterRegistry meterRegistry,
+                       @Value("${jdbc.profiling.enabled:false}") boolean enabled,
+                       @Value("${jdbc.profiling.slow-query-ms:500}") long slowQueryMs,
+                       @Value("${jdbc.profiling.max-statements:500}") int maxStatements) {
+        this.enabled = enabled;
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMs);
+        this.maxStatements = maxStatements;
+        this.slowQueries = Counter.builder("commerce.db.slow.queries")
+                .description("SQL statements slower than jdbc.profiling.slow-query-ms")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // binds holds the values by parameter index (1-based); batchSize is 0 unless executeBatch ran
+    void record(String sql, Object[] binds, int batchSize, long executeNanos, long fetchNanos, long rows, boolean failed) {
+        String statement = normalize(sql);
+        metricsFor(statement).record(executeNanos, fetchNanos, rows, failed);
+        RequestQueryStats.recordStatement(statement);
+
+        if (executeNanos + fetchNanos >= slowQueryNanos) {
+            slowQueries.increment();
+            log.warn("Slow SQL: {} ms ({} ms fetching {} rows){}: {} binds {}",
+                    (executeNanos + fetchNanos) / NANOS_PER_MILLI, fetchNanos / NANOS_PER_MILLI, rows,
+                    failed ? " FAILED" : "", statement, bindShapes(binds, batchSize));
+        }
+    }
+
+    // Literals and IN lists of any length collapse to one statement
+    String normalize(String sql) {
+        if (sql == null) {
+            return OTHER_STATEMENTS;
+        }
+        String statement = normalized.get(sql);
+        if (statement == null) {
+            statement = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+            statement = STRING_LITERAL.matcher(statement).replaceAll("?");
+            statement = NUMBER_LITERAL.matcher(statement).replaceAll("?");
+            statement = IN_LIST.matcher(statement).replaceAll("IN (?)");
+            if (normalized.size() < MAX_NORMALIZED) {
+                normalized.put(sql, statement);
+            }
+        }
+        return statement;
+    }
+
+    // Bounded: once maxStatements are tracked, new ones are counted together
+    private StatementMetrics metricsFor(String statement) {
+        StatementMetrics metrics = statements.get(statement);
+        if (metrics != null) {
+            return metrics;
+        }
+        String key = statements.size() < maxStatements ? statement : OTHER_STATEMENTS;
+        return statements.computeIfAbsent(key, k -> new StatementMetrics());
+    }
+
+    static String bindShapes(Object[] binds, int batchSize) {
+        StringJoiner shapes = new StringJoiner(", ", "[", "]");
+        for (int i = 1; binds != null && i < binds.length; i++) {
+            shapes.add(i + ": " + shape(binds[i]));
+        }
+        return batchSize > 0 ? shapes + " x " + batchSize : shapes.toString();
+    }
+
+    private static String shape(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof String string) {
+            return "String(" + string.length() + ")";
+        }
+        if (value instanceof Array) {
+            return "Array";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    // Slowest statements by total time first
+    public Map<String, Map<String, Object>> getSqlMetrics() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        statements.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, StatementMetrics> entry) -> entry.getValue().totalTime.sum()).reversed())
+                .forEach(entry -> {
+                    StatementMetrics metrics = entry.getValue();
+                    long count = metrics.count.sum();
+                    Map<String, Object> metricData = new LinkedHashMap<>();
+                    metricData.put("count", count);
+                    metricData.put("errors", metrics.errors.sum());
+                    metricData.put("totalTime", metrics.totalTime.sum() / NANOS_PER_MILLI);
+                    metricData.put("avgTime", count > 0 ? metrics.totalTime.sum() / NANOS_PER_MILLI / count : 0);
+                    metricData.put("maxTime", metrics.maxTime.get() / NANOS_PER_MILLI);
+                    metricData.put("fetchTime", metrics.fetchTime.sum() / NANOS_PER_MILLI);
+                    metricData.put("rows", metrics.rows.sum());
+                    metricData.put("avgRows", count > 0 ? (double) metrics.rows.sum() / count : 0);
+                    metricData.put("unit", "ms");
+                    result.put(entry.getKey(), metricData);
+                });
+        return result;
+    }
+
+    public void clearMetrics() {
+        statements.clear();
+    }
+
+    // Times include fetching the rows, which is where large results spend theirs
+    private static class StatementMetrics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+        private final LongAdder fetchTime = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+        void record(long executeNanos, long fetchNanos, long rowCount, boolean failed) {
+            count.increment();
+            if (failed) {
+                errors.increment();
+            }
+            totalTime.add(executeNanos + fetchNanos);
+            fetchTime.add(fetchNanos);
+            rows.add(rowCount);
+            maxTime.accumulate(executeNanos + fetchNanos);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.commerce.cache;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Size-bounded store behind one cache namespace. Implementations decide which entry
+ * makes room for a new one; every operation is O(1) amortized.
+ */
+public interface BoundedCache<K, V> {
+
+    // Returns the value and counts the access towards the eviction policy
+    V get(K key);
+
+    void put(K key, V value);
+
+    V remove(K key);
+
+    int size();
+
+    int capacity();
+
+    // Visits every entry without counting it as an access
+    void forEach(BiConsumer<? super K, ? super V> action);
+}
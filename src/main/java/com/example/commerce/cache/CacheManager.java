@@ -1,71 +1,367 @@
 package com.example.commerce.cache;
 
 import com.example.commerce.aspects.PerformanceMonitoringAspect;
+import com.example.commerce.errorhandlers.ResourceNotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 @Component
 @Slf4j
 public class CacheManager {
 
-    private static final int MAX_CACHE_SIZE = 1000;
-    private static final long TTL_SECONDS = 300; // 5 minutes
+    private static final long TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
 
-    private final ConcurrentHashMap<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    public enum EvictionPolicy {
+        LRU,
+        W_TINY_LFU
+    }
+
+    // One bounded cache per region, keyed by entity id so a hit never builds a key string.
+    // Sized by cache.capacity.<region> and falling back to cache.capacity.default
+    private final ConcurrentHashMap<CacheRegion<?>, BoundedCache<Object, CacheEntry>> regions = new ConcurrentHashMap<>();
+    // Ids whose loader threw ResourceNotFoundException, kept apart so scans of missing ids
+    // can't evict real entries. The entry value is the not-found message
+    private final ConcurrentHashMap<CacheRegion<?>, BoundedCache<Object, CacheEntry>> absentRegions = new ConcurrentHashMap<>();
+    // At most one supplier runs per key; concurrent misses wait on its future
+    private final ConcurrentHashMap<EntryKey, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+    // tag -> entries carrying it; every entry is also tagged with its region
+    private final ConcurrentHashMap<String, Set<EntryKey>> taggedKeys = new ConcurrentHashMap<>();
+    // Bumped by every tag invalidation so loads that overlapped one don't cache their result
+    private final AtomicLong tagEpoch = new AtomicLong();
+    // Read models kept outside the cache, told about each entity a write invalidates
+    private final List<BiConsumer<CacheRegion<?>, Object>> invalidationListeners = new CopyOnWriteArrayList<>();
     private final PerformanceMonitoringAspect performanceMonitor;
+    private final Environment environment;
+    private final EvictionPolicy evictionPolicy;
+    private final int defaultCapacity;
+    private final long staleNanos;
+    private final long negativeTtlNanos;
+    private final int negativeCapacity;
+    private final Executor refreshExecutor;
 
-    public CacheManager(PerformanceMonitoringAspect performanceMonitor) {
+    public CacheManager(PerformanceMonitoringAspect performanceMonitor,
+                        Environment environment,
+                        @Value("${cache.eviction:W_TINY_LFU}") EvictionPolicy evictionPolicy,
+                        @Value("${cache.capacity.default:1000}") int defaultCapacity,
+                        @Value("${cache.stale-while-revalidate-seconds:0}") long staleSeconds,
+                        @Value("${cache.negative.ttl-seconds:30}") long negativeTtlSeconds,
+                        @Value("${cache.negative.capacity:10000}") int negativeCapacity,
+                        @Qualifier("applicationTaskExecutor") Executor refreshExecutor) {
         this.performanceMonitor = performanceMonitor;
+        this.environment = environment;
+        this.evictionPolicy = evictionPolicy;
+        this.defaultCapacity = defaultCapacity;
+        this.staleNanos = TimeUnit.SECONDS.toNanos(staleSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.negativeCapacity = negativeCapacity;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    public <V> V get(CacheRegion<V> region, Object id, Supplier<V> loader) {
+        CacheEntry entry = regionCache(region).get(id);
+        long now = CoarseClock.nanoTime();
+
+        if (entry != null && !entry.isExpired(now)) {
+            recordHit(region, id);
+            return region.type().cast(entry.value);
+        }
+        return serveStaleOrLoad(region, id, entry, now, tags -> loader.get());
+    }
+
+    // The loader records which entities the value was built from on the given tags
+    public <V> V get(CacheRegion<V> region, Object id, Function<CacheTags, V> loader) {
+        CacheEntry entry = regionCache(region).get(id);
+        long now = CoarseClock.nanoTime();
+
+        if (entry != null && !entry.isExpired(now)) {
+            recordHit(region, id);
+            return region.type().cast(entry.value);
+        }
+        return serveStaleOrLoad(region, id, entry, now, loader);
     }
 
-    @SuppressWarnings("unchecked")
-    public <T> T get(String key, Supplier<T> supplier) {
-        CacheEntry entry = cache.get(key);
+    public <V> V getIfPresent(CacheRegion<V> region, Object id) {
+        CacheEntry entry = regionCache(region).get(id);
 
-        if (entry != null && !entry.isExpired()) {
-            performanceMonitor.recordCacheHit(key);
-            log.info("Cache HIT: {}", key);
-            return (T) entry.value;
+        if (entry != null && !entry.isExpired(CoarseClock.nanoTime())) {
+            recordHit(region, id);
+            return region.type().cast(entry.value);
         }
 
-        performanceMonitor.recordCacheMiss(key);
-        log.info("Cache MISS: {}", key);
+        recordMiss(region, id);
+        return null;
+    }
+
+    public <V> void put(CacheRegion<V> region, Object id, V value, CacheTags tags) {
+        EntryKey key = new EntryKey(region, id);
+        loads.remove(key);
+        store(key, value, tags.values(), TTL_NANOS);
+    }
+
+    // Drops the entity's own entry and every entry tagged with it
+    public void invalidate(CacheRegion<?> region, Object id) {
+        remove(new EntryKey(region, id));
+        invalidateTag(region.key(id));
+        for (BiConsumer<CacheRegion<?>, Object> listener : invalidationListeners) {
+            listener.accept(region, id);
+        }
+    }
+
+    public void addInvalidationListener(BiConsumer<CacheRegion<?>, Object> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    public void invalidateRegion(CacheRegion<?> region) {
+        invalidateTag(regionTag(region));
+    }
 
-        T value = supplier.get();
+    private void invalidateTag(String tag) {
+        tagEpoch.incrementAndGet();
+        Set<EntryKey> keys = taggedKeys.remove(tag);
+        if (keys != null) {
+            keys.forEach(this::remove);
+        }
+    }
 
-        evictIfNeeded();
-        cache.put(key, new CacheEntry(value, Instant.now().getEpochSecond() + TTL_SECONDS));
-        log.info("Cache PUT: {} (value={})", key, value != null ? "present" : "null");
+    private void remove(EntryKey key) {
+        loads.remove(key);
+        removeFrom(regionCache(key.region()), key);
+        removeFrom(absentCache(key.region()), key);
+        log.debug("Cache INVALIDATE: {}", key);
+    }
 
-        return value;
+    private void removeFrom(BoundedCache<Object, CacheEntry> cache, EntryKey key) {
+        CacheEntry removed = cache.remove(key.id());
+        if (removed != null) {
+            untag(key, removed);
+        }
     }
 
-    public void invalidate(String key) {
-        cache.remove(key);
-        log.info("Cache INVALIDATE: {}", key);
+    private <V> V serveStaleOrLoad(CacheRegion<V> region, Object id, CacheEntry entry, long now, Function<CacheTags, V> loader) {
+        // Within the stale window the old value is served while one background load refreshes it
+        if (entry != null && entry.isServableStale(now, staleNanos)) {
+            recordHit(region, id);
+            refreshInBackground(new EntryKey(region, id), loader);
+            return region.type().cast(entry.value);
+        }
+
+        CacheEntry absent = absentCache(region).get(id);
+        if (absent != null && !absent.isExpired(now)) {
+            recordHit(region, id);
+            throw new ResourceNotFoundException((String) absent.value);
+        }
+
+        recordMiss(region, id);
+
+        EntryKey key = new EntryKey(region, id);
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loads.putIfAbsent(key, loading);
+        if (inFlight != null) {
+            return region.type().cast(await(inFlight));
+        }
+        return region.type().cast(load(key, loader, loading));
     }
 
-    private void evictIfNeeded() {
-        if (cache.size() >= MAX_CACHE_SIZE) {
-            String oldestKey = cache.entrySet().stream()
-                    .min((e1, e2) -> Long.compare(e1.getValue().expiresAt, e2.getValue().expiresAt))
-                    .map(e -> e.getKey())
-                    .orElse(null);
-            if (oldestKey != null) {
-                cache.remove(oldestKey);
-                log.info("Cache EVICT: {}", oldestKey);
+    private Object load(EntryKey key, Function<CacheTags, ?> loader, CompletableFuture<Object> loading) {
+        long epoch = tagEpoch.get();
+        CacheTags tags = new CacheTags();
+        try {
+            Object value = loader.apply(tags);
+            // put() or an invalidation during the load unregisters it: the value may already be outdated
+            if (loads.remove(key, loading) && tagEpoch.get() == epoch) {
+                store(key, value, tags.values(), TTL_NANOS);
             }
+            loading.complete(value);
+            return value;
+        } catch (ResourceNotFoundException e) {
+            if (loads.remove(key, loading) && tagEpoch.get() == epoch) {
+                storeAbsent(key, e.getMessage(), tags);
+            }
+            loading.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            loads.remove(key, loading);
+            loading.completeExceptionally(e);
+            throw e;
         }
     }
 
-    private record CacheEntry(Object value, long expiresAt) {
+    private void refreshInBackground(EntryKey key, Function<CacheTags, ?> loader) {
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        if (loads.putIfAbsent(key, loading) != null) {
+            return;
+        }
+        log.debug("Cache STALE, refreshing: {}", key);
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, loader, loading);
+                } catch (RuntimeException e) {
+                    log.warn("Cache REFRESH failed: {}", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loads.remove(key, loading);
+            loading.cancel(false);
+        }
+    }
 
-        boolean isExpired() {
-                return Instant.now().getEpochSecond() > expiresAt;
+    private Object await(CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            // Waiters see the loader's own exception, e.g. ResourceNotFoundException
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
             }
+            throw e;
+        }
+    }
+
+    private void store(EntryKey key, Object value, Set<String> tags, long ttlNanos) {
+        removeFrom(absentCache(key.region()), key);
+        Set<String> entryTags = index(key, tags);
+        regionCache(key.region()).put(key.id(), new CacheEntry(value, CoarseClock.nanoTime() + ttlNanos, entryTags));
+        log.debug("Cache PUT: {}", key);
+    }
+
+    // The loader's tags still apply, e.g. creating the missing product clears its absent inventory
+    private void storeAbsent(EntryKey key, String message, CacheTags tags) {
+        if (negativeTtlNanos <= 0) {
+            return;
         }
+        removeFrom(regionCache(key.region()), key);
+        Set<String> entryTags = index(key, tags.values());
+        absentCache(key.region()).put(key.id(), new CacheEntry(message, CoarseClock.nanoTime() + negativeTtlNanos, entryTags));
+        log.debug("Cache PUT ABSENT: {}", key);
+    }
+
+    private Set<String> index(EntryKey key, Set<String> entryTags) {
+        entryTags.add(regionTag(key.region()));
+        for (String tag : entryTags) {
+            taggedKeys.compute(tag, (t, keys) -> {
+                Set<EntryKey> tagged = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                tagged.add(key);
+                return tagged;
+            });
+        }
+        return entryTags;
+    }
+
+    // Unexpired entries with their remaining lifetime, for CachePersistence
+    void forEachEntry(EntryVisitor visitor) {
+        long now = CoarseClock.nanoTime();
+        regions.forEach((region, cache) -> cache.forEach((id, entry) -> {
+            if (!entry.isExpired(now)) {
+                visitor.visit(region, id, entry.value, entry.tags, entry.expiresAt - now);
+            }
+        }));
+    }
+
+    // Entries restored from disk keep the expiry they had before the restart
+    void restore(CacheRegion<?> region, Object id, Object value, Set<String> tags, long remainingNanos) {
+        EntryKey key = new EntryKey(region, id);
+        if (loads.containsKey(key) || regionCache(region).get(id) != null) {
+            return;
+        }
+        store(key, value, new LinkedHashSet<>(tags), remainingNanos);
+    }
+
+    interface EntryVisitor {
+        void visit(CacheRegion<?> region, Object id, Object value, Set<String> tags, long remainingNanos);
+    }
+
+    private void untag(EntryKey key, CacheEntry entry) {
+        for (String tag : entry.tags) {
+            taggedKeys.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    // Hits are the hot path: a constant region name for the counter and no logging unless tracing
+    private void recordHit(CacheRegion<?> region, Object id) {
+        performanceMonitor.recordCacheHit(region.name());
+        if (log.isTraceEnabled()) {
+            log.trace("Cache HIT: {}:{}", region.name(), id);
+        }
+    }
+
+    private void recordMiss(CacheRegion<?> region, Object id) {
+        performanceMonitor.recordCacheMiss(region.name());
+        log.debug("Cache MISS: {}:{}", region.name(), id);
+    }
+
+    private String regionTag(CacheRegion<?> region) {
+        return "region:" + region.name();
+    }
+
+    private BoundedCache<Object, CacheEntry> regionCache(CacheRegion<?> region) {
+        BoundedCache<Object, CacheEntry> cache = regions.get(region);
+        return cache != null ? cache : regions.computeIfAbsent(region, this::newRegionCache);
+    }
+
+    private BoundedCache<Object, CacheEntry> absentCache(CacheRegion<?> region) {
+        BoundedCache<Object, CacheEntry> cache = absentRegions.get(region);
+        return cache != null ? cache : absentRegions.computeIfAbsent(region, r -> {
+            BoundedCache<Object, CacheEntry> absent = newCache(r, negativeCapacity);
+            performanceMonitor.monitorCacheSize(r.name(), "not-found", absent::size);
+            return absent;
+        });
+    }
+
+    private BoundedCache<Object, CacheEntry> newRegionCache(CacheRegion<?> region) {
+        BoundedCache<Object, CacheEntry> cache = newCache(region,
+                environment.getProperty("cache.capacity." + region.name(), Integer.class, defaultCapacity));
+        performanceMonitor.monitorCacheSize(region.name(), "values", cache::size);
+        return cache;
+    }
+
+    private BoundedCache<Object, CacheEntry> newCache(CacheRegion<?> region, int capacity) {
+        return switch (evictionPolicy) {
+            case LRU -> new LruCache<>(capacity, (id, entry) -> untag(new EntryKey(region, id), entry));
+            case W_TINY_LFU -> new WTinyLfuCache<>(capacity, (id, entry) -> untag(new EntryKey(region, id), entry));
+        };
+    }
+
+    private record EntryKey(CacheRegion<?> region, Object id) {
+        @Override
+        public String toString() {
+            return region.key(id);
+        }
+    }
+
+    private record CacheEntry(Object value, long expiresAt, Set<String> tags) {
+
+        // nanoTime differences rather than comparisons, as the clock may wrap
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+
+        boolean isServableStale(long now, long staleNanos) {
+            return staleNanos > 0 && now - expiresAt <= staleNanos;
+        }
+    }
 }
@@ -0,0 +1,214 @@
+package com.example.commerce.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dumps the cache to a memory-mapped file on shutdown and loads it back on the next start,
+ * before the warm-up runs. An entry is only restored if neither its own entity nor any entity
+ * it is tagged with has an {@code updated_at} later than the dump, and its own row still exists.
+ */
+@Component
+@Slf4j
+public class CachePersistence {
+
+    private static final int VALIDATION_BATCH = 1000;
+
+    // Per region: (id, changed since the dump) for the given ids
+    private static final Map<String, String> VERSION_QUERIES = Map.of(
+            "category", "SELECT id, updated_at > ? FROM categories WHERE id = ANY(?)",
+            "product", "SELECT id, updated_at > ? FROM products WHERE id = ANY(?)",
+            "inventory", "SELECT id, updated_at > ? FROM inventory WHERE id = ANY(?)",
+            "inventory-by-product", "SELECT product_id, updated_at > ? FROM inventory WHERE product_id = ANY(?)",
+            "order", "SELECT id, updated_at > ? FROM orders WHERE id = ANY(?)",
+            "user", "SELECT id, updated_at > ? FROM users WHERE id = ANY(?)");
+
+    private final CacheManager cacheManager;
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final Path path;
+
+    public CachePersistence(CacheManager cacheManager,
+                            DataSource dataSource,
+                            @Value("${cache.persist.enabled:false}") boolean enabled,
+                            @Value("${cache.persist.path:${java.io.tmpdir}/commerce-cache.snapshot}") String path) {
+        this.cacheManager = cacheManager;
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.path = Path.of(path);
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void dump() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<CacheSnapshotFile.Entry> entries = new ArrayList<>();
+        cacheManager.forEachEntry((region, id, value, tags, remainingNanos) -> {
+            if (id instanceof Serializable && value instanceof Serializable) {
+                entries.add(new CacheSnapshotFile.Entry(region.name(), id, value, tags.toArray(String[]::new),
+                        now + TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+            }
+        });
+        try {
+            CacheSnapshotFile.write(path, databaseTime(), entries);
+            log.info("Cache snapshot written: {} entries to {}", entries.size(), path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cache snapshot could not be written to {}", path, e);
+        }
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void restore() {
+        if (!enabled || !Files.exists(path)) {
+            return;
+        }
+        try {
+            CacheSnapshotFile.Contents contents = CacheSnapshotFile.read(path);
+            int restored = restore(contents, changedSince(contents));
+            log.info("Cache snapshot restored: {} of {} entries from {}", restored, contents.entries().size(), path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cache snapshot at {} could not be restored, starting cold", path, e);
+        } finally {
+            // One restart only: an older snapshot must never come back after a later crash
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Cache snapshot at {} could not be deleted", path, e);
+            }
+        }
+    }
+
+    private int restore(CacheSnapshotFile.Contents contents, Versions versions) {
+        long now = System.currentTimeMillis();
+        int restored = 0;
+        for (CacheSnapshotFile.Entry entry : contents.entries()) {
+            long remainingMillis = entry.expiresAtMillis() - now;
+            CacheRegion<?> region = CacheRegions.byName(entry.region()).orElse(null);
+            if (remainingMillis <= 0 || region == null || !region.type().isInstance(entry.value())
+                    || !versions.isCurrent(entry.region(), entry.id())) {
+                continue;
+            }
+            boolean tagsCurrent = true;
+            for (String tag : entry.tags()) {
+                tagsCurrent &= versions.isUnchanged(tag);
+            }
+            if (tagsCurrent) {
+                cacheManager.restore(region, entry.id(), entry.value(), Set.of(entry.tags()),
+                        TimeUnit.MILLISECONDS.toNanos(remainingMillis));
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    // One query per region and batch covering every entity the snapshot refers to
+    private Versions changedSince(CacheSnapshotFile.Contents contents) {
+        Map<String, Set<Long>> idsByRegion = new HashMap<>();
+        for (CacheSnapshotFile.Entry entry : contents.entries()) {
+            addRef(idsByRegion, entry.region(), String.valueOf(entry.id()));
+            for (String tag : entry.tags()) {
+                int separator = tag.indexOf(':');
+                if (separator > 0) {
+                    addRef(idsByRegion, tag.substring(0, separator), tag.substring(separator + 1));
+                }
+            }
+        }
+
+        Versions versions = new Versions();
+        idsByRegion.forEach((region, ids) -> {
+            List<Long> all = new ArrayList<>(ids);
+            for (int from = 0; from < all.size(); from += VALIDATION_BATCH) {
+                queryVersions(region, all.subList(from, Math.min(from + VALIDATION_BATCH, all.size())),
+                        contents.dumpedAt(), versions);
+            }
+        });
+        return versions;
+    }
+
+    private void addRef(Map<String, Set<Long>> idsByRegion, String region, String id) {
+        if (!VERSION_QUERIES.containsKey(region)) {
+            return;
+        }
+        try {
+            idsByRegion.computeIfAbsent(region, r -> new HashSet<>()).add(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            // Not an entity id, e.g. a region-wide tag
+        }
+    }
+
+    private void queryVersions(String region, List<Long> ids, LocalDateTime dumpedAt, Versions versions) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(VERSION_QUERIES.get(region))) {
+            ps.setTimestamp(1, Timestamp.valueOf(dumpedAt));
+            ps.setArray(2, connection.createArrayOf("bigint", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    versions.record(region, rs.getLong(1), rs.getBoolean(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // updated_at is written with the database clock, so the dump is stamped with it too
+    private LocalDateTime databaseTime() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT LOCALTIMESTAMP");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1).toLocalDateTime();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class Versions {
+        private final Set<String> present = new HashSet<>();
+        private final Set<String> changed = new HashSet<>();
+
+        void record(String region, long id, boolean changedSinceDump) {
+            String key = region + ":" + id;
+            present.add(key);
+            if (changedSinceDump) {
+                changed.add(key);
+            }
+        }
+
+        // The entry's own row must still exist
+        boolean isCurrent(String region, Object id) {
+            String key = region + ":" + id;
+            return present.contains(key) && !changed.contains(key);
+        }
+
+        // A tagged entity may legitimately be missing, e.g. a product without inventory
+        boolean isUnchanged(String tag) {
+            return !changed.contains(tag);
+        }
+    }
+}
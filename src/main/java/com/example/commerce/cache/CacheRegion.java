@@ -0,0 +1,11 @@
+package com.example.commerce.cache;
+
+/**
+ * A typed group of cache entries sharing a key prefix, e.g. product responses by product id.
+ */
+public record CacheRegion<V>(String name, Class<V> type) {
+
+    public String key(Object id) {
+        return name + ":" + id;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.commerce.cache;
+
+import com.example.commerce.dtos.responses.InventoryResponseDTO;
+import com.example.commerce.dtos.responses.OrderResponseDTO;
+import com.example.commerce.dtos.responses.ProductResponseDTO;
+import com.example.commerce.dtos.responses.UserSummaryDTO;
+import com.example.commerce.entities.CategoryEntity;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class CacheRegions {
+    public static final CacheRegion<CategoryEntity> CATEGORY = new CacheRegion<>("category", CategoryEntity.class);
+    // Tagged with its category and its product's stock
+    public static final CacheRegion<ProductResponseDTO> PRODUCT = new CacheRegion<>("product", ProductResponseDTO.class);
+    // Both inventory regions are tagged with the product (name) and the product's stock
+    public static final CacheRegion<InventoryResponseDTO> INVENTORY = new CacheRegion<>("inventory", InventoryResponseDTO.class);
+    public static final CacheRegion<InventoryResponseDTO> INVENTORY_BY_PRODUCT = new CacheRegion<>("inventory-by-product", InventoryResponseDTO.class);
+    // Tagged with the ordering user and every ordered product
+    public static final CacheRegion<OrderResponseDTO> ORDER = new CacheRegion<>("order", OrderResponseDTO.class);
+    public static final CacheRegion<UserSummaryDTO> USER = new CacheRegion<>("user", UserSummaryDTO.class);
+    // Order id per "userId:Idempotency-Key", tagged with the order
+    public static final CacheRegion<Long> ORDER_IDEMPOTENCY_KEY = new CacheRegion<>("order-idempotency-key", Long.class);
+
+    private static final Map<String, CacheRegion<?>> BY_NAME = Stream.of(CATEGORY, PRODUCT, INVENTORY, INVENTORY_BY_PRODUCT, ORDER, USER, ORDER_IDEMPOTENCY_KEY)
+            .collect(Collectors.toUnmodifiableMap(CacheRegion::name, region -> region));
+
+    private CacheRegions() {
+    }
+
+    public static Optional<CacheRegion<?>> byName(String name) {
+        return Optional.ofNullable(BY_NAME.get(name));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.commerce.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped dump of cache entries: a header (magic, format version, database time of the
+ * dump, entry count) followed by length-prefixed, Java-serialized {@link Entry} records.
+ */
+@Slf4j
+final class CacheSnapshotFile {
+
+    private static final int MAGIC = 0x43414348;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    // The file is our own, but it is still only allowed to rebuild our value types and their fields
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=20;com.example.commerce.**;java.lang.*;java.util.*;java.time.*;!*");
+
+    record Entry(String region, Object id, Object value, String[] tags, long expiresAtMillis) implements Serializable {
+    }
+
+    record Contents(LocalDateTime dumpedAt, List<Entry> entries) {
+    }
+
+    private CacheSnapshotFile() {
+    }
+
+    // Written to a sibling file and moved into place, so a crash mid-dump leaves no partial snapshot
+    static void write(Path path, LocalDateTime dumpedAt, List<Entry> entries) throws IOException {
+        List<byte[]> blobs = new ArrayList<>(entries.size());
+        long size = HEADER_BYTES;
+        for (Entry entry : entries) {
+            byte[] blob = serialize(entry);
+            blobs.add(blob);
+            size += Integer.BYTES + blob.length;
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(dumpedAt.toEpochSecond(ZoneOffset.UTC))
+                    .putInt(dumpedAt.getNano())
+                    .putInt(blobs.size());
+            for (byte[] blob : blobs) {
+                buffer.putInt(blob.length).put(blob);
+            }
+            buffer.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Entries whose classes changed since the dump fail to deserialize and are skipped
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a cache snapshot: " + path);
+            }
+            LocalDateTime dumpedAt = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] blob = new byte[buffer.getInt()];
+                buffer.get(blob);
+                try {
+                    entries.add(deserialize(blob));
+                } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                    log.debug("Skipping unreadable cache snapshot entry: {}", e.toString());
+                }
+            }
+            return new Contents(dumpedAt, entries);
+        }
+    }
+
+    private static byte[] serialize(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(entry);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry deserialize(byte[] blob) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(blob))) {
+            in.setObjectInputFilter(FILTER);
+            return (Entry) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.commerce.cache;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Entities a cached value was built from. Invalidating any of them through
+ * {@link CacheManager#invalidate(CacheRegion, Object)} drops the value as well.
+ */
+public class CacheTags {
+    private final Set<String> tags = new LinkedHashSet<>();
+
+    public CacheTags add(CacheRegion<?> region, Object id) {
+        tags.add(region.key(id));
+        return this;
+    }
+
+    Set<String> values() {
+        return tags;
+    }
+}
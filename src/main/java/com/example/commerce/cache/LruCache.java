@@ -0,0 +1,104 @@
+package com.example.commerce.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Plain least-recently-used eviction, mainly kept as a baseline for {@link WTinyLfuCache}.
+ * Reads are served from a concurrent map and reorder the LRU list later, through a
+ * {@link ReadBuffer}.
+ */
+public class LruCache<K, V> implements BoundedCache<K, V> {
+    private final int capacity;
+    private final ConcurrentHashMap<K, V> data = new ConcurrentHashMap<>();
+    private final ReadBuffer<K> reads = new ReadBuffer<>();
+    private final Consumer<K> onAccess = this::onAccess;
+    // Guards the LRU order
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, V> entries;
+
+    public LruCache(int capacity) {
+        this(capacity, (key, value) -> { });
+    }
+
+    public LruCache(int capacity, BiConsumer<K, V> evictionListener) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() <= LruCache.this.capacity) {
+                    return false;
+                }
+                data.remove(eldest.getKey(), eldest.getValue());
+                evictionListener.accept(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public V get(K key) {
+        V value = data.get(key);
+        if (value != null && reads.record(key) && lock.tryLock()) {
+            try {
+                reads.drain(onAccess);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            reads.drain(onAccess);
+            data.put(key, value);
+            entries.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        lock.lock();
+        try {
+            reads.drain(onAccess);
+            entries.remove(key);
+            return data.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        lock.lock();
+        try {
+            entries.forEach(action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A recorded hit, replayed under the lock; moves the key to the most recently used end
+    private void onAccess(K key) {
+        entries.get(key);
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.commerce.cache;
+
+import com.example.commerce.dtos.responses.ProductResponseDTO;
+import com.example.commerce.entities.ProductEntity;
+import com.example.commerce.interfaces.IProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Off-heap copy of the public product listing (products with an inventory row), one direct
+ * buffer per column and rows sorted by id. Listing reads decode only the requested rows into
+ * DTOs instead of going through JDBC and entities. Rows are re-read after every product,
+ * inventory or category write reported through {@link CacheManager#invalidate}, by a background
+ * task that refreshes each written id once however often it was written in the meantime; the
+ * committing thread only queues the id. Writes made by other instances are not seen, so it is off
+ * unless {@code catalog.snapshot.enabled} is set.
+ */
+@Component
+@Slf4j
+public class ProductCatalogSnapshot {
+
+    private static final int LOAD_BATCH = 1000;
+    private static final int INITIAL_ROWS = 1024;
+
+    private static final int ID = 0;
+    private static final int CATEGORY_ID = 1;
+    private static final int PRICE = 2;
+    private static final int QUANTITY = 3;
+    private static final int NAME_OFFSET = 4;
+    private static final int NAME_LENGTH = 5;
+    private static final int[] WIDTHS = {Long.BYTES, Long.BYTES, Double.BYTES, Integer.BYTES, Integer.BYTES, Integer.BYTES};
+
+    private final IProductRepository productRepository;
+    private final CacheManager cacheManager;
+    private final boolean enabled;
+    private final Executor refreshExecutor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // The load and each refresh query and apply under this, so the last one to run saw every earlier commit
+    private final Object refreshLock = new Object();
+    // Ids written since the last refresh, and whether a refresh task is queued or running
+    private final Set<Long> dirtyProducts = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyCategories = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    // Categories are few, so their names stay on heap
+    private final ConcurrentHashMap<Long, String> categoryNames = new ConcurrentHashMap<>();
+
+    private final ByteBuffer[] columns = new ByteBuffer[WIDTHS.length];
+    // UTF-8 product names; replaced names leave garbage until the next compaction
+    private ByteBuffer names;
+    private int namesUsed;
+    private int rows;
+    private volatile boolean ready;
+
+    public ProductCatalogSnapshot(IProductRepository productRepository,
+                                  CacheManager cacheManager,
+                                  @Value("${catalog.snapshot.enabled:false}") boolean enabled,
+                                  @Qualifier("applicationTaskExecutor") Executor refreshExecutor) {
+        this.productRepository = productRepository;
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        // Registered first: refreshes for writes made during the load wait on refreshLock and apply after it
+        cacheManager.addInvalidationListener(this::onInvalidate);
+        synchronized (refreshLock) {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < WIDTHS.length; i++) {
+                    columns[i] = ByteBuffer.allocateDirect(INITIAL_ROWS * WIDTHS[i]);
+                }
+                names = ByteBuffer.allocateDirect(INITIAL_ROWS * 32);
+                namesUsed = 0;
+                rows = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Long afterId = null;
+            List<ProductEntity> batch;
+            do {
+                batch = productRepository.findAllWithInventoryAfter(null, afterId, LOAD_BATCH);
+                lock.writeLock().lock();
+                try {
+                    batch.forEach(this::upsert);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == LOAD_BATCH);
+        }
+        ready = true;
+        log.info("Product catalog snapshot loaded: {} products, {} KB off-heap", rows, offHeapBytes() / 1024);
+    }
+
+    public Page<ProductResponseDTO> page(Pageable pageable, Long categoryId) {
+        lock.readLock().lock();
+        try {
+            if (categoryId == null) {
+                int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), rows) : 0;
+                int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), rows) : rows;
+                List<ProductResponseDTO> content = new ArrayList<>(to - from);
+                for (int slot = from; slot < to; slot++) {
+                    content.add(decode(slot));
+                }
+                return new PageImpl<>(content, pageable, rows);
+            }
+
+            long from = pageable.isPaged() ? pageable.getOffset() : 0;
+            long to = pageable.isPaged() ? from + pageable.getPageSize() : Long.MAX_VALUE;
+            List<ProductResponseDTO> content = new ArrayList<>();
+            int matched = 0;
+            ByteBuffer categories = columns[CATEGORY_ID];
+            for (int slot = 0; slot < rows; slot++) {
+                if (categories.getLong(slot * Long.BYTES) == categoryId) {
+                    if (matched >= from && matched < to) {
+                        content.add(decode(slot));
+                    }
+                    matched++;
+                }
+            }
+            return new PageImpl<>(content, pageable, matched);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rows with id > afterId in id order, the same as the keyset listing query
+    public List<ProductResponseDTO> after(Long categoryId, Long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<ProductResponseDTO> content = new ArrayList<>(Math.min(limit, rows));
+            int slot = afterId == null ? 0 : firstAfter(afterId);
+            ByteBuffer categories = columns[CATEGORY_ID];
+            for (; slot < rows && content.size() < limit; slot++) {
+                if (categoryId == null || categories.getLong(slot * Long.BYTES) == categoryId) {
+                    content.add(decode(slot));
+                }
+            }
+            return content;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<ProductResponseDTO> all() {
+        return page(Pageable.unpaged(), null).getContent();
+    }
+
+    private void onInvalidate(CacheRegion<?> region, Object id) {
+        if (region == CacheRegions.PRODUCT || region == CacheRegions.INVENTORY_BY_PRODUCT) {
+            afterCommit(() -> markDirty(dirtyProducts, (Long) id));
+        } else if (region == CacheRegions.CATEGORY) {
+            afterCommit(() -> markDirty(dirtyCategories, (Long) id));
+        }
+    }
+
+    // Reading inside the writer's transaction could pick up rows that are later rolled back
+    private void afterCommit(Runnable refresh) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh.run();
+            }
+        });
+    }
+
+    private void markDirty(Set<Long> dirty, long id) {
+        dirty.add(id);
+        if (!refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(this::refreshDirty);
+        } catch (RejectedExecutionException e) {
+            refreshScheduled.set(false);
+            log.warn("Product catalog snapshot refresh could not be scheduled", e);
+        }
+    }
+
+    // One task at a time; ids queued while it runs are picked up before it gives up the flag
+    private void refreshDirty() {
+        do {
+            synchronized (refreshLock) {
+                drain(dirtyCategories, this::refreshCategory);
+                drain(dirtyProducts, this::refreshProduct);
+            }
+            refreshScheduled.set(false);
+        } while ((!dirtyProducts.isEmpty() || !dirtyCategories.isEmpty()) && refreshScheduled.compareAndSet(false, true));
+    }
+
+    // An id is taken off before it is read, so a write committed during the read queues it again
+    private static void drain(Set<Long> dirty, LongConsumer refresh) {
+        Iterator<Long> it = dirty.iterator();
+        while (it.hasNext()) {
+            long id = it.next();
+            it.remove();
+            refresh.accept(id);
+        }
+    }
+
+    // Callers hold refreshLock
+    private void refreshProduct(long id) {
+        try {
+            List<ProductEntity> found = productRepository.findAllWithInventoryAfter(null, id - 1, 1);
+            lock.writeLock().lock();
+            try {
+                if (!found.isEmpty() && found.get(0).getId() == id) {
+                    upsert(found.get(0));
+                } else {
+                    remove(id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Product catalog snapshot refresh failed for product {}", id, e);
+        }
+    }
+
+    private void refreshCategory(long categoryId) {
+        try {
+            List<ProductEntity> found = productRepository.findAllWithInventoryAfter(categoryId, null, 1);
+            if (found.isEmpty()) {
+                categoryNames.remove(categoryId);
+            } else {
+                categoryNames.put(categoryId, found.get(0).getCategoryName());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Product catalog snapshot refresh failed for category {}", categoryId, e);
+        }
+    }
+
+    private ProductResponseDTO decode(int slot) {
+        ProductResponseDTO response = new ProductResponseDTO();
+        response.setId(columns[ID].getLong(slot * Long.BYTES));
+        response.setPrice(columns[PRICE].getDouble(slot * Double.BYTES));
+        response.setQuantity(columns[QUANTITY].getInt(slot * Integer.BYTES));
+        response.setCategoryName(categoryNames.get(columns[CATEGORY_ID].getLong(slot * Long.BYTES)));
+        byte[] name = new byte[columns[NAME_LENGTH].getInt(slot * Integer.BYTES)];
+        names.get(columns[NAME_OFFSET].getInt(slot * Integer.BYTES), name);
+        response.setName(new String(name, StandardCharsets.UTF_8));
+        return response;
+    }
+
+    // Callers hold the write lock
+    private void upsert(ProductEntity product) {
+        int slot = indexOf(product.getId());
+        if (slot < 0) {
+            slot = -slot - 1;
+            ensureRowCapacity(rows + 1);
+            shift(slot, 1);
+            rows++;
+        }
+        columns[ID].putLong(slot * Long.BYTES, product.getId());
+        columns[CATEGORY_ID].putLong(slot * Long.BYTES, product.getCategoryId());
+        columns[PRICE].putDouble(slot * Double.BYTES, product.getPrice() == null ? 0 : product.getPrice());
+        columns[QUANTITY].putInt(slot * Integer.BYTES, product.getQuantity() == null ? 0 : product.getQuantity());
+        putName(slot, product.getName() == null ? "" : product.getName());
+        if (product.getCategoryName() != null) {
+            categoryNames.put(product.getCategoryId(), product.getCategoryName());
+        }
+    }
+
+    private void remove(long id) {
+        int slot = indexOf(id);
+        if (slot >= 0) {
+            shift(slot + 1, -1);
+            rows--;
+        }
+    }
+
+    // Moves rows [from, rows) by delta slots in every column
+    private void shift(int from, int delta) {
+        int count = rows - from;
+        if (count <= 0) {
+            return;
+        }
+        for (int i = 0; i < WIDTHS.length; i++) {
+            int width = WIDTHS[i];
+            columns[i].put((from + delta) * width, columns[i], from * width, count * width);
+        }
+    }
+
+    private void putName(int slot, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (namesUsed + bytes.length > names.capacity()) {
+            compactNames(slot, bytes.length);
+        }
+        names.put(namesUsed, bytes);
+        columns[NAME_OFFSET].putInt(slot * Integer.BYTES, namesUsed);
+        columns[NAME_LENGTH].putInt(slot * Integer.BYTES, bytes.length);
+        namesUsed += bytes.length;
+    }
+
+    // Copies live names into a fresh buffer, skipping the slot about to be overwritten
+    private void compactNames(int replacedSlot, int needed) {
+        int live = 0;
+        for (int slot = 0; slot < rows; slot++) {
+            if (slot != replacedSlot) {
+                live += columns[NAME_LENGTH].getInt(slot * Integer.BYTES);
+            }
+        }
+        ByteBuffer compacted = ByteBuffer.allocateDirect(Math.max(names.capacity(), 2 * (live + needed)));
+        int used = 0;
+        for (int slot = 0; slot < rows; slot++) {
+            if (slot == replacedSlot) {
+                continue;
+            }
+            int length = columns[NAME_LENGTH].getInt(slot * Integer.BYTES);
+            compacted.put(used, names, columns[NAME_OFFSET].getInt(slot * Integer.BYTES), length);
+            columns[NAME_OFFSET].putInt(slot * Integer.BYTES, used);
+            used += length;
+        }
+        names = compacted;
+        namesUsed = used;
+    }
+
+    private void ensureRowCapacity(int needed) {
+        if (needed * Long.BYTES <= columns[ID].capacity()) {
+            return;
+        }
+        int capacity = Math.max(needed, 2 * columns[ID].capacity() / Long.BYTES);
+        for (int i = 0; i < WIDTHS.length; i++) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity * WIDTHS[i]);
+            grown.put(0, columns[i], 0, rows * WIDTHS[i]);
+            columns[i] = grown;
+        }
+    }
+
+    // Binary search over the id column: the slot, or -(insertion point) - 1
+    private int indexOf(long id) {
+        int low = 0;
+        int high = rows - 1;
+        ByteBuffer ids = columns[ID];
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = ids.getLong(mid * Long.BYTES);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int firstAfter(long id) {
+        int slot = indexOf(id);
+        return slot >= 0 ? slot + 1 : -slot - 1;
+    }
+
+    private long offHeapBytes() {
+        long bytes = names.capacity();
+        for (ByteBuffer column : columns) {
+            bytes += column.capacity();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.commerce.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Striped, lossy ring buffers of cache reads. A hit records its key with one CAS on its thread's
+ * stripe instead of taking the eviction policy's lock; the owner replays the keys under that lock
+ * when a stripe fills up and before every write. A read that finds its stripe full or contended is
+ * dropped, which only costs the policy a little accuracy.
+ */
+class ReadBuffer<K> {
+    private static final int STRIPES = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 16));
+    private static final int SIZE = 32;
+    private static final int MASK = SIZE - 1;
+    private static final int DRAIN_THRESHOLD = SIZE / 2;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    ReadBuffer() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Returns true once the thread's stripe is due for a drain
+    boolean record(K key) {
+        return stripes[(int) Thread.currentThread().threadId() & (STRIPES - 1)].offer(key);
+    }
+
+    // Only under the owner's lock
+    @SuppressWarnings("unchecked")
+    void drain(Consumer<? super K> consumer) {
+        for (Stripe stripe : stripes) {
+            stripe.drain(key -> consumer.accept((K) key));
+        }
+    }
+
+    private static final class Stripe {
+        private final AtomicReferenceArray<Object> ring = new AtomicReferenceArray<>(SIZE);
+        private final AtomicLong tail = new AtomicLong();
+        // Written by the drain only
+        private volatile long head;
+
+        boolean offer(Object key) {
+            long head = this.head;
+            long tail = this.tail.get();
+            long size = tail - head;
+            if (size >= SIZE) {
+                return true;
+            }
+            if (this.tail.compareAndSet(tail, tail + 1)) {
+                ring.lazySet((int) (tail & MASK), key);
+                return size + 1 >= DRAIN_THRESHOLD;
+            }
+            return false;
+        }
+
+        void drain(Consumer<Object> consumer) {
+            long head = this.head;
+            long tail = this.tail.get();
+            while (head < tail) {
+                int index = (int) (head & MASK);
+                Object key = ring.get(index);
+                if (key == null) {
+                    // Claimed but not written yet: picked up by the next drain
+                    break;
+                }
+                ring.lazySet(index, null);
+                consumer.accept(key);
+                head++;
+            }
+            this.head = head;
+        }
+    }
+}
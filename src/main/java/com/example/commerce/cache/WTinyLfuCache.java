@@ -0,0 +1,185 @@
+package com.example.commerce.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Window TinyLFU: new keys enter a small LRU window (1% of capacity); when the window
+ * overflows its oldest key competes with the main region's LRU victim and only gets in
+ * if the frequency sketch has seen it more often. The main region is a segmented LRU
+ * (20% probation, 80% protected) so one-off scans cannot flush frequently read keys.
+ * Reads are served from a concurrent map without locking; the policy sees them through a
+ * {@link ReadBuffer} that is replayed under the lock.
+ */
+public class WTinyLfuCache<K, V> implements BoundedCache<K, V> {
+    private final int capacity;
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final int mainCapacity;
+
+    private final ConcurrentHashMap<K, V> data = new ConcurrentHashMap<>();
+    private final ReadBuffer<K> reads = new ReadBuffer<>();
+    private final Consumer<K> onAccess = this::onAccess;
+    // Guards the segments and the sketch
+    private final ReentrantLock lock = new ReentrantLock();
+    // access-ordered: iteration starts at the least recently used key
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final BiConsumer<K, V> evictionListener;
+
+    public WTinyLfuCache(int capacity) {
+        this(capacity, (key, value) -> { });
+    }
+
+    public WTinyLfuCache(int capacity, BiConsumer<K, V> evictionListener) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = Math.max(0, capacity - windowCapacity);
+        this.protectedCapacity = mainCapacity * 8 / 10;
+        this.sketch = new FrequencySketch(capacity);
+        this.evictionListener = evictionListener;
+    }
+
+    // Misses are recorded too: the sketch counts every request for a key
+    @Override
+    public V get(K key) {
+        V value = data.get(key);
+        if (reads.record(key) && lock.tryLock()) {
+            try {
+                reads.drain(onAccess);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            reads.drain(onAccess);
+            data.put(key, value);
+            insert(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void insert(K key, V value) {
+        if (window.containsKey(key)) {
+            window.put(key, value);
+        } else if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, value);
+        } else if (probation.containsKey(key)) {
+            probation.remove(key);
+            promote(key, value);
+        } else {
+            sketch.increment(key);
+            window.put(key, value);
+            if (window.size() > windowCapacity) {
+                Map.Entry<K, V> candidate = removeEldest(window);
+                admit(candidate.getKey(), candidate.getValue());
+            }
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        lock.lock();
+        try {
+            reads.drain(onAccess);
+            if (window.remove(key) == null && probation.remove(key) == null) {
+                protectedSegment.remove(key);
+            }
+            return data.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        lock.lock();
+        try {
+            protectedSegment.forEach(action);
+            probation.forEach(action);
+            window.forEach(action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A recorded read, replayed under the lock; the key may have gone since
+    private void onAccess(K key) {
+        sketch.increment(key);
+        if (window.get(key) != null || protectedSegment.get(key) != null) {
+            return;
+        }
+        V value = probation.remove(key);
+        if (value != null) {
+            promote(key, value);
+        }
+    }
+
+    // A probation hit moves to protected; protected overflow falls back to probation
+    private void promote(K key, V value) {
+        protectedSegment.put(key, value);
+        if (protectedSegment.size() > protectedCapacity) {
+            Map.Entry<K, V> demoted = removeEldest(protectedSegment);
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    private void admit(K candidate, V value) {
+        if (probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(candidate, value);
+            return;
+        }
+        LinkedHashMap<K, V> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        if (victimSegment.isEmpty()) {
+            evict(candidate, value);
+            return;
+        }
+        K victim = victimSegment.keySet().iterator().next();
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            evict(victim, victimSegment.remove(victim));
+            probation.put(candidate, value);
+        } else {
+            evict(candidate, value);
+        }
+    }
+
+    private void evict(K key, V value) {
+        data.remove(key, value);
+        evictionListener.accept(key, value);
+    }
+
+    private Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> segment) {
+        Iterator<Map.Entry<K, V>> it = segment.entrySet().iterator();
+        Map.Entry<K, V> next = it.next();
+        Map.Entry<K, V> eldest = Map.entry(next.getKey(), next.getValue());
+        it.remove();
+        return eldest;
+    }
+}
@@ -1,24 +1,23 @@
 package com.example.commerce.config;
 
 
-import com.example.commerce.entities.UserEntity;
+import com.example.commerce.dtos.responses.UserSummaryDTO;
+import com.example.commerce.errorhandlers.ResourceNotFoundException;
 import com.example.commerce.errorhandlers.UnauthorizedException;
-import com.example.commerce.repositories.UserRepository;
+import com.example.commerce.interfaces.IUserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.extern.slf4j.Slf4j;
 import org.jspecify.annotations.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-@Slf4j
 @Component
 public class AuthInterceptor implements HandlerInterceptor {
 
-    private final UserRepository userRepository;
+    private final IUserService userService;
 
-    public AuthInterceptor(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public AuthInterceptor(IUserService userService) {
+        this.userService = userService;
     }
 
     @Override
@@ -31,7 +30,6 @@ public class AuthInterceptor implements HandlerInterceptor {
         boolean isPublicEndpoint = requestURI.contains("/public/");
 
         String authHeader = request.getHeader("Authorization");
-        log.info("Auth Header: {}", authHeader);
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             if (isPublicEndpoint) {
@@ -51,11 +49,16 @@ public class AuthInterceptor implements HandlerInterceptor {
                 throw new UnauthorizedException("Invalid token format");
             }
             String userId = parts[1];
-            UserEntity user = userRepository.findById(Long.parseLong(userId))
-                    .orElseThrow(() -> new UnauthorizedException("Invalid token - user not found"));
+            // Cached, including unknown ids, so probing tokens doesn't reach the database
+            UserSummaryDTO user = userService.findUserById(Long.parseLong(userId));
             request.setAttribute("authenticatedUserId", user.getId());
             request.setAttribute("authenticatedUserRole", user.getRole().name());
             return true;
+        } catch (ResourceNotFoundException e) {
+            if (isPublicEndpoint) {
+                return true;
+            }
+            throw new UnauthorizedException("Invalid token - user not found");
         } catch (NumberFormatException e) {
             if (isPublicEndpoint) {
                 return true;
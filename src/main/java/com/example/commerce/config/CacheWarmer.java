@@ -0,0 +1,131 @@
+package com.example.commerce.config;
+
+import com.example.commerce.interfaces.ICategoryService;
+import com.example.commerce.interfaces.IInventoryService;
+import com.example.commerce.interfaces.IOrderItemsRepository;
+import com.example.commerce.interfaces.IProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Preloads categories, the best selling products of the last few days and their inventory
+ * into the cache. Application runners finish before the app reports ready, so the first
+ * requests after a restart find a warm cache. Progress is exposed by {@link CacheWarmupEndpoint}.
+ */
+@Component
+@Slf4j
+public class CacheWarmer implements ApplicationRunner {
+
+    public enum Phase {
+        PENDING,
+        CATEGORIES,
+        PRODUCTS,
+        DONE,
+        FAILED,
+        DISABLED
+    }
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ICategoryService categoryService;
+    private final IProductService productService;
+    private final IInventoryService inventoryService;
+    private final IOrderItemsRepository orderItemsRepository;
+    private final boolean enabled;
+    private final int topProducts;
+    private final int orderWindowDays;
+
+    private volatile Phase phase = Phase.PENDING;
+    private volatile int categoriesWarmed;
+    private volatile int productsTargeted;
+    private volatile int productsWarmed;
+    private volatile int inventoriesWarmed;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public CacheWarmer(ICategoryService categoryService,
+                       IProductService productService,
+                       IInventoryService inventoryService,
+                       IOrderItemsRepository orderItemsRepository,
+                       @Value("${cache.warmup.enabled:true}") boolean enabled,
+                       @Value("${cache.warmup.top-products:200}") int topProducts,
+                       @Value("${cache.warmup.order-window-days:7}") int orderWindowDays) {
+        this.categoryService = categoryService;
+        this.productService = productService;
+        this.inventoryService = inventoryService;
+        this.orderItemsRepository = orderItemsRepository;
+        this.enabled = enabled;
+        this.topProducts = topProducts;
+        this.orderWindowDays = orderWindowDays;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            phase = Phase.DISABLED;
+            return;
+        }
+        warmUp();
+    }
+
+    // A failed warm-up only means a cold cache, so it is logged rather than failing startup
+    public synchronized void warmUp() {
+        startedAt = Instant.now();
+        finishedAt = null;
+        error = null;
+        categoriesWarmed = 0;
+        productsTargeted = 0;
+        productsWarmed = 0;
+        inventoriesWarmed = 0;
+        try {
+            phase = Phase.CATEGORIES;
+            categoriesWarmed = categoryService.warmCache();
+
+            phase = Phase.PRODUCTS;
+            List<Long> productIds = orderItemsRepository.findTopProductIds(
+                    LocalDateTime.now().minusDays(orderWindowDays), topProducts);
+            productsTargeted = productIds.size();
+            for (int from = 0; from < productIds.size(); from += BATCH_SIZE) {
+                List<Long> batch = productIds.subList(from, Math.min(from + BATCH_SIZE, productIds.size()));
+                productsWarmed += productService.warmCache(batch);
+                inventoriesWarmed += inventoryService.warmCache(batch);
+            }
+
+            phase = Phase.DONE;
+            log.info("Cache warm-up done: {} categories, {} products, {} inventories in {} ms",
+                    categoriesWarmed, productsWarmed, inventoriesWarmed,
+                    Instant.now().toEpochMilli() - startedAt.toEpochMilli());
+        } catch (RuntimeException e) {
+            phase = Phase.FAILED;
+            error = e.getMessage();
+            log.warn("Cache warm-up failed, continuing with a cold cache", e);
+        } finally {
+            finishedAt = Instant.now();
+        }
+    }
+
+    public Map<String, Object> progress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("phase", phase);
+        progress.put("categories", categoriesWarmed);
+        progress.put("productsTargeted", productsTargeted);
+        progress.put("products", productsWarmed);
+        progress.put("inventories", inventoriesWarmed);
+        progress.put("startedAt", startedAt);
+        progress.put("finishedAt", finishedAt);
+        if (error != null) {
+            progress.put("error", error);
+        }
+        return progress;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.commerce.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// GET /actuator/cachewarmup shows progress; POST runs the warm-up again, e.g. after a cache flush
+@Component
+@Endpoint(id = "cachewarmup")
+public class CacheWarmupEndpoint {
+    private final CacheWarmer cacheWarmer;
+
+    public CacheWarmupEndpoint(CacheWarmer cacheWarmer) {
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> progress() {
+        return cacheWarmer.progress();
+    }
+
+    @WriteOperation
+    public Map<String, Object> warmUp() {
+        cacheWarmer.warmUp();
+        return cacheWarmer.progress();
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Component;
 
+import javax.sql.DataSource;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.sql.Connection;
@@ -16,10 +17,10 @@ import java.util.Comparator;
 @Component
 @Slf4j
 public class DatabaseInitializer {
-    private final Connection connection;
+    private final DataSource dataSource;
 
-    public DatabaseInitializer(Connection connection) {
-        this.connection = connection;
+    public DatabaseInitializer(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @PostConstruct
@@ -57,7 +58,7 @@ public class DatabaseInitializer {
     }
 
     private void executeSql(String sql) throws Exception {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
             stmt.execute(sql);
         }
     }
@@ -1,8 +1,9 @@
 package com.example.commerce.config;
 
-import com.example.commerce.entities.UserEntity;
+import com.example.commerce.dtos.responses.UserSummaryDTO;
+import com.example.commerce.errorhandlers.ResourceNotFoundException;
 import com.example.commerce.errorhandlers.UnauthorizedException;
-import com.example.commerce.repositories.UserRepository;
+import com.example.commerce.interfaces.IUserService;
 import org.springframework.graphql.server.WebGraphQlInterceptor;
 import org.springframework.graphql.server.WebGraphQlRequest;
 import org.springframework.graphql.server.WebGraphQlResponse;
@@ -14,12 +15,12 @@ import java.util.List;
 @Component
 public class GraphQLAuthInterceptor implements WebGraphQlInterceptor {
 
-    private final UserRepository userRepository;
-    private static final List<String> PUBLIC_QUERIES = List.of("allProducts", "productById", "allCategories", "categoryById");
+    private final IUserService userService;
+    private static final List<String> PUBLIC_QUERIES = List.of("allProducts", "productsPage", "productById", "allCategories", "categoryById");
     private static final List<String> PUBLIC_MUTATIONS = List.of("login", "register");
 
-    public GraphQLAuthInterceptor(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public GraphQLAuthInterceptor(IUserService userService) {
+        this.userService = userService;
     }
 
     @Override
@@ -50,8 +51,8 @@ public class GraphQLAuthInterceptor implements WebGraphQlInterceptor {
             }
 
             Long userId = Long.parseLong(parts[1]);
-            UserEntity user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UnauthorizedException("Invalid token - user not found"));
+            // Cached, including unknown ids, so probing tokens doesn't reach the database
+            UserSummaryDTO user = userService.findUserById(userId);
 
             request.configureExecutionInput((executionInput, builder) ->
                     builder.graphQLContext(context -> {
@@ -61,6 +62,11 @@ public class GraphQLAuthInterceptor implements WebGraphQlInterceptor {
             );
 
             return chain.next(request);
+        } catch (ResourceNotFoundException e) {
+            if (isPublic) {
+                return chain.next(request);
+            }
+            return Mono.error(new UnauthorizedException("Invalid token - user not found"));
         } catch (NumberFormatException e) {
             if (isPublic) {
                 return chain.next(request);
@@ -1,12 +1,18 @@
 package com.example.commerce.config;
 
+import com.example.commerce.aspects.ProfilingDataSource;
+import com.example.commerce.aspects.SqlProfiler;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.JdbcTransactionManager;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
+import javax.sql.DataSource;
 
 @Configuration
 public class JdbcConnectionConfig {
@@ -17,8 +23,58 @@ public class JdbcConnectionConfig {
     @Value("${spring.datasource.password}")
     private String password;
 
+    @Value("${jdbc.pool.max-size:20}")
+    private int maxPoolSize;
+    @Value("${jdbc.pool.min-idle:5}")
+    private int minIdle;
+    @Value("${jdbc.pool.connection-timeout-ms:30000}")
+    private long connectionTimeoutMs;
+    @Value("${jdbc.pool.validation-timeout-ms:5000}")
+    private long validationTimeoutMs;
+    @Value("${jdbc.pool.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+    @Value("${jdbc.pool.max-lifetime-ms:1800000}")
+    private long maxLifetimeMs;
+    @Value("${jdbc.pool.leak-detection-threshold-ms:10000}")
+    private long leakDetectionThresholdMs;
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource poolDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("commerce-pool");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setMinimumIdle(Math.min(minIdle, maxPoolSize));
+        config.setConnectionTimeout(connectionTimeoutMs);
+        // Connections are validated with JDBC4 isValid() on borrow, bounded by this timeout
+        config.setValidationTimeout(validationTimeoutMs);
+        config.setIdleTimeout(idleTimeoutMs);
+        config.setMaxLifetime(maxLifetimeMs);
+        // Logs a stack trace for any connection held longer than the threshold (0 disables)
+        config.setLeakDetectionThreshold(leakDetectionThresholdMs);
+        return new HikariDataSource(config);
+    }
+
+    // Per-statement timings; the transaction manager and the repositories both go through it,
+    // so statements run inside a transaction are profiled as well
+    @Bean
+    public ProfilingDataSource profilingDataSource(HikariDataSource poolDataSource, SqlProfiler sqlProfiler) {
+        return new ProfilingDataSource(poolDataSource, sqlProfiler);
+    }
+
+    // Repositories borrow from this proxy: inside a @Transactional unit of work every call
+    // gets the connection bound by the transaction manager (close() is then a no-op until
+    // commit), outside one it behaves like the plain pool with autocommit.
+    @Bean
+    @Primary
+    public DataSource dataSource(ProfilingDataSource profilingDataSource) {
+        return new TransactionAwareDataSourceProxy(profilingDataSource);
+    }
+
     @Bean
-    public Connection jdbcConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
+    public DataSourceTransactionManager transactionManager(ProfilingDataSource profilingDataSource) {
+        return new JdbcTransactionManager(profilingDataSource);
     }
 }
@@ -0,0 +1,16 @@
+package com.example.commerce.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Caps the SQL statements one request to the endpoint may run; -1 keeps the query-budget.* default
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    int maxStatements() default -1;
+
+    // How often the same statement may run, the N+1 check
+    int maxRepeats() default -1;
+}
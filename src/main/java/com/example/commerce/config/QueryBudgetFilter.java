@@ -0,0 +1,84 @@
+package com.example.commerce.config;
+
+import com.example.commerce.aspects.RequestQueryStats;
+import com.example.commerce.errorhandlers.QueryBudgetExceededException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Counts the repository calls and SQL statements of every REST and GraphQL request and checks
+ * them against the budget, the default or the handler's {@link QueryBudget}. Over budget is
+ * logged; with query-budget.enforce (the test profile) the request fails, and so does the test.
+ * The counts are reported by {@link QueryBudgetResponseAdvice} and {@link QueryBudgetGraphQlInterceptor}.
+ */
+@Component
+@Slf4j
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    static final String STATS_ATTRIBUTE = RequestQueryStats.class.getName();
+
+    private final boolean enabled;
+    private final boolean enforce;
+    private final int maxStatements;
+    private final int maxRepeats;
+
+    public QueryBudgetFilter(@Value("${query-budget.enabled:false}") boolean enabled,
+                             @Value("${query-budget.enforce:false}") boolean enforce,
+                             @Value("${query-budget.max-statements:50}") int maxStatements,
+                             @Value("${query-budget.max-repeats:10}") int maxRepeats) {
+        this.enabled = enabled;
+        this.enforce = enforce;
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryStats stats = RequestQueryStats.start(maxStatements, maxRepeats);
+        request.setAttribute(STATS_ATTRIBUTE, stats);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueryStats.end();
+        }
+
+        declareBudget(request, stats);
+        List<String> violations = stats.violations();
+        if (!violations.isEmpty()) {
+            log.warn("Query budget exceeded by {} {}: {}", request.getMethod(), request.getRequestURI(), violations);
+            if (enforce) {
+                throw new QueryBudgetExceededException(request.getMethod() + " " + request.getRequestURI() + " " + violations);
+            }
+        }
+    }
+
+    // The handler is known once the dispatcher has mapped the request
+    static void declareBudget(HttpServletRequest request, RequestQueryStats stats) {
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            QueryBudget budget = handler.getMethodAnnotation(QueryBudget.class);
+            if (budget == null) {
+                budget = handler.getBeanType().getAnnotation(QueryBudget.class);
+            }
+            if (budget != null) {
+                stats.declareBudget(budget.maxStatements(), budget.maxRepeats());
+            }
+        }
+    }
+}
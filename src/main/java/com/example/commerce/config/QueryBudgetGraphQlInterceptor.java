@@ -0,0 +1,28 @@
+package com.example.commerce.config;
+
+import com.example.commerce.aspects.RequestQueryStats;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reports the query counts of a GraphQL request as the "queryBudget" response extension
+@Component
+public class QueryBudgetGraphQlInterceptor implements WebGraphQlInterceptor {
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        return chain.next(request).map(response -> {
+            if (!(request.getAttributes().get(QueryBudgetFilter.STATS_ATTRIBUTE) instanceof RequestQueryStats stats)) {
+                return response;
+            }
+            Map<Object, Object> extensions = new LinkedHashMap<>(response.getExtensions());
+            extensions.put("queryBudget", stats.summary());
+            return response.transform(builder -> builder.extensions(extensions));
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.commerce.config;
+
+import com.example.commerce.aspects.RequestQueryStats;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Map;
+
+// Adds the query counts of the request to REST responses, just before the body commits them
+@ControllerAdvice
+public class QueryBudgetResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        if (stats == null) {
+            return body;
+        }
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            QueryBudgetFilter.declareBudget(servletRequest.getServletRequest(), stats);
+        }
+        HttpHeaders headers = response.getHeaders();
+        headers.set("X-Query-Count", String.valueOf(stats.statementCount()));
+        headers.set("X-Repository-Calls", String.valueOf(stats.repositoryCallCount()));
+        Map<String, Integer> repeated = stats.repeatedStatements();
+        if (!repeated.isEmpty()) {
+            Map.Entry<String, Integer> worst = repeated.entrySet().iterator().next();
+            headers.set("X-Query-Repeated", worst.getValue() + "x " + worst.getKey());
+        }
+        if (!stats.violations().isEmpty()) {
+            headers.set("X-Query-Budget-Exceeded", "true");
+        }
+        return body;
+    }
+}
@@ -43,13 +43,7 @@ public class CategoryController {
     ) {
         Pageable pageable = Pageable.ofSize(size).withPage(page);
         Page<CategoryResponseDTO> categories = categoryService.getAllCategories(pageable);
-        PagedResponse<CategoryResponseDTO> pagedResponse = new PagedResponse<>(
-                categories.getContent(),
-                categories.getNumber(),
-                (int) categories.getTotalElements(),
-                categories.getTotalPages(),
-                categories.isLast()
-        );
+        PagedResponse<CategoryResponseDTO> pagedResponse = PagedResponse.of(categories, categories.getContent());
         ApiResponse<PagedResponse<CategoryResponseDTO>> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Categories fetched successfully", pagedResponse);
         return ResponseEntity.ok(apiResponse);
     }
@@ -1,5 +1,6 @@
 package com.example.commerce.controllers;
 
+import com.example.commerce.config.QueryBudget;
 import com.example.commerce.config.RequiresRole;
 import com.example.commerce.dtos.requests.AddInventoryDTO;
 import com.example.commerce.dtos.requests.UpdateInventoryDTO;
@@ -8,6 +9,7 @@ import com.example.commerce.dtos.responses.InventoryResponseDTO;
 import com.example.commerce.dtos.responses.PagedResponse;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IInventoryService;
+import com.example.commerce.utils.pagination.CursorSlice;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -36,21 +38,22 @@ public class InventoryController {
         return ResponseEntity.ok(apiResponse);
     }
 
+    @QueryBudget(maxStatements = 8, maxRepeats = 1)
     @RequiresRole(UserRole.ADMIN)
     @GetMapping("/all")
     public ResponseEntity<ApiResponse<PagedResponse<InventoryResponseDTO>>> getAllInventories(
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "cursor", required = false) String cursor
     ) {
+        if (cursor != null) {
+            CursorSlice<InventoryResponseDTO> slice = inventoryService.getAllInventories(cursor, size);
+            ApiResponse<PagedResponse<InventoryResponseDTO>> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Inventories fetched successfully", PagedResponse.ofCursor(slice.content(), slice.nextCursor()));
+            return ResponseEntity.ok(apiResponse);
+        }
         Pageable pageable = Pageable.ofSize(size).withPage(page);
         Page<InventoryResponseDTO> inventories = inventoryService.getAllInventories(pageable);
-        PagedResponse<InventoryResponseDTO> pagedResponse = new PagedResponse<>(
-                inventories.getContent(),
-                inventories.getNumber(),
-                (int) inventories.getTotalElements(),
-                inventories.getTotalPages(),
-                inventories.isLast()
-        );
+        PagedResponse<InventoryResponseDTO> pagedResponse = PagedResponse.of(inventories, inventories.getContent());
         ApiResponse<PagedResponse<InventoryResponseDTO>> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Inventories fetched successfully", pagedResponse);
         return ResponseEntity.ok(apiResponse);
     }
@@ -1,5 +1,6 @@
 package com.example.commerce.controllers;
 
+import com.example.commerce.config.QueryBudget;
 import com.example.commerce.config.RequiresRole;
 import com.example.commerce.dtos.requests.AddOrderDTO;
 import com.example.commerce.dtos.requests.UpdateOrderDTO;
@@ -8,6 +9,8 @@ import com.example.commerce.dtos.responses.OrderResponseDTO;
 import com.example.commerce.dtos.responses.PagedResponse;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IOrderService;
+import com.example.commerce.services.OrderIngestion;
+import com.example.commerce.utils.pagination.CursorSlice;
 import com.example.commerce.utils.sorting.SortingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -26,10 +29,12 @@ import java.util.List;
 @RequestMapping("/api/orders")
 public class OrderController {
     private final IOrderService orderService;
+    private final OrderIngestion orderIngestion;
     private final SortingService sortingService;
 
-    public OrderController(IOrderService orderService, SortingService sortingService) {
+    public OrderController(IOrderService orderService, OrderIngestion orderIngestion, SortingService sortingService) {
         this.orderService = orderService;
+        this.orderIngestion = orderIngestion;
         this.sortingService = sortingService;
     }
 
@@ -38,26 +43,44 @@ public class OrderController {
     @PostMapping("/create")
     public ResponseEntity<ApiResponse<OrderResponseDTO>> createOrder(
             @Valid @RequestBody AddOrderDTO request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             HttpServletRequest httpRequest) {
         Long authenticatedUserId = (Long) httpRequest.getAttribute("authenticatedUserId");
         request.setUserId(authenticatedUserId);
-        OrderResponseDTO order = orderService.createOrder(request);
+        request.setIdempotencyKey(idempotencyKey);
+        OrderResponseDTO order = orderIngestion.createOrder(request);
         ApiResponse<OrderResponseDTO> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Order created successfully", order);
         return ResponseEntity.ok(apiResponse);
     }
 
+    // Listings read each page with a fixed number of bulk queries, whatever the page size
+    @QueryBudget(maxStatements = 8, maxRepeats = 1)
     @RequiresRole(UserRole.ADMIN)
     @GetMapping("/all")
     public ResponseEntity<ApiResponse<PagedResponse<OrderResponseDTO>>> getAllOrders(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "cursor", required = false) String cursor,
             @RequestParam(value = "sortBy", required = false) String sortBy,
             @RequestParam(value = "ascending", defaultValue = "false") boolean ascending,
             @RequestParam(value = "algorithm", defaultValue = "MERGESORT") String algorithm
     ) {
-        Pageable pageable = Pageable.ofSize(size).withPage(page);
-        Page<OrderResponseDTO> orders = orderService.getAllOrders(pageable);
-        List<OrderResponseDTO> orderList = orders.getContent();
+        // Passing cursor (empty for the first page) switches to keyset pagination
+        CursorSlice<OrderResponseDTO> slice = null;
+        Page<OrderResponseDTO> orders = null;
+        List<OrderResponseDTO> orderList;
+        if (cursor != null && sortBy != null) {
+            // Sorting one slice at a time would reorder rows across pages inconsistently
+            throw new IllegalArgumentException("sortBy cannot be combined with cursor pagination");
+        }
+        if (cursor != null) {
+            slice = orderService.getAllOrders(cursor, size);
+            orderList = slice.content();
+        } else {
+            Pageable pageable = Pageable.ofSize(size).withPage(page);
+            orders = orderService.getAllOrders(pageable);
+            orderList = orders.getContent();
+        }
 
         // Apply custom sorting if sortBy is specified
         if (sortBy != null) {
@@ -70,34 +93,31 @@ public class OrderController {
             }
         }
 
-        PagedResponse<OrderResponseDTO> pagedResponse = new PagedResponse<>(
-                orderList,
-                orders.getNumber(),
-                (int) orders.getTotalElements(),
-                orders.getTotalPages(),
-                orders.isLast()
-        );
+        PagedResponse<OrderResponseDTO> pagedResponse = slice != null
+                ? PagedResponse.ofCursor(orderList, slice.nextCursor())
+                : PagedResponse.of(orders, orderList);
         ApiResponse<PagedResponse<OrderResponseDTO>> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Orders fetched successfully", pagedResponse);
         return ResponseEntity.ok(apiResponse);
     }
 
+    @QueryBudget(maxStatements = 8, maxRepeats = 1)
     @RequiresRole({UserRole.CUSTOMER, UserRole.ADMIN})
     @GetMapping("/user")
     public ResponseEntity<ApiResponse<PagedResponse<OrderResponseDTO>>> getOrdersByUserId(
             HttpServletRequest httpRequest,
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "cursor", required = false) String cursor
     ) {
         Long authenticatedUserId = (Long) httpRequest.getAttribute("authenticatedUserId");
+        if (cursor != null) {
+            CursorSlice<OrderResponseDTO> slice = orderService.getOrdersByUserId(authenticatedUserId, cursor, size);
+            ApiResponse<PagedResponse<OrderResponseDTO>> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "User orders fetched successfully", PagedResponse.ofCursor(slice.content(), slice.nextCursor()));
+            return ResponseEntity.ok(apiResponse);
+        }
         Pageable pageable = Pageable.ofSize(size).withPage(page);
         Page<OrderResponseDTO> orders = orderService.getOrdersByUserId(authenticatedUserId, pageable);
-        PagedResponse<OrderResponseDTO> pagedResponse = new PagedResponse<>(
-                orders.getContent(),
-                orders.getNumber(),
-                (int) orders.getTotalElements(),
-                orders.getTotalPages(),
-                orders.isLast()
-        );
+        PagedResponse<OrderResponseDTO> pagedResponse = PagedResponse.of(orders, orders.getContent());
         ApiResponse<PagedResponse<OrderResponseDTO>> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "User orders fetched successfully", pagedResponse);
         return ResponseEntity.ok(apiResponse);
     }
@@ -1,6 +1,7 @@
 package com.example.commerce.controllers;
 
 import com.example.commerce.aspects.PerformanceMonitoringAspect;
+import com.example.commerce.aspects.SqlProfiler;
 import com.example.commerce.config.RequiresRole;
 import com.example.commerce.dtos.responses.ApiResponse;
 import com.example.commerce.enums.UserRole;
@@ -21,12 +22,14 @@ import java.util.Map;
 public class PerformanceController {
 
     private final PerformanceMonitoringAspect performanceAspect;
+    private final SqlProfiler sqlProfiler;
 
-    public PerformanceController(PerformanceMonitoringAspect performanceAspect) {
+    public PerformanceController(PerformanceMonitoringAspect performanceAspect, SqlProfiler sqlProfiler) {
         this.performanceAspect = performanceAspect;
+        this.sqlProfiler = sqlProfiler;
     }
 
-    @Operation(summary = "Get database fetch times", description = "Retrieves all recorded database query execution times. Requires ADMIN role.")
+    @Operation(summary = "Get database fetch times", description = "Retrieves database query execution times in ms: totals since the last clear and p50/p90/p95/p99/p99.9 over the last 1, 5 and 15 minutes. Requires ADMIN role.")
     @RequiresRole(UserRole.ADMIN)
     @GetMapping("/db-metrics")
     public ResponseEntity<ApiResponse<Map<String, Map<String, Object>>>> getDbMetrics() {
@@ -35,6 +38,15 @@ public class PerformanceController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(summary = "Get SQL statement metrics", description = "Retrieves execution time, fetch time and rows per normalized SQL statement, slowest in total first. Requires ADMIN role.")
+    @RequiresRole(UserRole.ADMIN)
+    @GetMapping("/sql-metrics")
+    public ResponseEntity<ApiResponse<Map<String, Map<String, Object>>>> getSqlMetrics() {
+        Map<String, Map<String, Object>> metrics = sqlProfiler.getSqlMetrics();
+        ApiResponse<Map<String, Map<String, Object>>> response = new ApiResponse<>(HttpStatus.OK.value(), "SQL metrics retrieved successfully", metrics);
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(summary = "Get cache metrics", description = "Retrieves cache hit/miss statistics. Requires ADMIN role.")
     @RequiresRole(UserRole.ADMIN)
     @GetMapping("/cache-metrics")
@@ -49,6 +61,7 @@ public class PerformanceController {
     @DeleteMapping("/clear-metrics")
     public ResponseEntity<ApiResponse<Void>> clearMetrics() {
         performanceAspect.clearMetrics();
+        sqlProfiler.clearMetrics();
         ApiResponse<Void> response = new ApiResponse<>(HttpStatus.OK.value(), "Performance metrics cleared successfully", null);
         return ResponseEntity.ok(response);
     }
@@ -1,6 +1,7 @@
 package com.example.commerce.controllers;
 
 
+import com.example.commerce.config.QueryBudget;
 import com.example.commerce.config.RequiresRole;
 import com.example.commerce.dtos.requests.AddProductDTO;
 import com.example.commerce.dtos.requests.UpdateProductDTO;
@@ -9,6 +10,7 @@ import com.example.commerce.dtos.responses.PagedResponse;
 import com.example.commerce.dtos.responses.ProductResponseDTO;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IProductService;
+import com.example.commerce.utils.pagination.CursorSlice;
 import com.example.commerce.utils.sorting.SortingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -54,30 +56,42 @@ public class ProductController {
         return ResponseEntity.ok(apiResponse);
     }
 
+    @QueryBudget(maxStatements = 8, maxRepeats = 1)
     @Operation(summary = "Get all products")
     @GetMapping("/public/all")
     public ResponseEntity<ApiResponse<PagedResponse<ProductResponseDTO>>> getAllProducts(
             @RequestAttribute(value = "authenticatedUserRole", required = false) String userRole,
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "cursor", required = false) String cursor,
             @RequestParam(value = "categoryId", required = false) Long categoryId,
             @RequestParam(value = "sortBy", required = false) String sortBy,
             @RequestParam(value = "ascending", defaultValue = "true") boolean ascending,
             @RequestParam(value = "algorithm", defaultValue = "QUICKSORT") String algorithm
     ) {
-        Pageable pageable = Pageable.ofSize(size).withPage(page);
-        Page<ProductResponseDTO> products;
-
         boolean isAdmin = "ADMIN".equals(userRole);
 
-        if (categoryId != null) {
-            products = productService.getProductsByCategory(categoryId, pageable, isAdmin);
+        // Passing cursor (empty for the first page) switches to keyset pagination
+        CursorSlice<ProductResponseDTO> slice = null;
+        Page<ProductResponseDTO> products = null;
+        List<ProductResponseDTO> productList;
+        if (cursor != null && sortBy != null) {
+            // The cursor follows id order; sorting each slice on its own would shuffle it across pages
+            throw new IllegalArgumentException("sortBy cannot be combined with cursor pagination");
+        }
+        if (cursor != null) {
+            slice = productService.getAllProducts(cursor, size, categoryId, isAdmin);
+            productList = slice.content();
         } else {
-            products = productService.getAllProducts(pageable, isAdmin);
+            Pageable pageable = Pageable.ofSize(size).withPage(page);
+            if (categoryId != null) {
+                products = productService.getProductsByCategory(categoryId, pageable, isAdmin);
+            } else {
+                products = productService.getAllProducts(pageable, isAdmin);
+            }
+            productList = products.getContent();
         }
 
-        List<ProductResponseDTO> productList = products.getContent();
-
         // Apply custom sorting if sortBy is specified
         if (sortBy != null) {
             try {
@@ -89,13 +103,9 @@ public class ProductController {
             }
         }
 
-        PagedResponse<ProductResponseDTO> pagedResponse = new PagedResponse<>(
-                productList,
-                products.getNumber(),
-                (int) products.getTotalElements(),
-                products.getTotalPages(),
-                products.isLast()
-        );
+        PagedResponse<ProductResponseDTO> pagedResponse = slice != null
+                ? PagedResponse.ofCursor(productList, slice.nextCursor())
+                : PagedResponse.of(products, productList);
         ApiResponse<PagedResponse<ProductResponseDTO>> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Products fetched successfully", pagedResponse);
         return ResponseEntity.ok(apiResponse);
     }
@@ -11,6 +11,7 @@ import com.example.commerce.dtos.responses.PagedResponse;
 import com.example.commerce.dtos.responses.UserSummaryDTO;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IUserService;
+import com.example.commerce.utils.pagination.CursorSlice;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
@@ -71,16 +72,17 @@ public class UserController {
     @Operation(summary = "Get all users")
     @RequiresRole(UserRole.ADMIN)
     @GetMapping("/all")
-    public ResponseEntity<ApiResponse<PagedResponse<UserSummaryDTO>>> getAllUsers(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size) {
+    public ResponseEntity<ApiResponse<PagedResponse<UserSummaryDTO>>> getAllUsers(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+                                                                                  @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            CursorSlice<UserSummaryDTO> slice = userService.getAllUsers(cursor, size);
+            ApiResponse<PagedResponse<UserSummaryDTO>> apiResponse =
+                    new ApiResponse<>(HttpStatus.OK.value(), "Users fetched successfully", PagedResponse.ofCursor(slice.content(), slice.nextCursor()));
+            return ResponseEntity.ok(apiResponse);
+        }
         Pageable pageable = Pageable.ofSize(size).withPage(page);
         Page<UserSummaryDTO> usersPage = userService.getAllUsers(pageable);
-        PagedResponse<UserSummaryDTO> pagedResponse = new PagedResponse<>(
-                usersPage.getContent(),
-                usersPage.getNumber(),
-                (int) usersPage.getTotalElements(),
-                usersPage.getTotalPages(),
-                usersPage.isLast()
-        );
+        PagedResponse<UserSummaryDTO> pagedResponse = PagedResponse.of(usersPage, usersPage.getContent());
         ApiResponse<PagedResponse<UserSummaryDTO>> apiResponse =
                 new ApiResponse<>(HttpStatus.OK.value(), "Users fetched successfully", pagedResponse);
         return ResponseEntity.ok(apiResponse);
@@ -98,7 +100,7 @@ public class UserController {
     @RequiresRole(UserRole.ADMIN)
     @PutMapping("/update/{id}")
     public ResponseEntity<ApiResponse<UserSummaryDTO>> updateUser(@PathVariable Long id, @Valid @RequestBody UpdateUserDTO request) {
-        log.info("Updating user with Body: {}", request);
+        log.debug("Updating user {}", id);
         UserSummaryDTO updatedUser = userService.updateUser(id, request);
         ApiResponse<UserSummaryDTO> apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "User updated successfully", updatedUser);
         return ResponseEntity.ok(apiResponse);
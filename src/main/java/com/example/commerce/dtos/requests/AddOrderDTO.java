@@ -1,5 +1,6 @@
 package com.example.commerce.dtos.requests;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.Data;
@@ -13,4 +14,8 @@ public class AddOrderDTO {
     @NotEmpty(message = "Order items cannot be empty")
     @Valid
     private List<OrderItemDTO> items;
+
+    // From the Idempotency-Key header or the GraphQL argument, never the body
+    @JsonIgnore
+    private String idempotencyKey;
 }
@@ -3,11 +3,12 @@ package com.example.commerce.dtos.responses;
 import com.example.commerce.enums.OrderStatus;
 import lombok.Data;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
-public class OrderResponseDTO {
+public class OrderResponseDTO implements Serializable {
     private Long id;
     private Long userId;
     private String userName;
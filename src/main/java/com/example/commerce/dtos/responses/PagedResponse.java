@@ -1,14 +1,34 @@
 package com.example.commerce.dtos.responses;
 
+import com.example.commerce.utils.pagination.UncountedPage;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.Page;
+
 import java.util.List;
 
+// totalItems/totalPages are null when a listing is fetched by cursor (nextCursor is set then)
+// or when its count mode skips the total
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record PagedResponse<T>(
         List<T> content,
         int currentPage,
-        int totalItems,
-        int totalPages,
-        boolean isLast
+        Integer totalItems,
+        Integer totalPages,
+        boolean isLast,
+        String nextCursor
 ) {
-}
+    public PagedResponse(List<T> content, int currentPage, int totalItems, int totalPages, boolean isLast) {
+        this(content, currentPage, totalItems, totalPages, isLast, null);
+    }
 
+    public static <T> PagedResponse<T> of(Page<?> page, List<T> content) {
+        if (page instanceof UncountedPage) {
+            return new PagedResponse<>(content, page.getNumber(), null, null, page.isLast(), null);
+        }
+        return new PagedResponse<>(content, page.getNumber(), (int) page.getTotalElements(), page.getTotalPages(), page.isLast());
+    }
 
+    public static <T> PagedResponse<T> ofCursor(List<T> content, String nextCursor) {
+        return new PagedResponse<>(content, 0, null, null, nextCursor == null, nextCursor);
+    }
+}
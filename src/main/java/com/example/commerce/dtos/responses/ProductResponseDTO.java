@@ -2,8 +2,10 @@ package com.example.commerce.dtos.responses;
 
 import lombok.Data;
 
+import java.io.Serializable;
+
 @Data
-public class ProductResponseDTO {
+public class ProductResponseDTO implements Serializable {
     private Long id;
     private String name;
     private Double price;
@@ -3,8 +3,10 @@ package com.example.commerce.dtos.responses;
 import com.example.commerce.enums.UserRole;
 import lombok.Data;
 
+import java.io.Serializable;
+
 @Data
-public class UserSummaryDTO {
+public class UserSummaryDTO implements Serializable {
     private Long id;
     private String firstName;
     private String lastName;
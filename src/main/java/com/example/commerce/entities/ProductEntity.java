@@ -20,4 +20,8 @@ public class ProductEntity {
     private boolean isAvailable = true;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    // Read-only columns joined in by the listing queries, not persisted by save()
+    private String categoryName;
+    private Integer quantity;
 }
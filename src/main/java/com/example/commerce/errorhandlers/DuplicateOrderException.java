@@ -0,0 +1,15 @@
+package com.example.commerce.errorhandlers;
+
+// The idempotency key was already used for this order
+public class DuplicateOrderException extends RuntimeException {
+    private final Long orderId;
+
+    public DuplicateOrderException(Long orderId) {
+        super("Order already created with ID: " + orderId);
+        this.orderId = orderId;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+}
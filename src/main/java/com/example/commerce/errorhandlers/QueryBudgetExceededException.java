@@ -0,0 +1,7 @@
+package com.example.commerce.errorhandlers;
+
+public class QueryBudgetExceededException extends RuntimeException {
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -6,6 +6,7 @@ import com.example.commerce.dtos.responses.InventoryResponseDTO;
 import com.example.commerce.dtos.requests.UpdateInventoryDTO;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IInventoryService;
+import com.example.commerce.utils.pagination.CursorSlice;
 import graphql.schema.DataFetchingEnvironment;
 import org.springframework.data.domain.Pageable;
 import org.springframework.graphql.data.method.annotation.Argument;
@@ -29,6 +30,12 @@ public class InventoryGraphQLController {
         return inventoryService.getAllInventories(Pageable.unpaged()).getContent();
     }
 
+    @QueryMapping
+    @GraphQLRequiresRole({UserRole.ADMIN, UserRole.SELLER})
+    public CursorSlice<InventoryResponseDTO> inventoriesPage(@Argument Integer first, @Argument String after, DataFetchingEnvironment env) {
+        return inventoryService.getAllInventories(after, first != null ? first : 10);
+    }
+
     @QueryMapping
     @GraphQLRequiresRole({UserRole.ADMIN, UserRole.SELLER})
     public InventoryResponseDTO inventoryById(@Argument Long id, DataFetchingEnvironment env) {
@@ -8,6 +8,8 @@ import com.example.commerce.dtos.requests.UpdateOrderDTO;
 import com.example.commerce.enums.OrderStatus;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IOrderService;
+import com.example.commerce.services.OrderIngestion;
+import com.example.commerce.utils.pagination.CursorSlice;
 import graphql.schema.DataFetchingEnvironment;
 import org.springframework.data.domain.Pageable;
 import org.springframework.graphql.data.method.annotation.Argument;
@@ -21,9 +23,11 @@ import java.util.stream.Collectors;
 @Controller
 public class OrderGraphQLController {
     private final IOrderService orderService;
+    private final OrderIngestion orderIngestion;
 
-    public OrderGraphQLController(IOrderService orderService) {
+    public OrderGraphQLController(IOrderService orderService, OrderIngestion orderIngestion) {
         this.orderService = orderService;
+        this.orderIngestion = orderIngestion;
     }
 
     @QueryMapping
@@ -32,6 +36,12 @@ public class OrderGraphQLController {
         return orderService.getAllOrders(Pageable.unpaged()).getContent();
     }
 
+    @QueryMapping
+    @GraphQLRequiresRole(UserRole.ADMIN)
+    public CursorSlice<OrderResponseDTO> ordersPage(@Argument Integer first, @Argument String after, DataFetchingEnvironment env) {
+        return orderService.getAllOrders(after, first != null ? first : 10);
+    }
+
     @QueryMapping
     @GraphQLRequiresRole({UserRole.ADMIN, UserRole.CUSTOMER})
     public OrderResponseDTO orderById(@Argument Long id, DataFetchingEnvironment env) {
@@ -44,11 +54,20 @@ public class OrderGraphQLController {
         return orderService.getOrdersByUserId(userId, Pageable.unpaged()).getContent();
     }
 
+    @QueryMapping
+    @GraphQLRequiresRole({UserRole.ADMIN, UserRole.CUSTOMER})
+    public CursorSlice<OrderResponseDTO> ordersByUserIdPage(@Argument Long userId, @Argument Integer first, @Argument String after,
+                                                             DataFetchingEnvironment env) {
+        return orderService.getOrdersByUserId(userId, after, first != null ? first : 10);
+    }
+
     @MutationMapping
     @GraphQLRequiresRole({UserRole.ADMIN, UserRole.CUSTOMER})
-    public OrderResponseDTO createOrder(@Argument AddOrderInput input, DataFetchingEnvironment env) {
+    public OrderResponseDTO createOrder(@Argument AddOrderInput input, @Argument String idempotencyKey,
+                                        DataFetchingEnvironment env) {
         AddOrderDTO dto = new AddOrderDTO();
         dto.setUserId(input.userId());
+        dto.setIdempotencyKey(idempotencyKey);
         dto.setItems(input.items().stream()
                 .map(item -> {
                     OrderItemDTO itemDTO = new OrderItemDTO();
@@ -57,7 +76,7 @@ public class OrderGraphQLController {
                     return itemDTO;
                 })
                 .collect(Collectors.toList()));
-        return orderService.createOrder(dto);
+        return orderIngestion.createOrder(dto);
     }
 
     @MutationMapping
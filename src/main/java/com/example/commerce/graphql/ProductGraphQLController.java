@@ -5,6 +5,7 @@ import com.example.commerce.dtos.requests.AddProductDTO;
 import com.example.commerce.dtos.responses.ProductResponseDTO;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IProductService;
+import com.example.commerce.utils.pagination.CursorSlice;
 import graphql.schema.DataFetchingEnvironment;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -26,6 +27,11 @@ public class ProductGraphQLController {
         return productService.getAllProductsList();
     }
 
+    @QueryMapping
+    public CursorSlice<ProductResponseDTO> productsPage(@Argument Integer first, @Argument String after, @Argument Long categoryId) {
+        return productService.getAllProducts(after, first != null ? first : 10, categoryId, false);
+    }
+
     @QueryMapping
     public ProductResponseDTO productById(@Argument Long id) {
         return productService.getProductById(id);
@@ -7,6 +7,7 @@ import com.example.commerce.dtos.requests.UserRegistrationDTO;
 import com.example.commerce.dtos.responses.UserSummaryDTO;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IUserService;
+import com.example.commerce.utils.pagination.CursorSlice;
 import graphql.schema.DataFetchingEnvironment;
 import org.springframework.data.domain.Pageable;
 import org.springframework.graphql.data.method.annotation.Argument;
@@ -30,6 +31,12 @@ public class UserResolver {
         return userService.getAllUsers(Pageable.unpaged()).getContent();
     }
 
+    @QueryMapping
+    @GraphQLRequiresRole(UserRole.ADMIN)
+    public CursorSlice<UserSummaryDTO> usersPage(@Argument Integer first, @Argument String after, DataFetchingEnvironment env) {
+        return userService.getAllUsers(after, first != null ? first : 10);
+    }
+
     @MutationMapping
     public AuthResponse login(@Argument LoginInput input) {
         LoginDTO dto = new LoginDTO();
@@ -16,4 +16,6 @@ public interface ICategoryService {
     CategoryResponseDTO updateCategory(Long id, UpdateCategoryDTO updateCategoryDTO);
 
     void deleteCategory(Long id);
+
+    int warmCache();
 }
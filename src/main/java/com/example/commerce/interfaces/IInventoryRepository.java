@@ -4,21 +4,30 @@ import com.example.commerce.entities.InventoryEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface IInventoryRepository {
     Optional<InventoryEntity> findByProductId(Long productId);
 
+    List<InventoryEntity> findByProductIds(Collection<Long> productIds);
+
     boolean existsByProductId(Long productId);
 
     Optional<InventoryEntity> findById(Long id);
 
     Page<InventoryEntity> findAll(Pageable pageable);
 
+    List<InventoryEntity> findAllAfter(Long afterId, int limit);
+
     InventoryEntity save(InventoryEntity inventory);
 
     List<InventoryEntity> saveAll(List<InventoryEntity> inventories);
 
+    Set<Long> decrementStock(Map<Long, Integer> quantitiesByProductId);
+
     void delete(InventoryEntity inventory);
 }
@@ -0,0 +1,13 @@
+package com.example.commerce.interfaces;
+
+import java.util.Map;
+
+public interface IInventoryReservationRepository {
+    int takeStock(String node, long productId, int quantity);
+
+    void recordSold(String node, Map<Long, Integer> soldByProductId);
+
+    Map<Long, Integer> release(String node);
+
+    Map<Long, Integer> recover(String node);
+}
@@ -3,14 +3,19 @@ package com.example.commerce.interfaces;
 import com.example.commerce.dtos.requests.AddInventoryDTO;
 import com.example.commerce.dtos.responses.InventoryResponseDTO;
 import com.example.commerce.dtos.requests.UpdateInventoryDTO;
+import com.example.commerce.utils.pagination.CursorSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
+
 public interface IInventoryService {
     InventoryResponseDTO addInventory(AddInventoryDTO addInventoryDTO);
 
     Page<InventoryResponseDTO> getAllInventories(Pageable pageable);
 
+    CursorSlice<InventoryResponseDTO> getAllInventories(String cursor, int size);
+
     InventoryResponseDTO getInventoryById(Long id);
 
     InventoryResponseDTO getInventoryByProductId(Long productId);
@@ -20,4 +25,6 @@ public interface IInventoryService {
     InventoryResponseDTO adjustInventoryQuantity(Long id, Integer quantityChange);
 
     void deleteInventory(Long id);
+
+    int warmCache(Collection<Long> productIds);
 }
@@ -0,0 +1,21 @@
+package com.example.commerce.interfaces;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public interface IOrderIdempotencyRepository {
+    Optional<Long> findOrderId(IdempotencyKey key);
+
+    Set<IdempotencyKey> claim(Collection<IdempotencyKey> keys);
+
+    void release(Collection<IdempotencyKey> keys);
+
+    void assignOrders(Map<IdempotencyKey, Long> orderIdsByKey);
+
+    int deleteExpired();
+
+    record IdempotencyKey(Long userId, String key) {
+    }
+}
@@ -2,11 +2,17 @@ package com.example.commerce.interfaces;
 
 import com.example.commerce.entities.OrderItemsEntity;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface IOrderItemsRepository {
     List<OrderItemsEntity> findByOrderId(Long orderId);
 
+    List<OrderItemsEntity> findByOrderIds(Collection<Long> orderIds);
+
+    List<Long> findTopProductIds(LocalDateTime since, int limit);
+
     List<OrderItemsEntity> saveAll(List<OrderItemsEntity> items);
 
     OrderItemsEntity save(OrderItemsEntity item);
@@ -4,6 +4,7 @@ import com.example.commerce.entities.OrderEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,9 +15,15 @@ public interface IOrderRepository {
 
     Page<OrderEntity> findAll(Pageable pageable);
 
+    List<OrderEntity> findAllAfter(LocalDateTime afterCreatedAt, Long afterId, int limit);
+
+    List<OrderEntity> findByUserIdAfter(Long userId, LocalDateTime afterCreatedAt, Long afterId, int limit);
+
     Optional<OrderEntity> findById(Long id);
 
     OrderEntity save(OrderEntity order);
 
+    List<OrderEntity> saveAll(List<OrderEntity> orders);
+
     void delete(OrderEntity order);
 }
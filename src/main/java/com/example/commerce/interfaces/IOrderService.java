@@ -3,19 +3,39 @@ package com.example.commerce.interfaces;
 import com.example.commerce.dtos.requests.AddOrderDTO;
 import com.example.commerce.dtos.responses.OrderResponseDTO;
 import com.example.commerce.dtos.requests.UpdateOrderDTO;
+import com.example.commerce.utils.pagination.CursorSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface IOrderService {
     OrderResponseDTO createOrder(AddOrderDTO addOrderDTO);
 
+    List<OrderOutcome> createOrders(List<AddOrderDTO> addOrderDTOs);
+
     Page<OrderResponseDTO> getAllOrders(Pageable pageable);
 
+    CursorSlice<OrderResponseDTO> getAllOrders(String cursor, int size);
+
     Page<OrderResponseDTO> getOrdersByUserId(Long userId, Pageable pageable);
 
+    CursorSlice<OrderResponseDTO> getOrdersByUserId(Long userId, String cursor, int size);
+
     OrderResponseDTO getOrderById(Long id);
 
     OrderResponseDTO updateOrderStatus(Long id, UpdateOrderDTO updateOrderDTO);
 
     void deleteOrder(Long id);
+
+    // Either the created order or why it was rejected
+    record OrderOutcome(OrderResponseDTO order, RuntimeException error) {
+        public static OrderOutcome created(OrderResponseDTO order) {
+            return new OrderOutcome(order, null);
+        }
+
+        public static OrderOutcome failed(RuntimeException error) {
+            return new OrderOutcome(null, error);
+        }
+    }
 }
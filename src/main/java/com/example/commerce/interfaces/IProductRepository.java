@@ -4,6 +4,7 @@ import com.example.commerce.entities.ProductEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +13,10 @@ public interface IProductRepository {
 
     Optional<ProductEntity> findById(Long id);
 
+    List<ProductEntity> findAllById(Collection<Long> ids);
+
+    List<ProductEntity> findAllWithInventoryById(Collection<Long> ids);
+
     ProductEntity save(ProductEntity product);
 
     void delete(ProductEntity product);
@@ -27,4 +32,8 @@ public interface IProductRepository {
     Page<ProductEntity> findByCategoryIdWithInventory(Long categoryId, Pageable pageable);
 
     List<ProductEntity> findAllWithInventory();
+
+    List<ProductEntity> findAllAfter(Long categoryId, Long afterId, int limit);
+
+    List<ProductEntity> findAllWithInventoryAfter(Long categoryId, Long afterId, int limit);
 }
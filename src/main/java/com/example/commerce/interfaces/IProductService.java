@@ -3,9 +3,11 @@ package com.example.commerce.interfaces;
 import com.example.commerce.dtos.requests.AddProductDTO;
 import com.example.commerce.dtos.responses.ProductResponseDTO;
 import com.example.commerce.dtos.requests.UpdateProductDTO;
+import com.example.commerce.utils.pagination.CursorSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface IProductService {
@@ -13,6 +15,8 @@ public interface IProductService {
 
     Page<ProductResponseDTO> getAllProducts(Pageable pageable, boolean isAdmin);
 
+    CursorSlice<ProductResponseDTO> getAllProducts(String cursor, int size, Long categoryId, boolean isAdmin);
+
     Page<ProductResponseDTO> getProductsByCategory(Long categoryId, Pageable pageable, boolean isAdmin);
 
     ProductResponseDTO getProductById(Long id);
@@ -22,4 +26,6 @@ public interface IProductService {
     List<ProductResponseDTO> getAllProductsList();
 
     void deleteProduct(Long id);
+
+    int warmCache(Collection<Long> productIds);
 }
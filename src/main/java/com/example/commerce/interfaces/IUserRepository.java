@@ -4,6 +4,7 @@ import com.example.commerce.entities.UserEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +13,8 @@ public interface IUserRepository {
 
     Optional<UserEntity> findById(Long id);
 
+    List<UserEntity> findAllById(Collection<Long> ids);
+
     UserEntity save(UserEntity user);
 
     void delete(UserEntity user);
@@ -19,4 +22,6 @@ public interface IUserRepository {
     Page<UserEntity> findAll(Pageable pageable);
 
     List<UserEntity> findAll();
+
+    List<UserEntity> findAllAfter(Long afterId, int limit);
 }
@@ -5,6 +5,7 @@ import com.example.commerce.dtos.requests.UpdateUserDTO;
 import com.example.commerce.dtos.requests.UserRegistrationDTO;
 import com.example.commerce.dtos.responses.LoginResponseDTO;
 import com.example.commerce.dtos.responses.UserSummaryDTO;
+import com.example.commerce.utils.pagination.CursorSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -19,5 +20,7 @@ public interface IUserService {
 
     Page<UserSummaryDTO> getAllUsers(Pageable pageable);
 
+    CursorSlice<UserSummaryDTO> getAllUsers(String cursor, int size);
+
     void deleteUser(Long id);
 }
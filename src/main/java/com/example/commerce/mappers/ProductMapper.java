@@ -9,8 +9,6 @@ import org.mapstruct.*;
 @Mapper(componentModel = "spring")
 public interface ProductMapper {
 
-    @Mapping(target = "categoryName", ignore = true)
-    @Mapping(target = "quantity", ignore = true)
     ProductResponseDTO toResponseDTO(ProductEntity productEntity);
 
     @Mapping(target = "id", ignore = true)
@@ -18,6 +16,8 @@ public interface ProductMapper {
     @Mapping(target = "available", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "categoryName", ignore = true)
+    @Mapping(target = "quantity", ignore = true)
     ProductEntity toEntity(AddProductDTO addProductDTO);
 
     @Mapping(target = "id", ignore = true)
@@ -25,6 +25,8 @@ public interface ProductMapper {
     @Mapping(target = "available", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "categoryName", ignore = true)
+    @Mapping(target = "quantity", ignore = true)
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void updateEntity(UpdateProductDTO updateDTO, @MappingTarget ProductEntity entity);
 }
@@ -2,11 +2,12 @@ package com.example.commerce.repositories;
 
 import com.example.commerce.entities.CategoryEntity;
 import com.example.commerce.interfaces.ICategoryRepository;
+import com.example.commerce.utils.pagination.PageCounter;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,10 +15,12 @@ import java.util.Optional;
 
 @Repository
 public class CategoryRepository implements ICategoryRepository {
-    private final Connection connection;
+    private final DataSource dataSource;
+    private final PageCounter pageCounter;
 
-    public CategoryRepository(Connection connection) {
-        this.connection = connection;
+    public CategoryRepository(DataSource dataSource, PageCounter pageCounter) {
+        this.dataSource = dataSource;
+        this.pageCounter = pageCounter;
     }
 
     private CategoryEntity mapRow(ResultSet rs) throws SQLException {
@@ -32,7 +35,7 @@ public class CategoryRepository implements ICategoryRepository {
 
     public boolean existsByNameIgnoreCase(String name) {
         String sql = "SELECT COUNT(*) FROM categories WHERE LOWER(name) = LOWER(?)";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, name);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -47,7 +50,7 @@ public class CategoryRepository implements ICategoryRepository {
 
     public Optional<CategoryEntity> findByNameIgnoreCase(String name) {
         String sql = "SELECT * FROM categories WHERE LOWER(name) = LOWER(?)";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, name);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -62,7 +65,7 @@ public class CategoryRepository implements ICategoryRepository {
 
     public Optional<CategoryEntity> findById(Long id) {
         String sql = "SELECT * FROM categories WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -79,7 +82,7 @@ public class CategoryRepository implements ICategoryRepository {
         try {
             if (category.getId() == null) {
                 String sql = "INSERT INTO categories (name, description, created_at, updated_at) VALUES (?, ?, NOW(), NOW())";
-                try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                     ps.setString(1, category.getName());
                     ps.setString(2, category.getDescription());
                     ps.executeUpdate();
@@ -89,9 +92,10 @@ public class CategoryRepository implements ICategoryRepository {
                         }
                     }
                 }
+                pageCounter.invalidate("categories");
             } else {
                 String sql = "UPDATE categories SET name = ?, description = ?, updated_at = NOW() WHERE id = ?";
-                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
                     ps.setString(1, category.getName());
                     ps.setString(2, category.getDescription());
                     ps.setLong(3, category.getId());
@@ -106,19 +110,20 @@ public class CategoryRepository implements ICategoryRepository {
 
     public void delete(CategoryEntity category) {
         String sql = "DELETE FROM categories WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, category.getId());
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        pageCounter.invalidate("categories");
     }
 
     public Page<CategoryEntity> findAll(Pageable pageable) {
         List<CategoryEntity> categories = new ArrayList<>();
         String sql = "SELECT * FROM categories LIMIT ? OFFSET ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, pageable.getPageSize());
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, pageCounter.limitFor("categories", pageable));
             ps.setInt(2, (int) pageable.getOffset());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
@@ -128,15 +133,6 @@ public class CategoryRepository implements ICategoryRepository {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        long total = 0;
-        String countSql = "SELECT COUNT(*) FROM categories";
-        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(countSql)) {
-            if (rs.next()) {
-                total = rs.getLong(1);
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-        return new PageImpl<>(categories, pageable, total);
+        return pageCounter.toPage(categories, pageable, "categories", "FROM categories");
     }
 }
@@ -2,22 +2,33 @@ package com.example.commerce.repositories;
 
 import com.example.commerce.entities.InventoryEntity;
 import com.example.commerce.interfaces.IInventoryRepository;
+import com.example.commerce.utils.pagination.PageCounter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Repository
 public class InventoryRepository implements IInventoryRepository {
-    private final Connection connection;
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final PageCounter pageCounter;
 
-    public InventoryRepository(Connection connection) {
-        this.connection = connection;
+    public InventoryRepository(DataSource dataSource, @Value("${jdbc.batch-size:50}") int batchSize, PageCounter pageCounter) {
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.pageCounter = pageCounter;
     }
 
     private InventoryEntity mapRow(ResultSet rs) throws SQLException {
@@ -31,7 +42,7 @@ public class InventoryRepository implements IInventoryRepository {
 
     public Optional<InventoryEntity> findByProductId(Long productId) {
         String sql = "SELECT * FROM inventory WHERE product_id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, productId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -44,9 +55,28 @@ public class InventoryRepository implements IInventoryRepository {
         return Optional.empty();
     }
 
+    public List<InventoryEntity> findByProductIds(Collection<Long> productIds) {
+        List<InventoryEntity> inventories = new ArrayList<>();
+        if (productIds.isEmpty()) {
+            return inventories;
+        }
+        String sql = "SELECT * FROM inventory WHERE product_id = ANY(?)";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, connection.createArrayOf("bigint", productIds.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    inventories.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return inventories;
+    }
+
     public boolean existsByProductId(Long productId) {
         String sql = "SELECT COUNT(*) FROM inventory WHERE product_id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, productId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -61,7 +91,7 @@ public class InventoryRepository implements IInventoryRepository {
 
     public Optional<InventoryEntity> findById(Long id) {
         String sql = "SELECT * FROM inventory WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -80,8 +110,8 @@ public class InventoryRepository implements IInventoryRepository {
 
         if (pageable.isPaged()) {
             sql = "SELECT * FROM inventory LIMIT ? OFFSET ?";
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setInt(1, pageable.getPageSize());
+            try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setInt(1, pageCounter.limitFor("inventory", pageable));
                 ps.setInt(2, (int) pageable.getOffset());
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
@@ -93,7 +123,7 @@ public class InventoryRepository implements IInventoryRepository {
             }
         } else {
             sql = "SELECT * FROM inventory";
-            try (PreparedStatement ps = connection.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     inventories.add(mapRow(rs));
                 }
@@ -101,25 +131,36 @@ public class InventoryRepository implements IInventoryRepository {
                 throw new RuntimeException(e);
             }
         }
+        return pageCounter.toPage(inventories, pageable, "inventory", "FROM inventory");
+    }
 
-        // Get total count
-        int total = 0;
-        String countSql = "SELECT COUNT(*) FROM inventory";
-        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(countSql)) {
-            if (rs.next()) {
-                total = rs.getInt(1);
+    public List<InventoryEntity> findAllAfter(Long afterId, int limit) {
+        List<InventoryEntity> inventories = new ArrayList<>();
+        String sql = afterId == null
+                ? "SELECT * FROM inventory ORDER BY id LIMIT ?"
+                : "SELECT * FROM inventory WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (afterId != null) {
+                ps.setLong(index++, afterId);
+            }
+            ps.setInt(index, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    inventories.add(mapRow(rs));
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        return new PageImpl<>(inventories, pageable, total);
+        return inventories;
     }
 
     public InventoryEntity save(InventoryEntity inventory) {
         try {
             if (inventory.getId() == null) {
                 String sql = "INSERT INTO inventory (product_id, quantity, location) VALUES (?, ?, ?)";
-                try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                     ps.setLong(1, inventory.getProductId());
                     ps.setInt(2, inventory.getQuantity());
                     ps.setString(3, inventory.getLocation());
@@ -130,9 +171,10 @@ public class InventoryRepository implements IInventoryRepository {
                         }
                     }
                 }
+                invalidateCounts();
             } else {
-                String sql = "UPDATE inventory SET product_id = ?, quantity = ?, location = ? WHERE id = ?";
-                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                String sql = "UPDATE inventory SET product_id = ?, quantity = ?, location = ?, updated_at = NOW() WHERE id = ?";
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
                     ps.setLong(1, inventory.getProductId());
                     ps.setInt(2, inventory.getQuantity());
                     ps.setString(3, inventory.getLocation());
@@ -147,19 +189,112 @@ public class InventoryRepository implements IInventoryRepository {
     }
 
     public List<InventoryEntity> saveAll(List<InventoryEntity> inventories) {
+        List<InventoryEntity> inserts = new ArrayList<>();
+        List<InventoryEntity> updates = new ArrayList<>();
         for (InventoryEntity inventory : inventories) {
-            save(inventory);
+            (inventory.getId() == null ? inserts : updates).add(inventory);
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!inserts.isEmpty()) {
+                insertBatch(connection, inserts);
+                invalidateCounts();
+            }
+            if (!updates.isEmpty()) {
+                updateBatch(connection, updates);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
         return inventories;
     }
 
+    private void insertBatch(Connection connection, List<InventoryEntity> inserts) throws SQLException {
+        String sql = "INSERT INTO inventory (product_id, quantity, location) VALUES (?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"})) {
+            int from = 0;
+            for (int i = 0; i < inserts.size(); i++) {
+                InventoryEntity inventory = inserts.get(i);
+                ps.setLong(1, inventory.getProductId());
+                ps.setInt(2, inventory.getQuantity());
+                ps.setString(3, inventory.getLocation());
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == inserts.size() - 1) {
+                    ps.executeBatch();
+                    // Keys come back in batch order, one row per inserted entity
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (from <= i && keys.next()) {
+                            inserts.get(from++).setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateBatch(Connection connection, List<InventoryEntity> updates) throws SQLException {
+        String sql = "UPDATE inventory SET product_id = ?, quantity = ?, location = ?, updated_at = NOW() WHERE id = ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < updates.size(); i++) {
+                InventoryEntity inventory = updates.get(i);
+                ps.setLong(1, inventory.getProductId());
+                ps.setInt(2, inventory.getQuantity());
+                ps.setString(3, inventory.getLocation());
+                ps.setLong(4, inventory.getId());
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == updates.size() - 1) {
+                    ps.executeBatch();
+                }
+            }
+        }
+    }
+
+    // Stock is checked and taken by one conditional UPDATE per product, so concurrent orders can't
+    // oversell from a stale read. Product id order keeps two orders from deadlocking on the rows.
+    // Returns the products with too little stock or no inventory row
+    public Set<Long> decrementStock(Map<Long, Integer> quantitiesByProductId) {
+        Set<Long> failed = new LinkedHashSet<>();
+        if (quantitiesByProductId.isEmpty()) {
+            return failed;
+        }
+        List<Long> productIds = new ArrayList<>(new TreeMap<>(quantitiesByProductId).keySet());
+        String sql = "UPDATE inventory SET quantity = quantity - ?, updated_at = NOW() WHERE product_id = ? AND quantity >= ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            int from = 0;
+            for (int i = 0; i < productIds.size(); i++) {
+                int quantity = quantitiesByProductId.get(productIds.get(i));
+                ps.setInt(1, quantity);
+                ps.setLong(2, productIds.get(i));
+                ps.setInt(3, quantity);
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == productIds.size() - 1) {
+                    for (int count : ps.executeBatch()) {
+                        if (count == 0) {
+                            failed.add(productIds.get(from));
+                        }
+                        from++;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return failed;
+    }
+
     public void delete(InventoryEntity inventory) {
         String sql = "DELETE FROM inventory WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, inventory.getId());
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        invalidateCounts();
+    }
+
+    // The in-stock product listings count through the inventory join as well
+    private void invalidateCounts() {
+        pageCounter.invalidate("inventory");
+        pageCounter.invalidate("products");
     }
 }
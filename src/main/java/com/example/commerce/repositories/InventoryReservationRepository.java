@@ -0,0 +1,118 @@
+package com.example.commerce.repositories;
+
+import com.example.commerce.interfaces.IInventoryReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class InventoryReservationRepository implements IInventoryReservationRepository {
+    private final DataSource dataSource;
+    private final int batchSize;
+
+    public InventoryReservationRepository(DataSource dataSource, @Value("${jdbc.batch-size:50}") int batchSize) {
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+    }
+
+    // Moves up to quantity units from inventory.quantity into the node's held count in one
+    // statement; returns how many were available
+    public int takeStock(String node, long productId, int quantity) {
+        String sql = """
+                WITH taken AS (
+                    UPDATE inventory i SET quantity = i.quantity - s.take, updated_at = NOW()
+                    FROM (SELECT id, LEAST(quantity, ?) AS take FROM inventory WHERE product_id = ? FOR UPDATE) s
+                    WHERE i.id = s.id AND s.take > 0
+                    RETURNING i.product_id, s.take
+                ), held AS (
+                    INSERT INTO inventory_reservations (node, product_id, held, flushed_at)
+                    SELECT ?, product_id, take, NOW() FROM taken
+                    ON CONFLICT (node, product_id) DO UPDATE SET held = inventory_reservations.held + EXCLUDED.held
+                )
+                SELECT take FROM taken""";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, quantity);
+            ps.setLong(2, productId);
+            ps.setString(3, node);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Every held product is stamped, sold or not: recovery counts the orders placed after the stamp
+    public void recordSold(String node, Map<Long, Integer> soldByProductId) {
+        if (soldByProductId.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(soldByProductId.entrySet());
+        String sql = "UPDATE inventory_reservations SET held = held - ?, flushed_at = NOW() WHERE node = ? AND product_id = ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < entries.size(); i++) {
+                ps.setInt(1, entries.get(i).getValue());
+                ps.setString(2, node);
+                ps.setLong(3, entries.get(i).getKey());
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == entries.size() - 1) {
+                    ps.executeBatch();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Clean shutdown: everything still held is unsold and goes back to inventory
+    public Map<Long, Integer> release(String node) {
+        String sql = """
+                WITH released AS (
+                    DELETE FROM inventory_reservations WHERE node = ? RETURNING product_id, held
+                )
+                UPDATE inventory i SET quantity = i.quantity + r.held, updated_at = NOW()
+                FROM released r WHERE i.product_id = r.product_id AND r.held > 0
+                RETURNING i.product_id, r.held""";
+        return returnStock(sql, node);
+    }
+
+    // After a crash the sales made since the last flush are unknown. Every unit ordered since then,
+    // through any node, is assumed to have come from this node's hold, with a minute of slack for
+    // orders whose transactions were still open at the flush: stock may be stranded, never oversold
+    public Map<Long, Integer> recover(String node) {
+        String sql = """
+                WITH released AS (
+                    DELETE FROM inventory_reservations WHERE node = ? RETURNING product_id, held, flushed_at
+                ), unsold AS (
+                    SELECT r.product_id, r.held - COALESCE((
+                        SELECT SUM(oi.quantity) FROM order_items oi JOIN orders o ON o.id = oi.order_id
+                        WHERE oi.product_id = r.product_id AND o.created_at > r.flushed_at - INTERVAL '1 minute'), 0) AS held
+                    FROM released r
+                )
+                UPDATE inventory i SET quantity = i.quantity + u.held, updated_at = NOW()
+                FROM unsold u WHERE i.product_id = u.product_id AND u.held > 0
+                RETURNING i.product_id, u.held""";
+        return returnStock(sql, node);
+    }
+
+    private Map<Long, Integer> returnStock(String sql, String node) {
+        Map<Long, Integer> returned = new LinkedHashMap<>();
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, node);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    returned.put(rs.getLong(1), rs.getInt(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return returned;
+    }
+}
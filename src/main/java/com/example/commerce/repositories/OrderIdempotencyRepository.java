@@ -0,0 +1,121 @@
+package com.example.commerce.repositories;
+
+import com.example.commerce.interfaces.IOrderIdempotencyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+public class OrderIdempotencyRepository implements IOrderIdempotencyRepository {
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final long retentionHours;
+
+    public OrderIdempotencyRepository(DataSource dataSource,
+                                      @Value("${jdbc.batch-size:50}") int batchSize,
+                                      @Value("${orders.idempotency.retention-hours:24}") long retentionHours) {
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.retentionHours = retentionHours;
+    }
+
+    // A key older than the retention window is expired, whether or not it has been purged yet
+    public Optional<Long> findOrderId(IdempotencyKey key) {
+        String sql = "SELECT order_id FROM order_idempotency_keys WHERE user_id = ? AND idempotency_key = ? AND order_id IS NOT NULL "
+                + "AND created_at >= NOW() - ? * INTERVAL '1 hour'";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, key.userId());
+            ps.setString(2, key.key());
+            ps.setLong(3, retentionHours);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return Optional.empty();
+    }
+
+    // Returns the keys this transaction took. A key inserted by a transaction still in progress
+    // waits for it, so a key that isn't returned belongs to a committed order. An expired key is
+    // taken over as if it were new. DISTINCT: an upsert can't touch the same row twice
+    public Set<IdempotencyKey> claim(Collection<IdempotencyKey> keys) {
+        Set<IdempotencyKey> claimed = new HashSet<>();
+        if (keys.isEmpty()) {
+            return claimed;
+        }
+        String sql = "INSERT INTO order_idempotency_keys (user_id, idempotency_key) SELECT DISTINCT * FROM unnest(?, ?) "
+                + "ON CONFLICT (user_id, idempotency_key) DO UPDATE SET order_id = NULL, created_at = NOW() "
+                + "WHERE order_idempotency_keys.created_at < NOW() - ? * INTERVAL '1 hour' "
+                + "RETURNING user_id, idempotency_key";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, connection.createArrayOf("bigint", keys.stream().map(IdempotencyKey::userId).toArray()));
+            ps.setArray(2, connection.createArrayOf("varchar", keys.stream().map(IdempotencyKey::key).toArray()));
+            ps.setLong(3, retentionHours);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    claimed.add(new IdempotencyKey(rs.getLong(1), rs.getString(2)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return claimed;
+    }
+
+    public void release(Collection<IdempotencyKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM order_idempotency_keys WHERE (user_id, idempotency_key) IN (SELECT * FROM unnest(?, ?))";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, connection.createArrayOf("bigint", keys.stream().map(IdempotencyKey::userId).toArray()));
+            ps.setArray(2, connection.createArrayOf("varchar", keys.stream().map(IdempotencyKey::key).toArray()));
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void assignOrders(Map<IdempotencyKey, Long> orderIdsByKey) {
+        if (orderIdsByKey.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<IdempotencyKey, Long>> entries = new ArrayList<>(orderIdsByKey.entrySet());
+        String sql = "UPDATE order_idempotency_keys SET order_id = ? WHERE user_id = ? AND idempotency_key = ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < entries.size(); i++) {
+                ps.setLong(1, entries.get(i).getValue());
+                ps.setLong(2, entries.get(i).getKey().userId());
+                ps.setString(3, entries.get(i).getKey().key());
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == entries.size() - 1) {
+                    ps.executeBatch();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public int deleteExpired() {
+        String sql = "DELETE FROM order_idempotency_keys WHERE created_at < NOW() - ? * INTERVAL '1 hour'";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, retentionHours);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
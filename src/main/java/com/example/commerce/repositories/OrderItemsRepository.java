@@ -2,18 +2,24 @@ package com.example.commerce.repositories;
 
 import com.example.commerce.entities.OrderItemsEntity;
 import com.example.commerce.interfaces.IOrderItemsRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.sql.DataSource;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public class OrderItemsRepository implements IOrderItemsRepository {
-    private final Connection connection;
+    private final DataSource dataSource;
+    private final int batchSize;
 
-    public OrderItemsRepository(Connection connection) {
-        this.connection = connection;
+    public OrderItemsRepository(DataSource dataSource, @Value("${jdbc.batch-size:50}") int batchSize) {
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
     }
 
     private OrderItemsEntity mapRow(ResultSet rs) throws SQLException {
@@ -29,7 +35,7 @@ public class OrderItemsRepository implements IOrderItemsRepository {
     public List<OrderItemsEntity> findByOrderId(Long orderId) {
         List<OrderItemsEntity> items = new ArrayList<>();
         String sql = "SELECT oi.*, p.name as product_name FROM order_items oi JOIN products p ON oi.product_id = p.id WHERE oi.order_id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, orderId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
@@ -42,18 +48,109 @@ public class OrderItemsRepository implements IOrderItemsRepository {
         return items;
     }
 
+    public List<OrderItemsEntity> findByOrderIds(Collection<Long> orderIds) {
+        List<OrderItemsEntity> items = new ArrayList<>();
+        if (orderIds.isEmpty()) {
+            return items;
+        }
+        String sql = "SELECT * FROM order_items WHERE order_id = ANY(?) ORDER BY order_id, id";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, connection.createArrayOf("bigint", orderIds.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    items.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return items;
+    }
+
+    // Most ordered products by units since the given time, best sellers first
+    public List<Long> findTopProductIds(LocalDateTime since, int limit) {
+        List<Long> productIds = new ArrayList<>();
+        String sql = "SELECT oi.product_id FROM order_items oi JOIN orders o ON oi.order_id = o.id WHERE o.created_at >= ? GROUP BY oi.product_id ORDER BY SUM(oi.quantity) DESC LIMIT ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    productIds.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return productIds;
+    }
+
     public List<OrderItemsEntity> saveAll(List<OrderItemsEntity> items) {
+        List<OrderItemsEntity> inserts = new ArrayList<>();
+        List<OrderItemsEntity> updates = new ArrayList<>();
         for (OrderItemsEntity item : items) {
-            save(item);
+            (item.getId() == null ? inserts : updates).add(item);
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!inserts.isEmpty()) {
+                insertBatch(connection, inserts);
+            }
+            if (!updates.isEmpty()) {
+                updateBatch(connection, updates);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
         return items;
     }
 
+    private void insertBatch(Connection connection, List<OrderItemsEntity> inserts) throws SQLException {
+        String sql = "INSERT INTO order_items (order_id, product_id, quantity, total_price) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"})) {
+            int from = 0;
+            for (int i = 0; i < inserts.size(); i++) {
+                OrderItemsEntity item = inserts.get(i);
+                ps.setLong(1, item.getOrderId());
+                ps.setLong(2, item.getProductId());
+                ps.setInt(3, item.getQuantity());
+                ps.setDouble(4, item.getTotalPrice());
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == inserts.size() - 1) {
+                    ps.executeBatch();
+                    // Keys come back in batch order, one row per inserted item
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (from <= i && keys.next()) {
+                            inserts.get(from++).setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateBatch(Connection connection, List<OrderItemsEntity> updates) throws SQLException {
+        String sql = "UPDATE order_items SET order_id = ?, product_id = ?, quantity = ?, total_price = ? WHERE id = ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < updates.size(); i++) {
+                OrderItemsEntity item = updates.get(i);
+                ps.setLong(1, item.getOrderId());
+                ps.setLong(2, item.getProductId());
+                ps.setInt(3, item.getQuantity());
+                ps.setDouble(4, item.getTotalPrice());
+                ps.setLong(5, item.getId());
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == updates.size() - 1) {
+                    ps.executeBatch();
+                }
+            }
+        }
+    }
+
     public OrderItemsEntity save(OrderItemsEntity item) {
         try {
             if (item.getId() == null) {
                 String sql = "INSERT INTO order_items (order_id, product_id, quantity, total_price) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                     ps.setLong(1, item.getOrderId());
                     ps.setLong(2, item.getProductId());
                     ps.setInt(3, item.getQuantity());
@@ -67,7 +164,7 @@ public class OrderItemsRepository implements IOrderItemsRepository {
                 }
             } else {
                 String sql = "UPDATE order_items SET order_id = ?, product_id = ?, quantity = ?, total_price = ? WHERE id = ?";
-                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
                     ps.setLong(1, item.getOrderId());
                     ps.setLong(2, item.getProductId());
                     ps.setInt(3, item.getQuantity());
@@ -83,14 +180,26 @@ public class OrderItemsRepository implements IOrderItemsRepository {
     }
 
     public void deleteAll(List<OrderItemsEntity> items) {
-        for (OrderItemsEntity item : items) {
-            delete(item);
+        if (items.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM order_items WHERE id = ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < items.size(); i++) {
+                ps.setLong(1, items.get(i).getId());
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == items.size() - 1) {
+                    ps.executeBatch();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
     }
 
     public void delete(OrderItemsEntity item) {
         String sql = "DELETE FROM order_items WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, item.getId());
             ps.executeUpdate();
         } catch (SQLException e) {
@@ -3,22 +3,29 @@ package com.example.commerce.repositories;
 import com.example.commerce.entities.OrderEntity;
 import com.example.commerce.enums.OrderStatus;
 import com.example.commerce.interfaces.IOrderRepository;
+import com.example.commerce.utils.pagination.PageCounter;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
+import javax.sql.DataSource;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public class OrderRepository implements IOrderRepository {
-    private final Connection connection;
+    private final DataSource dataSource;
+    private final PageCounter pageCounter;
+    private final int batchSize;
 
-    public OrderRepository(Connection connection) {
-        this.connection = connection;
+    public OrderRepository(DataSource dataSource, PageCounter pageCounter, @Value("${jdbc.batch-size:50}") int batchSize) {
+        this.dataSource = dataSource;
+        this.pageCounter = pageCounter;
+        this.batchSize = batchSize;
     }
 
     private OrderEntity mapRow(ResultSet rs) throws SQLException {
@@ -34,17 +41,20 @@ public class OrderRepository implements IOrderRepository {
 
     public Page<OrderEntity> findByUserId(Long userId, Pageable pageable) {
         List<OrderEntity> orders = new ArrayList<>();
-        boolean paged = pageable != null && pageable.isPaged();
+        if (pageable == null) {
+            pageable = Pageable.unpaged();
+        }
+        boolean paged = pageable.isPaged();
         String sql;
         if (paged) {
             sql = "SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC LIMIT ? OFFSET ?";
         } else {
             sql = "SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC";
         }
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, userId);
-            if (paged && pageable != null) {
-                ps.setInt(2, pageable.getPageSize());
+            if (paged) {
+                ps.setInt(2, pageCounter.limitFor("orders", pageable));
                 ps.setInt(3, (int) pageable.getOffset());
             }
             try (ResultSet rs = ps.executeQuery()) {
@@ -55,14 +65,13 @@ public class OrderRepository implements IOrderRepository {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        int total = orders.size();
-        return new PageImpl<>(orders, pageable == null ? Pageable.unpaged() : pageable, total);
+        return pageCounter.toPage(orders, pageable, "orders", "FROM orders WHERE user_id = ?", userId);
     }
 
     public List<OrderEntity> findByUserId(Long userId) {
         List<OrderEntity> orders = new ArrayList<>();
         String sql = "SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
@@ -77,16 +86,19 @@ public class OrderRepository implements IOrderRepository {
 
     public Page<OrderEntity> findAll(Pageable pageable) {
         List<OrderEntity> orders = new ArrayList<>();
-        boolean paged = pageable != null && pageable.isPaged();
+        if (pageable == null) {
+            pageable = Pageable.unpaged();
+        }
+        boolean paged = pageable.isPaged();
         String sql;
         if (paged) {
             sql = "SELECT o.*, u.email as user_email FROM orders o JOIN users u ON o.user_id = u.id ORDER BY o.created_at DESC LIMIT ? OFFSET ?";
         } else {
             sql = "SELECT o.*, u.email as user_email FROM orders o JOIN users u ON o.user_id = u.id ORDER BY o.created_at DESC";
         }
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            if (paged && pageable != null) {
-                ps.setInt(1, pageable.getPageSize());
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            if (paged) {
+                ps.setInt(1, pageCounter.limitFor("orders", pageable));
                 ps.setInt(2, (int) pageable.getOffset());
             }
             try (ResultSet rs = ps.executeQuery()) {
@@ -97,13 +109,56 @@ public class OrderRepository implements IOrderRepository {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        int total = orders.size();
-        return new PageImpl<>(orders, pageable == null ? Pageable.unpaged() : pageable, total);
+        // orders.user_id references users, so the join never drops rows and the count can skip it
+        return pageCounter.toPage(orders, pageable, "orders", "FROM orders");
+    }
+
+    public List<OrderEntity> findAllAfter(LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        return findAfter(null, afterCreatedAt, afterId, limit);
+    }
+
+    public List<OrderEntity> findByUserIdAfter(Long userId, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        return findAfter(userId, afterCreatedAt, afterId, limit);
+    }
+
+    private List<OrderEntity> findAfter(Long userId, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        List<OrderEntity> orders = new ArrayList<>();
+        boolean seek = afterCreatedAt != null && afterId != null;
+        StringBuilder sql = new StringBuilder("SELECT * FROM orders WHERE 1 = 1");
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+        }
+        if (seek) {
+            // created_at <= ? keeps the seek on a created_at index; id breaks ties within a timestamp
+            sql.append(" AND created_at <= ? AND (created_at < ? OR id < ?)");
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            if (userId != null) {
+                ps.setLong(index++, userId);
+            }
+            if (seek) {
+                Timestamp createdAt = Timestamp.valueOf(afterCreatedAt);
+                ps.setTimestamp(index++, createdAt);
+                ps.setTimestamp(index++, createdAt);
+                ps.setLong(index++, afterId);
+            }
+            ps.setInt(index, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return orders;
     }
 
     public Optional<OrderEntity> findById(Long id) {
         String sql = "SELECT o.*, u.email as user_email FROM orders o JOIN users u ON o.user_id = u.id WHERE o.id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -120,7 +175,7 @@ public class OrderRepository implements IOrderRepository {
         try {
             if (order.getId() == null) {
                 String sql = "INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, ?, NOW(), NOW())";
-                try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                     ps.setLong(1, order.getUserId());
                     ps.setDouble(2, order.getTotalAmount());
                     ps.setString(3, order.getStatus().name());
@@ -131,9 +186,10 @@ public class OrderRepository implements IOrderRepository {
                         }
                     }
                 }
+                pageCounter.invalidate("orders");
             } else {
                 String sql = "UPDATE orders SET user_id = ?, total_amount = ?, status = ?, updated_at = NOW() WHERE id = ?";
-                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
                     ps.setLong(1, order.getUserId());
                     ps.setDouble(2, order.getTotalAmount());
                     ps.setString(3, order.getStatus().name());
@@ -147,13 +203,57 @@ public class OrderRepository implements IOrderRepository {
         return order;
     }
 
+    // New orders go in as one JDBC batch per batchSize rows; each row's generated key comes back
+    // in batch order, as for order items
+    public List<OrderEntity> saveAll(List<OrderEntity> orders) {
+        List<OrderEntity> inserts = new ArrayList<>();
+        for (OrderEntity order : orders) {
+            if (order.getId() == null) {
+                inserts.add(order);
+            } else {
+                save(order);
+            }
+        }
+        if (inserts.isEmpty()) {
+            return orders;
+        }
+        String sql = "INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, ?, NOW(), NOW())";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"})) {
+            int from = 0;
+            for (int i = 0; i < inserts.size(); i++) {
+                OrderEntity order = inserts.get(i);
+                ps.setLong(1, order.getUserId());
+                ps.setDouble(2, order.getTotalAmount());
+                ps.setString(3, order.getStatus().name());
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == inserts.size() - 1) {
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (from <= i && keys.next()) {
+                            inserts.get(from++).setId(keys.getLong(1));
+                        }
+                    }
+                    // Items and idempotency keys are attached by these ids: a missing one must not pass
+                    if (from != i + 1) {
+                        throw new IllegalStateException("Expected " + (i + 1) + " generated order ids, got " + from);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        pageCounter.invalidate("orders");
+        return orders;
+    }
+
     public void delete(OrderEntity order) {
         String sql = "DELETE FROM orders WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, order.getId());
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        pageCounter.invalidate("orders");
     }
 }
@@ -2,22 +2,26 @@ package com.example.commerce.repositories;
 
 import com.example.commerce.entities.ProductEntity;
 import com.example.commerce.interfaces.IProductRepository;
+import com.example.commerce.utils.pagination.PageCounter;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public class ProductRepository implements IProductRepository {
-    private final Connection connection;
+    private final DataSource dataSource;
+    private final PageCounter pageCounter;
 
-    public ProductRepository(Connection connection) {
-        this.connection = connection;
+    public ProductRepository(DataSource dataSource, PageCounter pageCounter) {
+        this.dataSource = dataSource;
+        this.pageCounter = pageCounter;
     }
 
     private ProductEntity mapRow(ResultSet rs) throws SQLException {
@@ -30,12 +34,20 @@ public class ProductRepository implements IProductRepository {
         product.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
         product.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
         product.setCategoryId(rs.getLong("category_id"));
+        product.setCategoryName(rs.getString("category_name"));
+        return product;
+    }
+
+    private ProductEntity mapListingRow(ResultSet rs) throws SQLException {
+        ProductEntity product = mapRow(rs);
+        int quantity = rs.getInt("inventory_quantity");
+        product.setQuantity(rs.wasNull() ? null : quantity);
         return product;
     }
 
     public boolean existsByNameIgnoreCase(String name) {
         String sql = "SELECT COUNT(*) FROM products WHERE LOWER(name) = LOWER(?)";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, name);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -50,7 +62,7 @@ public class ProductRepository implements IProductRepository {
 
     public Optional<ProductEntity> findById(Long id) {
         String sql = "SELECT p.*, c.name as category_name FROM products p JOIN categories c ON p.category_id = c.id WHERE p.id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -63,11 +75,50 @@ public class ProductRepository implements IProductRepository {
         return Optional.empty();
     }
 
+    public List<ProductEntity> findAllById(Collection<Long> ids) {
+        List<ProductEntity> products = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return products;
+        }
+        String sql = "SELECT p.*, c.name as category_name FROM products p JOIN categories c ON p.category_id = c.id WHERE p.id = ANY(?)";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return products;
+    }
+
+    // Quantity is null for a product without an inventory row
+    public List<ProductEntity> findAllWithInventoryById(Collection<Long> ids) {
+        List<ProductEntity> products = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return products;
+        }
+        String sql = "SELECT p.*, c.name as category_name, i.quantity as inventory_quantity FROM products p JOIN categories c ON p.category_id = c.id LEFT JOIN inventory i ON i.product_id = p.id WHERE p.id = ANY(?)";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapListingRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return products;
+    }
+
     public ProductEntity save(ProductEntity product) {
         try {
             if (product.getId() == null) {
                 String sql = "INSERT INTO products (name, category_id, sku, price, is_available, created_at, updated_at) VALUES (?, ?, ?, ?, ?, NOW(), NOW())";
-                try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                     ps.setString(1, product.getName());
                     ps.setLong(2, product.getCategoryId());
                     ps.setString(3, product.getSku());
@@ -82,7 +133,7 @@ public class ProductRepository implements IProductRepository {
                 }
             } else {
                 String sql = "UPDATE products SET name = ?, category_id = ?, sku = ?, price = ?, is_available = ?, updated_at = NOW() WHERE id = ?";
-                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
                     ps.setString(1, product.getName());
                     ps.setLong(2, product.getCategoryId());
                     ps.setString(3, product.getSku());
@@ -95,57 +146,48 @@ public class ProductRepository implements IProductRepository {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        // An update can move the product to another category, so both cases drop the counts
+        pageCounter.invalidate("products");
         return product;
     }
 
     public void delete(ProductEntity product) {
         String sql = "DELETE FROM products WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, product.getId());
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        pageCounter.invalidate("products");
     }
 
     public Page<ProductEntity> findByCategoryId(Long categoryId, Pageable pageable) {
         List<ProductEntity> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name FROM products p JOIN categories c ON p.category_id = c.id WHERE p.category_id = ? LIMIT ? OFFSET ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        String sql = "SELECT p.*, c.name as category_name, i.quantity as inventory_quantity FROM products p JOIN categories c ON p.category_id = c.id LEFT JOIN inventory i ON i.product_id = p.id WHERE p.category_id = ? LIMIT ? OFFSET ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, categoryId);
-            ps.setInt(2, pageable.getPageSize());
+            ps.setInt(2, pageCounter.limitFor("products", pageable));
             ps.setInt(3, (int) pageable.getOffset());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    products.add(mapRow(rs));
+                    products.add(mapListingRow(rs));
                 }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        long total = 0;
-        String countSql = "SELECT COUNT(*) FROM products WHERE category_id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(countSql)) {
-            ps.setLong(1, categoryId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    total = rs.getLong(1);
-                }
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-        return new PageImpl<>(products, pageable, total);
+        return pageCounter.toPage(products, pageable, "products", "FROM products WHERE category_id = ?", categoryId);
     }
 
     public List<ProductEntity> findByCategoryId(Long categoryId) {
         List<ProductEntity> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name FROM products p JOIN categories c ON p.category_id = c.id WHERE p.category_id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        String sql = "SELECT p.*, c.name as category_name, i.quantity as inventory_quantity FROM products p JOIN categories c ON p.category_id = c.id LEFT JOIN inventory i ON i.product_id = p.id WHERE p.category_id = ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, categoryId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    products.add(mapRow(rs));
+                    products.add(mapListingRow(rs));
                 }
             }
         } catch (SQLException e) {
@@ -156,93 +198,103 @@ public class ProductRepository implements IProductRepository {
 
     public Page<ProductEntity> findAll(Pageable pageable) {
         List<ProductEntity> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name FROM products p JOIN categories c ON p.category_id = c.id LIMIT ? OFFSET ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, pageable.getPageSize());
+        String sql = "SELECT p.*, c.name as category_name, i.quantity as inventory_quantity FROM products p JOIN categories c ON p.category_id = c.id LEFT JOIN inventory i ON i.product_id = p.id LIMIT ? OFFSET ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, pageCounter.limitFor("products", pageable));
             ps.setInt(2, (int) pageable.getOffset());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    products.add(mapRow(rs));
+                    products.add(mapListingRow(rs));
                 }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        long total = 0;
-        String countSql = "SELECT COUNT(*) FROM products";
-        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(countSql)) {
-            if (rs.next()) {
-                total = rs.getLong(1);
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-        return new PageImpl<>(products, pageable, total);
+        return pageCounter.toPage(products, pageable, "products", "FROM products");
     }
 
     public Page<ProductEntity> findAllWithInventory(Pageable pageable) {
         List<ProductEntity> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name FROM products p JOIN categories c ON p.category_id = c.id WHERE EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = p.id) LIMIT ? OFFSET ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, pageable.getPageSize());
+        String sql = "SELECT p.*, c.name as category_name, i.quantity as inventory_quantity FROM products p JOIN categories c ON p.category_id = c.id JOIN inventory i ON i.product_id = p.id LIMIT ? OFFSET ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, pageCounter.limitFor("products", pageable));
             ps.setInt(2, (int) pageable.getOffset());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    products.add(mapRow(rs));
+                    products.add(mapListingRow(rs));
                 }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        long total = 0;
-        String countSql = "SELECT COUNT(*) FROM products p WHERE EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = p.id)";
-        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(countSql)) {
-            if (rs.next()) {
-                total = rs.getLong(1);
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-        return new PageImpl<>(products, pageable, total);
+        return pageCounter.toPage(products, pageable, "products",
+                "FROM products p WHERE EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = p.id)");
     }
 
     public Page<ProductEntity> findByCategoryIdWithInventory(Long categoryId, Pageable pageable) {
-        String countSql = "SELECT COUNT(*) FROM products p WHERE p.category_id = ? AND EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = p.id)";
-        long total = 0;
-        try (PreparedStatement ps = connection.prepareStatement(countSql)) {
+        List<ProductEntity> products = new ArrayList<>();
+        String sql = "SELECT p.*, c.name as category_name, i.quantity as inventory_quantity FROM products p JOIN categories c ON p.category_id = c.id JOIN inventory i ON i.product_id = p.id WHERE p.category_id = ? LIMIT ? OFFSET ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, categoryId);
+            ps.setInt(2, pageCounter.limitFor("products", pageable));
+            ps.setInt(3, (int) pageable.getOffset());
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    total = rs.getLong(1);
+                while (rs.next()) {
+                    products.add(mapListingRow(rs));
                 }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        return pageCounter.toPage(products, pageable, "products",
+                "FROM products p WHERE p.category_id = ? AND EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = p.id)", categoryId);
+    }
 
+    public List<ProductEntity> findAllWithInventory() {
         List<ProductEntity> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name FROM products p JOIN categories c ON p.category_id = c.id WHERE p.category_id = ? AND EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = p.id) LIMIT ? OFFSET ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setLong(1, categoryId);
-            ps.setInt(2, pageable.getPageSize());
-            ps.setInt(3, (int) pageable.getOffset());
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    products.add(mapRow(rs));
-                }
+        String sql = "SELECT p.*, c.name as category_name, i.quantity as inventory_quantity FROM products p JOIN categories c ON p.category_id = c.id JOIN inventory i ON i.product_id = p.id";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                products.add(mapListingRow(rs));
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        return new PageImpl<>(products, pageable, total);
+        return products;
     }
 
-    public List<ProductEntity> findAllWithInventory() {
+    public List<ProductEntity> findAllAfter(Long categoryId, Long afterId, int limit) {
+        return findListingAfter("LEFT JOIN", categoryId, afterId, limit);
+    }
+
+    public List<ProductEntity> findAllWithInventoryAfter(Long categoryId, Long afterId, int limit) {
+        return findListingAfter("JOIN", categoryId, afterId, limit);
+    }
+
+    private List<ProductEntity> findListingAfter(String inventoryJoin, Long categoryId, Long afterId, int limit) {
         List<ProductEntity> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name FROM products p JOIN categories c ON p.category_id = c.id WHERE EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = p.id)";
-        try (PreparedStatement ps = connection.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                products.add(mapRow(rs));
+        StringBuilder sql = new StringBuilder("SELECT p.*, c.name as category_name, i.quantity as inventory_quantity FROM products p JOIN categories c ON p.category_id = c.id ")
+                .append(inventoryJoin).append(" inventory i ON i.product_id = p.id WHERE 1 = 1");
+        if (categoryId != null) {
+            sql.append(" AND p.category_id = ?");
+        }
+        if (afterId != null) {
+            sql.append(" AND p.id > ?");
+        }
+        sql.append(" ORDER BY p.id LIMIT ?");
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            if (categoryId != null) {
+                ps.setLong(index++, categoryId);
+            }
+            if (afterId != null) {
+                ps.setLong(index++, afterId);
+            }
+            ps.setInt(index, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapListingRow(rs));
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -3,22 +3,26 @@ package com.example.commerce.repositories;
 import com.example.commerce.entities.UserEntity;
 import com.example.commerce.enums.UserRole;
 import com.example.commerce.interfaces.IUserRepository;
+import com.example.commerce.utils.pagination.PageCounter;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public class UserRepository implements IUserRepository {
-    private final Connection connection;
+    private final DataSource dataSource;
+    private final PageCounter pageCounter;
 
-    public UserRepository(Connection connection) {
-        this.connection = connection;
+    public UserRepository(DataSource dataSource, PageCounter pageCounter) {
+        this.dataSource = dataSource;
+        this.pageCounter = pageCounter;
     }
 
     private UserEntity mapRow(ResultSet rs) throws SQLException {
@@ -36,7 +40,7 @@ public class UserRepository implements IUserRepository {
 
     public Optional<UserEntity> findByEmail(String email) {
         String sql = "SELECT * FROM users WHERE email = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, email);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -51,7 +55,7 @@ public class UserRepository implements IUserRepository {
 
     public Optional<UserEntity> findById(Long id) {
         String sql = "SELECT * FROM users WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -64,11 +68,30 @@ public class UserRepository implements IUserRepository {
         return Optional.empty();
     }
 
+    public List<UserEntity> findAllById(Collection<Long> ids) {
+        List<UserEntity> users = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return users;
+        }
+        String sql = "SELECT * FROM users WHERE id = ANY(?)";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return users;
+    }
+
     public UserEntity save(UserEntity user) {
         try {
             if (user.getId() == null) {
                 String sql = "INSERT INTO users (first_name, last_name, email, password, role, created_at, updated_at) VALUES (?, ?, ?, ?, ?, NOW(), NOW())";
-                try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                     ps.setString(1, user.getFirstName());
                     ps.setString(2, user.getLastName());
                     ps.setString(3, user.getEmail());
@@ -81,9 +104,10 @@ public class UserRepository implements IUserRepository {
                         }
                     }
                 }
+                pageCounter.invalidate("users");
             } else {
                 String sql = "UPDATE users SET first_name = ?, last_name = ?, email = ?, password = ?, role = ?, updated_at = NOW() WHERE id = ?";
-                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
                     ps.setString(1, user.getFirstName());
                     ps.setString(2, user.getLastName());
                     ps.setString(3, user.getEmail());
@@ -101,12 +125,13 @@ public class UserRepository implements IUserRepository {
 
     public void delete(UserEntity user) {
         String sql = "DELETE FROM users WHERE id = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, user.getId());
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        pageCounter.invalidate("users");
     }
 
     public Page<UserEntity> findAll(Pageable pageable) {
@@ -114,7 +139,7 @@ public class UserRepository implements IUserRepository {
         String sql;
         if (pageable.isUnpaged()) {
             sql = "SELECT * FROM users";
-            try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            try (Connection connection = dataSource.getConnection(); Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
                 while (rs.next()) {
                     users.add(mapRow(rs));
                 }
@@ -123,8 +148,8 @@ public class UserRepository implements IUserRepository {
             }
         } else {
             sql = "SELECT * FROM users LIMIT ? OFFSET ?";
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setInt(1, pageable.getPageSize());
+            try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setInt(1, pageCounter.limitFor("users", pageable));
                 ps.setInt(2, (int) pageable.getOffset());
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
@@ -135,22 +160,13 @@ public class UserRepository implements IUserRepository {
                 throw new RuntimeException(e);
             }
         }
-        long total = 0;
-        String countSql = "SELECT COUNT(*) FROM users";
-        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(countSql)) {
-            if (rs.next()) {
-                total = rs.getLong(1);
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-        return new PageImpl<>(users, pageable, total);
+        return pageCounter.toPage(users, pageable, "users", "FROM users");
     }
 
     public List<UserEntity> findAll() {
         List<UserEntity> users = new ArrayList<>();
         String sql = "SELECT * FROM users";
-        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+        try (Connection connection = dataSource.getConnection(); Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
             while (rs.next()) {
                 users.add(mapRow(rs));
             }
@@ -159,4 +175,26 @@ public class UserRepository implements IUserRepository {
         }
         return users;
     }
+
+    public List<UserEntity> findAllAfter(Long afterId, int limit) {
+        List<UserEntity> users = new ArrayList<>();
+        String sql = afterId == null
+                ? "SELECT * FROM users ORDER BY id LIMIT ?"
+                : "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (afterId != null) {
+                ps.setLong(index++, afterId);
+            }
+            ps.setInt(index, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return users;
+    }
 }
@@ -1,6 +1,8 @@
 package com.example.commerce.services;
 
 import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
+import com.example.commerce.cache.CacheTags;
 import com.example.commerce.dtos.requests.AddCategoryDTO;
 import com.example.commerce.dtos.responses.CategoryResponseDTO;
 import com.example.commerce.dtos.requests.UpdateCategoryDTO;
@@ -16,11 +18,14 @@ import com.example.commerce.mappers.CategoryMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
 public class CategoryService implements ICategoryService {
+    private static final int WARM_UP_PAGE = 500;
+
     private final ICategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
     private final CacheManager cacheManager;
@@ -47,17 +52,32 @@ public class CategoryService implements ICategoryService {
     public Page<CategoryResponseDTO> getAllCategories(Pageable pageable) {
         return categoryRepository.findAll(pageable).map(category -> {
             CategoryResponseDTO dto = categoryMapper.toResponseDTO(category);
-            cacheManager.get("category:" + category.getId(), () -> category);
+            cacheManager.get(CacheRegions.CATEGORY, category.getId(), () -> category);
             return dto;
         });
     }
 
     public CategoryResponseDTO getCategoryById(Long id) {
-        CategoryEntity category = categoryRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + id));
+        CategoryEntity category = cacheManager.get(CacheRegions.CATEGORY, id, () -> categoryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + id)));
         return categoryMapper.toResponseDTO(category);
     }
 
+    // Startup warm-up: every category, a page at a time
+    public int warmCache() {
+        int warmed = 0;
+        List<CategoryEntity> categories;
+        int page = 0;
+        do {
+            categories = categoryRepository.findAll(Pageable.ofSize(WARM_UP_PAGE).withPage(page++)).getContent();
+            for (CategoryEntity category : categories) {
+                cacheManager.put(CacheRegions.CATEGORY, category.getId(), category, new CacheTags());
+            }
+            warmed += categories.size();
+        } while (categories.size() == WARM_UP_PAGE);
+        return warmed;
+    }
+
     public CategoryResponseDTO updateCategory(Long id, UpdateCategoryDTO updateCategoryDTO) {
         CategoryEntity existingCategory = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + id));
@@ -71,11 +91,13 @@ public class CategoryService implements ICategoryService {
         categoryMapper.updateEntity(updateCategoryDTO, existingCategory);
         CategoryEntity updatedCategory = categoryRepository.save(existingCategory);
 
-        cacheManager.invalidate("category:" + id);
+        // Also drops cached products of this category, which carry its name
+        cacheManager.invalidate(CacheRegions.CATEGORY, id);
 
         return categoryMapper.toResponseDTO(updatedCategory);
     }
 
+    @Transactional
     public void deleteCategory(Long id) {
         CategoryEntity category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + id));
@@ -89,18 +111,17 @@ public class CategoryService implements ICategoryService {
             inventoryRepository.findByProductId(product.getId())
                     .ifPresent(inventory -> {
                         inventoryRepository.delete(inventory);
-                        cacheManager.invalidate("inventory:" + inventory.getId());
-                        cacheManager.invalidate("inventory:product:" + product.getId());
-                        cacheManager.invalidate("inventory:quantity:" + product.getId());
+                        cacheManager.invalidate(CacheRegions.INVENTORY, inventory.getId());
+                        cacheManager.invalidate(CacheRegions.INVENTORY_BY_PRODUCT, product.getId());
                     });
 
             // Delete the product
             productRepository.delete(product);
-            cacheManager.invalidate("product:" + product.getId());
+            cacheManager.invalidate(CacheRegions.PRODUCT, product.getId());
         }
 
         // Finally delete the category
         categoryRepository.delete(category);
-        cacheManager.invalidate("category:" + id);
+        cacheManager.invalidate(CacheRegions.CATEGORY, id);
     }
 }
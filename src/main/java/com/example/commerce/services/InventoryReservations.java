@@ -0,0 +1,335 @@
+package com.example.commerce.services;
+
+import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
+import com.example.commerce.interfaces.IInventoryReservationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory stock for the flash-sale products listed in {@code inventory.reservations.products}.
+ * Stock is taken from the inventory row a slice at a time and parked in this node's row of
+ * {@code inventory_reservations}; orders then reserve from the slice with a compare-and-set on a
+ * per-thread stripe, without touching the database. Slices are refilled on a background thread
+ * once they run low, so an order never waits for a second connection while it holds one; an order
+ * the slice can't serve takes its stock from the inventory row instead. Sales are written to the parked count in
+ * periodic batches, unsold stock goes back to inventory on shutdown once the orders that reserved
+ * from it have completed, and after a crash it is
+ * reconciled against the orders placed since the last flush. Parked stock doesn't show in
+ * inventory.quantity while it is held.
+ */
+@Component
+@Slf4j
+public class InventoryReservations {
+
+    private static final int STRIPES = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 16));
+    // 16 ints apart, so each stripe has its own cache line
+    private static final int PADDING = 16;
+
+    private final IInventoryReservationRepository reservationRepository;
+    private final CacheManager cacheManager;
+    private final boolean enabled;
+    private final int sliceSize;
+    private final long flushMs;
+    private final String node;
+    private final Map<Long, Slice> slices = new ConcurrentHashMap<>();
+    // Flushes sales and refills slices
+    private ScheduledExecutorService worker;
+    private volatile boolean started;
+    // Reservations whose transaction hasn't completed; shutdown waits for them before releasing
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public InventoryReservations(IInventoryReservationRepository reservationRepository,
+                                 CacheManager cacheManager,
+                                 @Value("${inventory.reservations.enabled:false}") boolean enabled,
+                                 @Value("${inventory.reservations.products:}") Set<Long> productIds,
+                                 @Value("${inventory.reservations.slice-size:100}") int sliceSize,
+                                 @Value("${inventory.reservations.flush-ms:500}") long flushMs,
+                                 @Value("${inventory.reservations.node:${HOSTNAME:local}}") String node) {
+        this.reservationRepository = reservationRepository;
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+        this.sliceSize = sliceSize;
+        this.flushMs = flushMs;
+        this.node = node;
+        productIds.forEach(id -> slices.put(id, new Slice(id)));
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        if (!enabled || slices.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> recovered = reservationRepository.recover(node);
+        if (!recovered.isEmpty()) {
+            log.warn("Inventory reservations of node {} were not released at the last shutdown; returned to stock: {}", node, recovered);
+            recovered.keySet().forEach(this::invalidate);
+        }
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-reservations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        started = true;
+        slices.values().forEach(Slice::requestRefill);
+        log.info("Inventory reservations started on node {} for products {}", node, slices.keySet());
+    }
+
+    // New orders take their stock from inventory from here on; what the slices hold goes back only
+    // after every order that reserved from them is committed or rolled back and its sale flushed
+    @PreDestroy
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        worker.shutdown();
+        try {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+            boolean settled = awaitInFlight(TimeUnit.SECONDS.toNanos(5));
+            flush();
+            if (!settled) {
+                log.warn("Orders still hold inventory reservations at shutdown; they are recovered on the next start");
+                return;
+            }
+            Map<Long, Integer> released = reservationRepository.release(node);
+            log.info("Inventory reservations released: {}", released);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Inventory reservations could not be released, they are recovered on the next start", e);
+        }
+    }
+
+    public boolean handles(Long productId) {
+        return started && slices.containsKey(productId);
+    }
+
+    private boolean awaitInFlight(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (inFlight.get() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    // Only for products it handles. Never touches the database: a product whose slice is short is
+    // left unreserved, for the caller to take from inventory. What was reserved is handed back if
+    // the current transaction rolls back
+    public Reservation reserve(Map<Long, Integer> quantitiesByProductId) {
+        Set<Long> unreserved = new LinkedHashSet<>();
+        Map<Slice, Integer> reserved = new LinkedHashMap<>();
+        // Counted before the check, so stop() either sees this order or this order sees the stop
+        inFlight.incrementAndGet();
+        if (!started) {
+            inFlight.decrementAndGet();
+            unreserved.addAll(quantitiesByProductId.keySet());
+            return new Reservation(unreserved, reserved);
+        }
+        quantitiesByProductId.forEach((productId, quantity) -> {
+            Slice slice = slices.get(productId);
+            if (slice.take(quantity)) {
+                reserved.put(slice, quantity);
+            } else {
+                unreserved.add(productId);
+            }
+        });
+        Reservation reservation = new Reservation(unreserved, reserved);
+
+        if (reserved.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            reserved.forEach(Slice::sold);
+            inFlight.decrementAndGet();
+            return reservation;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // An unknown outcome counts as sold: the stock may be stranded, never sold twice
+                if (status == STATUS_ROLLED_BACK) {
+                    reservation.cancel();
+                } else {
+                    reserved.forEach(Slice::sold);
+                }
+                inFlight.decrementAndGet();
+            }
+        });
+        return reservation;
+    }
+
+    void flush() {
+        Map<Long, Integer> sold = new LinkedHashMap<>();
+        slices.forEach((productId, slice) -> {
+            if (slice.taken) {
+                sold.put(productId, (int) slice.unflushedSales.sumThenReset());
+            }
+        });
+        try {
+            reservationRepository.recordSold(node, sold);
+        } catch (RuntimeException e) {
+            // Kept for the next flush
+            sold.forEach((productId, count) -> slices.get(productId).unflushedSales.add(count));
+            log.warn("Inventory reservation sales could not be flushed", e);
+        }
+    }
+
+    // Tops up every slice that ran low. Runs on the worker, outside any order's transaction
+    synchronized void refill() {
+        slices.values().forEach(Slice::refill);
+    }
+
+    public static final class Reservation {
+        private final Set<Long> unreserved;
+        private final Map<Slice, Integer> reserved;
+
+        Reservation(Set<Long> unreserved, Map<Slice, Integer> reserved) {
+            this.unreserved = unreserved;
+            this.reserved = reserved;
+        }
+
+        // Products the slice had too little for; their stock is to be taken from inventory
+        public Set<Long> unreserved() {
+            return unreserved;
+        }
+
+        // For an order that fails after reserving while its transaction goes on to commit
+        public void cancel() {
+            reserved.forEach(Slice::giveBack);
+            reserved.clear();
+        }
+    }
+
+    private void invalidate(long productId) {
+        cacheManager.invalidate(CacheRegions.INVENTORY_BY_PRODUCT, productId);
+    }
+
+    private final class Slice {
+        private final long productId;
+        private final AtomicIntegerArray available = new AtomicIntegerArray(STRIPES * PADDING);
+        private final LongAdder unflushedSales = new LongAdder();
+        // Gathering the stripes when a thread's own stripe runs short is serialized; nothing
+        // under it waits on the database
+        private final ReentrantLock gatherLock = new ReentrantLock();
+        private final AtomicBoolean refillRequested = new AtomicBoolean();
+        private volatile boolean taken;
+        // A sold-out product isn't asked for again on every order
+        private volatile long nextRefillNanos = System.nanoTime();
+
+        Slice(long productId) {
+            this.productId = productId;
+        }
+
+        boolean take(int quantity) {
+            int home = stripe();
+            if (takeFrom(home, quantity)) {
+                return true;
+            }
+            boolean enough;
+            int left;
+            gatherLock.lock();
+            try {
+                int gathered = 0;
+                for (int i = 0; i < STRIPES; i++) {
+                    gathered += available.getAndSet(i * PADDING, 0);
+                }
+                enough = gathered >= quantity;
+                left = enough ? gathered - quantity : gathered;
+                available.addAndGet(home, left);
+            } finally {
+                gatherLock.unlock();
+            }
+            if (left < lowWaterMark()) {
+                requestRefill();
+            }
+            return enough;
+        }
+
+        void giveBack(int quantity) {
+            available.addAndGet(stripe(), quantity);
+        }
+
+        void sold(int quantity) {
+            unflushedSales.add(quantity);
+        }
+
+        void requestRefill() {
+            if (started && System.nanoTime() - nextRefillNanos >= 0 && refillRequested.compareAndSet(false, true)) {
+                worker.execute(InventoryReservations.this::refill);
+            }
+        }
+
+        // One statement in autocommit: taken stock stays taken whatever happens to the orders
+        void refill() {
+            refillRequested.set(false);
+            if (System.nanoTime() - nextRefillNanos < 0 || total() >= lowWaterMark()) {
+                return;
+            }
+            int stock;
+            try {
+                stock = reservationRepository.takeStock(node, productId, sliceSize);
+            } catch (RuntimeException e) {
+                log.warn("Inventory reservation of product {} could not be refilled", productId, e);
+                stock = 0;
+            }
+            if (stock > 0) {
+                taken = true;
+                available.addAndGet(stripe(), stock);
+                invalidate(productId);
+            }
+            if (stock < sliceSize) {
+                nextRefillNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMs);
+            }
+        }
+
+        private boolean takeFrom(int index, int quantity) {
+            while (true) {
+                int current = available.get(index);
+                if (current < quantity) {
+                    return false;
+                }
+                if (available.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        private int total() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += available.get(i * PADDING);
+            }
+            return total;
+        }
+
+        private int lowWaterMark() {
+            return (sliceSize + 1) / 2;
+        }
+
+        private int stripe() {
+            return ((int) Thread.currentThread().threadId() & (STRIPES - 1)) * PADDING;
+        }
+    }
+}
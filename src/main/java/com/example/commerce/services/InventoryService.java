@@ -1,10 +1,13 @@
 package com.example.commerce.services;
 
 import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
+import com.example.commerce.cache.CacheTags;
 import com.example.commerce.dtos.requests.AddInventoryDTO;
 import com.example.commerce.dtos.responses.InventoryResponseDTO;
 import com.example.commerce.dtos.requests.UpdateInventoryDTO;
 import com.example.commerce.entities.InventoryEntity;
+import com.example.commerce.entities.ProductEntity;
 import com.example.commerce.errorhandlers.ConstraintViolationException;
 import com.example.commerce.errorhandlers.ResourceAlreadyExists;
 import com.example.commerce.errorhandlers.ResourceNotFoundException;
@@ -12,10 +15,17 @@ import com.example.commerce.interfaces.IInventoryRepository;
 import com.example.commerce.interfaces.IInventoryService;
 import com.example.commerce.interfaces.IProductRepository;
 import com.example.commerce.mappers.InventoryMapper;
+import com.example.commerce.utils.pagination.CursorSlice;
+import com.example.commerce.utils.pagination.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class InventoryService implements IInventoryService {
     private final IInventoryRepository inventoryRepository;
@@ -49,6 +59,8 @@ public class InventoryService implements IInventoryService {
         inventoryEntity.setLocation(addInventoryDTO.getLocation());
 
         InventoryEntity savedInventory = inventoryRepository.save(inventoryEntity);
+        // The product's cached stock changes from none to the new quantity
+        cacheManager.invalidate(CacheRegions.INVENTORY_BY_PRODUCT, savedInventory.getProductId());
         InventoryResponseDTO response = inventoryMapper.toResponseDTO(savedInventory);
         productRepository.findById(savedInventory.getProductId())
                 .ifPresent(product -> response.setProductName(product.getName()));
@@ -57,7 +69,9 @@ public class InventoryService implements IInventoryService {
 
     public Page<InventoryResponseDTO> getAllInventories(Pageable pageable) {
         return inventoryRepository.findAll(pageable)
-                .map(inventory -> cacheManager.get("inventory:" + inventory.getId(), () -> {
+                .map(inventory -> cacheManager.get(CacheRegions.INVENTORY, inventory.getId(), tags -> {
+                    tags.add(CacheRegions.PRODUCT, inventory.getProductId())
+                            .add(CacheRegions.INVENTORY_BY_PRODUCT, inventory.getProductId());
                     InventoryResponseDTO response = inventoryMapper.toResponseDTO(inventory);
                     productRepository.findById(inventory.getProductId())
                             .ifPresent(product -> response.setProductName(product.getName()));
@@ -65,6 +79,22 @@ public class InventoryService implements IInventoryService {
                 }));
     }
 
+    public CursorSlice<InventoryResponseDTO> getAllInventories(String cursor, int size) {
+        KeysetCursor after = CursorSlice.parse(cursor);
+        List<InventoryEntity> rows = inventoryRepository.findAllAfter(after == null ? null : after.id(), CursorSlice.fetchSize(size));
+        CursorSlice<InventoryEntity> slice = CursorSlice.of(rows, size, inventory -> new KeysetCursor(null, inventory.getId()));
+
+        Map<Long, String> productNames = new HashMap<>();
+        productRepository.findAllById(slice.content().stream().map(InventoryEntity::getProductId).toList())
+                .forEach(product -> productNames.put(product.getId(), product.getName()));
+
+        return slice.map(inventory -> {
+            InventoryResponseDTO response = inventoryMapper.toResponseDTO(inventory);
+            response.setProductName(productNames.get(inventory.getProductId()));
+            return response;
+        });
+    }
+
     public InventoryResponseDTO getInventoryById(Long id) {
         InventoryEntity inventory = inventoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Inventory not found with ID: " + id));
@@ -75,15 +105,36 @@ public class InventoryService implements IInventoryService {
     }
 
     public InventoryResponseDTO getInventoryByProductId(Long productId) {
-        productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + productId));
+        return cacheManager.get(CacheRegions.INVENTORY_BY_PRODUCT, productId, tags -> {
+            // Tagged before the lookups so a not-found result is dropped once the product is added
+            tags.add(CacheRegions.PRODUCT, productId);
+            ProductEntity product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + productId));
+
+            InventoryEntity inventory = inventoryRepository.findByProductId(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for product ID: " + productId));
+            tags.add(CacheRegions.INVENTORY, inventory.getId());
+            InventoryResponseDTO response = inventoryMapper.toResponseDTO(inventory);
+            response.setProductName(product.getName());
+            return response;
+        });
+    }
 
-        InventoryEntity inventory = inventoryRepository.findByProductId(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for product ID: " + productId));
-        InventoryResponseDTO response = inventoryMapper.toResponseDTO(inventory);
-        productRepository.findById(inventory.getProductId())
-                .ifPresent(product -> response.setProductName(product.getName()));
-        return response;
+    // Startup warm-up: the entries getInventoryByProductId would cache, from two bulk queries
+    public int warmCache(Collection<Long> productIds) {
+        Map<Long, String> productNames = new HashMap<>();
+        productRepository.findAllById(productIds)
+                .forEach(product -> productNames.put(product.getId(), product.getName()));
+
+        List<InventoryEntity> inventories = inventoryRepository.findByProductIds(productIds);
+        for (InventoryEntity inventory : inventories) {
+            InventoryResponseDTO response = inventoryMapper.toResponseDTO(inventory);
+            response.setProductName(productNames.get(inventory.getProductId()));
+            cacheManager.put(CacheRegions.INVENTORY_BY_PRODUCT, inventory.getProductId(), response, new CacheTags()
+                    .add(CacheRegions.PRODUCT, inventory.getProductId())
+                    .add(CacheRegions.INVENTORY, inventory.getId()));
+        }
+        return inventories.size();
     }
 
     public InventoryResponseDTO updateInventory(Long id, UpdateInventoryDTO updateInventoryDTO) {
@@ -104,10 +155,9 @@ public class InventoryService implements IInventoryService {
     private InventoryResponseDTO getInventoryResponseDTO(Long id, InventoryEntity existingInventory) {
         InventoryEntity updatedInventory = inventoryRepository.save(existingInventory);
 
-        cacheManager.invalidate("inventory:" + id);
-        cacheManager.invalidate("inventory:product:" + existingInventory.getProductId());
-        cacheManager.invalidate("inventory:quantity:" + existingInventory.getProductId());
-        cacheManager.invalidate("product:" + existingInventory.getProductId());
+        // Cached product responses carry the stock and are tagged with it
+        cacheManager.invalidate(CacheRegions.INVENTORY, id);
+        cacheManager.invalidate(CacheRegions.INVENTORY_BY_PRODUCT, existingInventory.getProductId());
 
         InventoryResponseDTO response = inventoryMapper.toResponseDTO(updatedInventory);
         productRepository.findById(updatedInventory.getProductId())
@@ -136,10 +186,8 @@ public class InventoryService implements IInventoryService {
 
         try {
             inventoryRepository.delete(inventory);
-            cacheManager.invalidate("inventory:" + id);
-            cacheManager.invalidate("inventory:product:" + productId);
-            cacheManager.invalidate("inventory:quantity:" + productId);
-            cacheManager.invalidate("product:" + productId);
+            cacheManager.invalidate(CacheRegions.INVENTORY, id);
+            cacheManager.invalidate(CacheRegions.INVENTORY_BY_PRODUCT, productId);
         } catch (Exception ex) {
             if (ex.getMessage() != null && ex.getMessage().contains("foreign key constraint")) {
                 throw new ConstraintViolationException(
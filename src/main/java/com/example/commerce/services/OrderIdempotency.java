@@ -0,0 +1,114 @@
+package com.example.commerce.services;
+
+import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
+import com.example.commerce.cache.CacheTags;
+import com.example.commerce.dtos.requests.AddOrderDTO;
+import com.example.commerce.dtos.responses.OrderResponseDTO;
+import com.example.commerce.errorhandlers.DuplicateOrderException;
+import com.example.commerce.interfaces.IOrderIdempotencyRepository;
+import com.example.commerce.interfaces.IOrderIdempotencyRepository.IdempotencyKey;
+import com.example.commerce.interfaces.IOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Creates an order at most once per user and idempotency key. A retry is answered with the order
+ * the key created, looked up in the cache, then in order_idempotency_keys; concurrent calls with
+ * the same key on this instance wait for the first one. Across instances the key row, inserted in
+ * the order's own transaction, decides: the loser rolls back and answers with the winner's order.
+ */
+@Component
+@Slf4j
+public class OrderIdempotency {
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IOrderIdempotencyRepository idempotencyRepository;
+    private final IOrderService orderService;
+    private final CacheManager cacheManager;
+    private final ConcurrentHashMap<IdempotencyKey, CompletableFuture<OrderResponseDTO>> inFlight = new ConcurrentHashMap<>();
+
+    public OrderIdempotency(IOrderIdempotencyRepository idempotencyRepository,
+                            IOrderService orderService,
+                            CacheManager cacheManager) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.orderService = orderService;
+        this.cacheManager = cacheManager;
+    }
+
+    // At startup and once per retention window; expired keys are ignored until they are purged
+    @Scheduled(fixedDelayString = "${orders.idempotency.retention-hours:24}", timeUnit = TimeUnit.HOURS)
+    public void purgeExpiredKeys() {
+        int purged = idempotencyRepository.deleteExpired();
+        log.info("Purged {} expired order idempotency keys", purged);
+    }
+
+    public OrderResponseDTO createOnce(AddOrderDTO addOrderDTO, Supplier<OrderResponseDTO> create) {
+        if (addOrderDTO.getIdempotencyKey() == null) {
+            return create.get();
+        }
+        if (addOrderDTO.getIdempotencyKey().isBlank() || addOrderDTO.getIdempotencyKey().length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        IdempotencyKey key = new IdempotencyKey(addOrderDTO.getUserId(), addOrderDTO.getIdempotencyKey());
+
+        Long cachedOrderId = cacheManager.getIfPresent(CacheRegions.ORDER_IDEMPOTENCY_KEY, cacheKey(key));
+        if (cachedOrderId != null) {
+            return orderService.getOrderById(cachedOrderId);
+        }
+
+        CompletableFuture<OrderResponseDTO> call = new CompletableFuture<>();
+        CompletableFuture<OrderResponseDTO> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            return join(running);
+        }
+        try {
+            OrderResponseDTO order = createOrReplay(key, create);
+            call.complete(order);
+            return order;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private OrderResponseDTO createOrReplay(IdempotencyKey key, Supplier<OrderResponseDTO> create) {
+        Optional<Long> existing = idempotencyRepository.findOrderId(key);
+        OrderResponseDTO order;
+        try {
+            order = existing.isPresent() ? orderService.getOrderById(existing.get()) : create.get();
+        } catch (DuplicateOrderException e) {
+            // Another instance created it between the lookup and our insert
+            order = orderService.getOrderById(e.getOrderId());
+        }
+        cacheManager.put(CacheRegions.ORDER_IDEMPOTENCY_KEY, cacheKey(key), order.getId(),
+                new CacheTags().add(CacheRegions.ORDER, order.getId()));
+        return order;
+    }
+
+    private static String cacheKey(IdempotencyKey key) {
+        return key.userId() + ":" + key.key();
+    }
+
+    private static OrderResponseDTO join(CompletableFuture<OrderResponseDTO> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
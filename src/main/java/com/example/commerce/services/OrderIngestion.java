@@ -0,0 +1,159 @@
+package com.example.commerce.services;
+
+import com.example.commerce.dtos.requests.AddOrderDTO;
+import com.example.commerce.dtos.responses.OrderResponseDTO;
+import com.example.commerce.interfaces.IOrderService;
+import com.example.commerce.interfaces.IOrderService.OrderOutcome;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point for order creation. With {@code orders.group-commit.enabled} the calling thread
+ * queues its order and waits; writer threads collect what arrives within max-wait-ms (up to
+ * max-batch orders) and create them in one transaction through {@link IOrderService#createOrders}.
+ * Each caller gets its own order or exception back. Otherwise orders are created one by one.
+ * Either way an order is created at most once per idempotency key, see {@link OrderIdempotency}.
+ */
+@Component
+@Slf4j
+public class OrderIngestion {
+
+    private final IOrderService orderService;
+    private final OrderIdempotency orderIdempotency;
+    private final boolean enabled;
+    private final long maxWaitNanos;
+    private final int maxBatch;
+    private final int writers;
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    public OrderIngestion(IOrderService orderService,
+                          OrderIdempotency orderIdempotency,
+                          @Value("${orders.group-commit.enabled:false}") boolean enabled,
+                          @Value("${orders.group-commit.max-wait-ms:5}") long maxWaitMs,
+                          @Value("${orders.group-commit.max-batch:50}") int maxBatch,
+                          @Value("${orders.group-commit.writers:2}") int writers) {
+        this.orderService = orderService;
+        this.orderIdempotency = orderIdempotency;
+        this.enabled = enabled;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxBatch = maxBatch;
+        this.writers = writers;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            writerThreads.add(Thread.ofPlatform().name("order-group-commit-" + i).daemon().start(this::run));
+        }
+    }
+
+    // The writers finish the orders already queued before they exit
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writerThreads) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    // A retry carrying the idempotency key of a created order gets that order back
+    public OrderResponseDTO createOrder(AddOrderDTO addOrderDTO) {
+        return orderIdempotency.createOnce(addOrderDTO, () -> submit(addOrderDTO));
+    }
+
+    private OrderResponseDTO submit(AddOrderDTO addOrderDTO) {
+        if (!running) {
+            return orderService.createOrder(addOrderDTO);
+        }
+        PendingOrder pending = new PendingOrder(addOrderDTO, new CompletableFuture<>());
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            // Stopped meanwhile: the writers may already be gone
+            return orderService.createOrder(addOrderDTO);
+        }
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    PendingOrder next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(this::writeAlone);
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingOrder> batch) {
+        List<OrderOutcome> outcomes;
+        try {
+            outcomes = orderService.createOrders(batch.stream().map(PendingOrder::order).toList());
+        } catch (RuntimeException e) {
+            // A failed write rolls back the whole batch; each order is then tried on its own
+            log.warn("Group commit of {} orders failed, creating them one by one", batch.size(), e);
+            batch.forEach(this::writeAlone);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            OrderOutcome outcome = outcomes.get(i);
+            if (outcome.error() != null) {
+                batch.get(i).result().completeExceptionally(outcome.error());
+            } else {
+                batch.get(i).result().complete(outcome.order());
+            }
+        }
+    }
+
+    private void writeAlone(PendingOrder pending) {
+        try {
+            pending.result().complete(orderService.createOrder(pending.order()));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private record PendingOrder(AddOrderDTO order, CompletableFuture<OrderResponseDTO> result) {
+    }
+}
@@ -1,27 +1,43 @@
 package com.example.commerce.services;
 
 import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
+import com.example.commerce.cache.CacheTags;
 import com.example.commerce.dtos.requests.AddOrderDTO;
 import com.example.commerce.dtos.requests.OrderItemDTO;
 import com.example.commerce.dtos.requests.UpdateOrderDTO;
 import com.example.commerce.dtos.responses.OrderItemResponseDTO;
 import com.example.commerce.dtos.responses.OrderResponseDTO;
-import com.example.commerce.entities.InventoryEntity;
 import com.example.commerce.entities.OrderEntity;
 import com.example.commerce.entities.OrderItemsEntity;
 import com.example.commerce.entities.ProductEntity;
 import com.example.commerce.enums.OrderStatus;
 import com.example.commerce.errorhandlers.ConstraintViolationException;
+import com.example.commerce.errorhandlers.DuplicateOrderException;
 import com.example.commerce.errorhandlers.ResourceNotFoundException;
 import com.example.commerce.interfaces.*;
+import com.example.commerce.interfaces.IOrderIdempotencyRepository.IdempotencyKey;
 import com.example.commerce.mappers.OrderMapper;
+import com.example.commerce.utils.pagination.CursorSlice;
+import com.example.commerce.utils.pagination.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,6 +49,8 @@ public class OrderService implements IOrderService {
     private final IInventoryRepository inventoryRepository;
     private final OrderMapper orderMapper;
     private final CacheManager cacheManager;
+    private final InventoryReservations inventoryReservations;
+    private final IOrderIdempotencyRepository idempotencyRepository;
 
     public OrderService(IOrderRepository orderRepository,
                         IOrderItemsRepository orderItemsRepository,
@@ -40,7 +58,9 @@ public class OrderService implements IOrderService {
                         IUserRepository userRepository,
                         IInventoryRepository inventoryRepository,
                         OrderMapper orderMapper,
-                        CacheManager cacheManager) {
+                        CacheManager cacheManager,
+                        InventoryReservations inventoryReservations,
+                        IOrderIdempotencyRepository idempotencyRepository) {
         this.orderRepository = orderRepository;
         this.orderItemsRepository = orderItemsRepository;
         this.productRepository = productRepository;
@@ -48,6 +68,8 @@ public class OrderService implements IOrderService {
         this.inventoryRepository = inventoryRepository;
         this.orderMapper = orderMapper;
         this.cacheManager = cacheManager;
+        this.inventoryReservations = inventoryReservations;
+        this.idempotencyRepository = idempotencyRepository;
     }
 
     @Transactional
@@ -56,73 +78,281 @@ public class OrderService implements IOrderService {
         userRepository.findById(addOrderDTO.getUserId())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + addOrderDTO.getUserId()));
 
-        // Calculate total amount, validate products and check inventory
-        double totalAmount = 0.0;
-        List<OrderItemsEntity> orderItems = new ArrayList<>();
-        List<InventoryEntity> inventoriesToUpdate = new ArrayList<>();
+        // Every product of the cart and its stock in one query, however many lines it has
+        Set<Long> productIds = new LinkedHashSet<>();
+        addOrderDTO.getItems().forEach(item -> productIds.add(item.getProductId()));
+        Map<Long, ProductEntity> products = new HashMap<>();
+        productRepository.findAllWithInventoryById(productIds).forEach(product -> products.put(product.getId(), product));
+        PreparedOrder prepared = prepare(addOrderDTO, products);
 
-        for (OrderItemDTO itemDTO : addOrderDTO.getItems()) {
-            ProductEntity product = productRepository.findById(itemDTO.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + itemDTO.getProductId()));
+        // A retry that raced the original past the idempotency lookup stops here
+        if (prepared.idempotencyKey != null && idempotencyRepository.claim(List.of(prepared.idempotencyKey)).isEmpty()) {
+            throw duplicate(prepared.idempotencyKey);
+        }
 
-            if (!product.isAvailable()) {
-                throw new IllegalArgumentException("Product '" + product.getName() + "' is not available");
+        // Flash-sale products are reserved in memory, the rest is taken from inventory for all lines
+        // at once; whatever was already taken rolls back with the exception
+        reserve(prepared);
+        Set<Long> outOfStock = inventoryRepository.decrementStock(prepared.stockQuantities);
+        if (!outOfStock.isEmpty()) {
+            throw prepared.outOfStock(outOfStock);
+        }
+        invalidateStock(prepared.stockQuantities.keySet());
+
+        // Create and save order
+        OrderEntity savedOrder = orderRepository.save(prepared.order);
+
+        // Save order items
+        for (OrderItemsEntity item : prepared.items) {
+            item.setOrderId(savedOrder.getId());
+        }
+        List<OrderItemsEntity> savedItems = orderItemsRepository.saveAll(prepared.items);
+        if (prepared.idempotencyKey != null) {
+            idempotencyRepository.assignOrders(Map.of(prepared.idempotencyKey, savedOrder.getId()));
+        }
+
+        // Build response
+        return buildOrderResponse(savedOrder, savedItems);
+    }
+
+    // Group commit: the orders are validated together and the accepted ones written with one
+    // statement per table; an order that is rejected doesn't affect the others
+    @Transactional
+    public List<OrderOutcome> createOrders(List<AddOrderDTO> addOrderDTOs) {
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (AddOrderDTO addOrderDTO : addOrderDTOs) {
+            userIds.add(addOrderDTO.getUserId());
+            addOrderDTO.getItems().forEach(item -> productIds.add(item.getProductId()));
+        }
+        Set<Long> knownUserIds = new HashSet<>();
+        userRepository.findAllById(userIds).forEach(user -> knownUserIds.add(user.getId()));
+        Map<Long, ProductEntity> products = new HashMap<>();
+        productRepository.findAllWithInventoryById(productIds).forEach(product -> products.put(product.getId(), product));
+
+        OrderOutcome[] outcomes = new OrderOutcome[addOrderDTOs.size()];
+        Map<Integer, PreparedOrder> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < addOrderDTOs.size(); i++) {
+            AddOrderDTO addOrderDTO = addOrderDTOs.get(i);
+            try {
+                if (!knownUserIds.contains(addOrderDTO.getUserId())) {
+                    throw new ResourceNotFoundException("User not found with ID: " + addOrderDTO.getUserId());
+                }
+                PreparedOrder prepared = prepare(addOrderDTO, products);
+                reserve(prepared);
+                accepted.put(i, prepared);
+            } catch (ResourceNotFoundException | IllegalArgumentException e) {
+                outcomes[i] = OrderOutcome.failed(e);
             }
+        }
+        claimIdempotencyKeys(accepted, outcomes);
+        Set<PreparedOrder> awaitingStock = new HashSet<>(accepted.values());
+        takeStock(accepted, outcomes);
+        // Keys of orders turned down for stock are free again for their retry
+        awaitingStock.removeAll(accepted.values());
+        idempotencyRepository.release(awaitingStock.stream()
+                .map(prepared -> prepared.idempotencyKey)
+                .filter(Objects::nonNull)
+                .toList());
+        if (accepted.isEmpty()) {
+            return Arrays.asList(outcomes);
+        }
 
-            // Check inventory
-            InventoryEntity inventory = inventoryRepository.findByProductId(product.getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Product '" + product.getName() + "' is out of stock"));
+        List<OrderEntity> orders = new ArrayList<>();
+        List<OrderItemsEntity> items = new ArrayList<>();
+        accepted.values().forEach(prepared -> orders.add(prepared.order));
+        orderRepository.saveAll(orders);
+        for (PreparedOrder prepared : accepted.values()) {
+            prepared.items.forEach(item -> item.setOrderId(prepared.order.getId()));
+            items.addAll(prepared.items);
+        }
+        orderItemsRepository.saveAll(items);
+        Map<IdempotencyKey, Long> orderIdsByKey = new HashMap<>();
+        accepted.values().stream()
+                .filter(prepared -> prepared.idempotencyKey != null)
+                .forEach(prepared -> orderIdsByKey.put(prepared.idempotencyKey, prepared.order.getId()));
+        idempotencyRepository.assignOrders(orderIdsByKey);
+
+        Map<Long, List<OrderItemsEntity>> itemsByOrderId = items.stream()
+                .collect(Collectors.groupingBy(OrderItemsEntity::getOrderId));
+        Iterator<OrderResponseDTO> responses = buildOrderResponses(orders, itemsByOrderId).iterator();
+        accepted.keySet().forEach(i -> outcomes[i] = OrderOutcome.created(responses.next()));
+        return Arrays.asList(outcomes);
+    }
+
+    // One insert for the batch's keys; an order whose key is already taken is answered with the
+    // order that took it
+    private void claimIdempotencyKeys(Map<Integer, PreparedOrder> accepted, OrderOutcome[] outcomes) {
+        List<IdempotencyKey> keys = accepted.values().stream()
+                .map(prepared -> prepared.idempotencyKey)
+                .filter(Objects::nonNull)
+                .toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        Set<IdempotencyKey> claimed = idempotencyRepository.claim(keys);
+        Iterator<Map.Entry<Integer, PreparedOrder>> it = accepted.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, PreparedOrder> entry = it.next();
+            PreparedOrder prepared = entry.getValue();
+            if (prepared.idempotencyKey != null && !claimed.contains(prepared.idempotencyKey)) {
+                if (prepared.reservation != null) {
+                    prepared.reservation.cancel();
+                }
+                outcomes[entry.getKey()] = OrderOutcome.failed(duplicate(prepared.idempotencyKey));
+                it.remove();
+            }
+        }
+    }
 
-            if (inventory.getQuantity() < itemDTO.getQuantity()) {
-                throw new IllegalArgumentException("Product '" + product.getName() + "' is out of stock");
+    // The row that beat ours is committed, so its order exists
+    private DuplicateOrderException duplicate(IdempotencyKey key) {
+        return new DuplicateOrderException(idempotencyRepository.findOrderId(key)
+                .orElseThrow(() -> new IllegalStateException("No order for idempotency key " + key.key())));
+    }
+
+    // The whole batch's stock is taken with one decrement. Only if a product runs short is it
+    // redone order by order, each behind a savepoint, to find the orders that can't be served
+    private void takeStock(Map<Integer, PreparedOrder> accepted, OrderOutcome[] outcomes) {
+        Map<Long, Integer> quantitiesByProductId = new LinkedHashMap<>();
+        accepted.values().forEach(prepared -> prepared.stockQuantities
+                .forEach((productId, quantity) -> quantitiesByProductId.merge(productId, quantity, Integer::sum)));
+        if (quantitiesByProductId.isEmpty()) {
+            return;
+        }
+
+        TransactionStatus status = TransactionAspectSupport.currentTransactionStatus();
+        Object batchSavepoint = status.createSavepoint();
+        if (inventoryRepository.decrementStock(quantitiesByProductId).isEmpty()) {
+            status.releaseSavepoint(batchSavepoint);
+            invalidateStock(quantitiesByProductId.keySet());
+            return;
+        }
+        status.rollbackToSavepoint(batchSavepoint);
+        status.releaseSavepoint(batchSavepoint);
+
+        Iterator<Map.Entry<Integer, PreparedOrder>> it = accepted.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, PreparedOrder> entry = it.next();
+            PreparedOrder prepared = entry.getValue();
+            if (prepared.stockQuantities.isEmpty()) {
+                continue;
             }
+            Object savepoint = status.createSavepoint();
+            Set<Long> outOfStock = inventoryRepository.decrementStock(prepared.stockQuantities);
+            if (!outOfStock.isEmpty()) {
+                status.rollbackToSavepoint(savepoint);
+                if (prepared.reservation != null) {
+                    prepared.reservation.cancel();
+                }
+                outcomes[entry.getKey()] = OrderOutcome.failed(prepared.outOfStock(outOfStock));
+                it.remove();
+            }
+            status.releaseSavepoint(savepoint);
+        }
+        invalidateStock(quantitiesByProductId.keySet());
+    }
 
-            // Reduce inventory quantity
-            inventory.setQuantity(inventory.getQuantity() - itemDTO.getQuantity());
-            inventoriesToUpdate.add(inventory);
+    // Lines for the same product become one order item
+    private PreparedOrder prepare(AddOrderDTO addOrderDTO, Map<Long, ProductEntity> products) {
+        PreparedOrder prepared = new PreparedOrder();
+        Map<Long, OrderItemsEntity> itemsByProductId = new LinkedHashMap<>();
+        double totalAmount = 0.0;
+        for (OrderItemDTO itemDTO : addOrderDTO.getItems()) {
+            ProductEntity product = products.get(itemDTO.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with ID: " + itemDTO.getProductId());
+            }
+            if (!product.isAvailable()) {
+                throw new IllegalArgumentException("Product '" + product.getName() + "' is not available");
+            }
 
-            // Invalidate product and inventory caches
-            cacheManager.invalidate("product:" + product.getId());
-            cacheManager.invalidate("inventory:product:" + product.getId());
-            cacheManager.invalidate("inventory:quantity:" + product.getId());
+            Map<Long, Integer> quantities = inventoryReservations.handles(itemDTO.getProductId())
+                    ? prepared.reservedQuantities
+                    : prepared.stockQuantities;
+            quantities.merge(itemDTO.getProductId(), itemDTO.getQuantity(), Integer::sum);
+            prepared.productNames.put(itemDTO.getProductId(), product.getName());
 
             double itemTotal = product.getPrice() * itemDTO.getQuantity();
             totalAmount += itemTotal;
 
-            OrderItemsEntity orderItem = new OrderItemsEntity();
-            orderItem.setProductId(product.getId());
-            orderItem.setQuantity(itemDTO.getQuantity());
-            orderItem.setTotalPrice(itemTotal);
-            orderItems.add(orderItem);
+            OrderItemsEntity orderItem = itemsByProductId.get(itemDTO.getProductId());
+            if (orderItem == null) {
+                orderItem = new OrderItemsEntity();
+                orderItem.setProductId(itemDTO.getProductId());
+                orderItem.setQuantity(0);
+                orderItem.setTotalPrice(0.0);
+                itemsByProductId.put(itemDTO.getProductId(), orderItem);
+            }
+            orderItem.setQuantity(orderItem.getQuantity() + itemDTO.getQuantity());
+            orderItem.setTotalPrice(orderItem.getTotalPrice() + itemTotal);
+        }
+        prepared.items.addAll(itemsByProductId.values());
+
+        // Stock that was already short when the products were read fails before anything is written;
+        // the conditional decrement still has the last word
+        Set<Long> outOfStock = new LinkedHashSet<>();
+        prepared.stockQuantities.forEach((productId, quantity) -> {
+            Integer inStock = products.get(productId).getQuantity();
+            if (inStock != null && inStock < quantity) {
+                outOfStock.add(productId);
+            }
+        });
+        if (!outOfStock.isEmpty()) {
+            throw prepared.outOfStock(outOfStock);
         }
 
-        // Update all inventories
-        inventoryRepository.saveAll(inventoriesToUpdate);
-
-        // Create and save order
-        OrderEntity order = new OrderEntity();
-        order.setUserId(addOrderDTO.getUserId());
-        order.setTotalAmount(totalAmount);
-        order.setStatus(OrderStatus.PENDING);
-        OrderEntity savedOrder = orderRepository.save(order);
+        if (addOrderDTO.getIdempotencyKey() != null) {
+            prepared.idempotencyKey = new IdempotencyKey(addOrderDTO.getUserId(), addOrderDTO.getIdempotencyKey());
+        }
+        prepared.order.setUserId(addOrderDTO.getUserId());
+        prepared.order.setTotalAmount(totalAmount);
+        prepared.order.setStatus(OrderStatus.PENDING);
+        return prepared;
+    }
 
-        // Save order items
-        for (OrderItemsEntity item : orderItems) {
-            item.setOrderId(savedOrder.getId());
+    // What the in-memory slices can't cover is taken from inventory with the rest of the order
+    private void reserve(PreparedOrder prepared) {
+        if (prepared.reservedQuantities.isEmpty()) {
+            return;
         }
-        List<OrderItemsEntity> savedItems = orderItemsRepository.saveAll(orderItems);
+        prepared.reservation = inventoryReservations.reserve(prepared.reservedQuantities);
+        prepared.reservation.unreserved().forEach(productId ->
+                prepared.stockQuantities.put(productId, prepared.reservedQuantities.get(productId)));
+    }
 
-        // Build response
-        return buildOrderResponse(savedOrder, savedItems);
+    // Flash-sale stock isn't in the inventory row while it is reserved in memory
+    private void invalidateStock(Set<Long> productIds) {
+        productIds.forEach(productId -> cacheManager.invalidate(CacheRegions.INVENTORY_BY_PRODUCT, productId));
     }
 
     public Page<OrderResponseDTO> getAllOrders(Pageable pageable) {
-        return orderRepository.findAll(pageable).map(order ->
-                cacheManager.get("order:" + order.getId(), () -> {
-                    List<OrderItemsEntity> items = orderItemsRepository.findByOrderId(order.getId());
-                    return buildOrderResponse(order, items);
-                })
-        );
+        return toResponsePage(orderRepository.findAll(pageable));
+    }
+
+    public CursorSlice<OrderResponseDTO> getAllOrders(String cursor, int size) {
+        KeysetCursor after = CursorSlice.parse(cursor);
+        List<OrderEntity> rows = after == null
+                ? orderRepository.findAllAfter(null, null, CursorSlice.fetchSize(size))
+                : orderRepository.findAllAfter(after.sortKeyAsDateTime(), after.id(), CursorSlice.fetchSize(size));
+        return toResponseSlice(rows, size);
+    }
+
+    public CursorSlice<OrderResponseDTO> getOrdersByUserId(Long userId, String cursor, int size) {
+        userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+
+        KeysetCursor after = CursorSlice.parse(cursor);
+        List<OrderEntity> rows = after == null
+                ? orderRepository.findByUserIdAfter(userId, null, null, CursorSlice.fetchSize(size))
+                : orderRepository.findByUserIdAfter(userId, after.sortKeyAsDateTime(), after.id(), CursorSlice.fetchSize(size));
+        return toResponseSlice(rows, size);
+    }
+
+    private CursorSlice<OrderResponseDTO> toResponseSlice(List<OrderEntity> rows, int size) {
+        CursorSlice<OrderEntity> slice = CursorSlice.of(rows, size,
+                order -> new KeysetCursor(order.getCreatedAt().toString(), order.getId()));
+        return slice.withContent(toResponses(slice.content()));
     }
 
     public Page<OrderResponseDTO> getOrdersByUserId(Long userId, Pageable pageable) {
@@ -130,12 +360,7 @@ public class OrderService implements IOrderService {
         userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
 
-        return orderRepository.findByUserId(userId, pageable).map(order ->
-                cacheManager.get("order:" + order.getId(), () -> {
-                    List<OrderItemsEntity> items = orderItemsRepository.findByOrderId(order.getId());
-                    return buildOrderResponse(order, items);
-                })
-        );
+        return toResponsePage(orderRepository.findByUserId(userId, pageable));
     }
 
     public OrderResponseDTO getOrderById(Long id) {
@@ -156,7 +381,7 @@ public class OrderService implements IOrderService {
 
         OrderEntity updatedOrder = orderRepository.save(order);
 
-        cacheManager.invalidate("order:" + id);
+        cacheManager.invalidate(CacheRegions.ORDER, id);
 
         List<OrderItemsEntity> items = orderItemsRepository.findByOrderId(updatedOrder.getId());
         return buildOrderResponse(updatedOrder, items);
@@ -172,7 +397,7 @@ public class OrderService implements IOrderService {
             orderItemsRepository.deleteAll(items);
             orderRepository.delete(order);
 
-            cacheManager.invalidate("order:" + id);
+            cacheManager.invalidate(CacheRegions.ORDER, id);
         } catch (Exception ex) {
             if (ex.getMessage() != null && ex.getMessage().contains("foreign key constraint")) {
                 throw new ConstraintViolationException(
@@ -182,22 +407,115 @@ public class OrderService implements IOrderService {
         }
     }
 
+    private Page<OrderResponseDTO> toResponsePage(Page<OrderEntity> orderPage) {
+        // map() keeps the page type, so pages without a counted total stay that way
+        List<OrderResponseDTO> responses = toResponses(orderPage.getContent());
+        Iterator<OrderResponseDTO> it = responses.iterator();
+        return orderPage.map(order -> it.next());
+    }
+
+    private List<OrderResponseDTO> toResponses(List<OrderEntity> orders) {
+        List<OrderResponseDTO> responses = new ArrayList<>(orders.size());
+        List<OrderEntity> misses = new ArrayList<>();
+        List<Integer> missIndexes = new ArrayList<>();
+
+        for (int i = 0; i < orders.size(); i++) {
+            OrderResponseDTO cached = cacheManager.getIfPresent(CacheRegions.ORDER, orders.get(i).getId());
+            responses.add(cached);
+            if (cached == null) {
+                misses.add(orders.get(i));
+                missIndexes.add(i);
+            }
+        }
+
+        // Assemble every uncached order on the page in one batch
+        List<OrderResponseDTO> built = buildOrderResponses(misses, loadItemsByOrderId(misses));
+        for (int i = 0; i < built.size(); i++) {
+            responses.set(missIndexes.get(i), built.get(i));
+            cacheManager.put(CacheRegions.ORDER, misses.get(i).getId(), built.get(i), tagsOf(built.get(i)));
+        }
+        return responses;
+    }
+
+    // An order response shows the user's name and every product's name
+    private CacheTags tagsOf(OrderResponseDTO response) {
+        CacheTags tags = new CacheTags().add(CacheRegions.USER, response.getUserId());
+        for (OrderItemResponseDTO item : response.getItems()) {
+            tags.add(CacheRegions.PRODUCT, item.getProductId());
+        }
+        return tags;
+    }
+
+    private Map<Long, List<OrderItemsEntity>> loadItemsByOrderId(List<OrderEntity> orders) {
+        if (orders.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> orderIds = orders.stream().map(OrderEntity::getId).toList();
+        return orderItemsRepository.findByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItemsEntity::getOrderId));
+    }
+
     private OrderResponseDTO buildOrderResponse(OrderEntity order, List<OrderItemsEntity> items) {
-        OrderResponseDTO response = orderMapper.toResponseDTO(order);
-
-        // Populate userName
-        userRepository.findById(order.getUserId())
-                .ifPresent(user -> response.setUserName(user.getFirstName() + " " + user.getLastName()));
-
-        List<OrderItemResponseDTO> itemResponses = items.stream()
-                .map(item -> {
-                    OrderItemResponseDTO itemResponse = orderMapper.toOrderItemResponseDTO(item);
-                    productRepository.findById(item.getProductId())
-                            .ifPresent(product -> itemResponse.setProductName(product.getName()));
-                    return itemResponse;
-                })
-                .collect(Collectors.toList());
-        response.setItems(itemResponses);
-        return response;
+        Map<Long, List<OrderItemsEntity>> itemsByOrderId = new HashMap<>();
+        itemsByOrderId.put(order.getId(), items);
+        return buildOrderResponses(List.of(order), itemsByOrderId).get(0);
+    }
+
+    // Resolves user and product names for all given orders with one query each
+    private List<OrderResponseDTO> buildOrderResponses(List<OrderEntity> orders, Map<Long, List<OrderItemsEntity>> itemsByOrderId) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (OrderEntity order : orders) {
+            userIds.add(order.getUserId());
+            for (OrderItemsEntity item : itemsByOrderId.getOrDefault(order.getId(), List.of())) {
+                productIds.add(item.getProductId());
+            }
+        }
+
+        Map<Long, String> userNames = new HashMap<>();
+        userRepository.findAllById(userIds)
+                .forEach(user -> userNames.put(user.getId(), user.getFirstName() + " " + user.getLastName()));
+
+        Map<Long, String> productNames = new HashMap<>();
+        productRepository.findAllById(productIds)
+                .forEach(product -> productNames.put(product.getId(), product.getName()));
+
+        List<OrderResponseDTO> responses = new ArrayList<>(orders.size());
+        for (OrderEntity order : orders) {
+            OrderResponseDTO response = orderMapper.toResponseDTO(order);
+            response.setUserName(userNames.get(order.getUserId()));
+
+            List<OrderItemResponseDTO> itemResponses = itemsByOrderId.getOrDefault(order.getId(), List.of()).stream()
+                    .map(item -> {
+                        OrderItemResponseDTO itemResponse = orderMapper.toOrderItemResponseDTO(item);
+                        itemResponse.setProductName(productNames.get(item.getProductId()));
+                        return itemResponse;
+                    })
+                    .collect(Collectors.toList());
+            response.setItems(itemResponses);
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    // An order that passed validation, with its stock split between in-memory reservations and inventory
+    private static final class PreparedOrder {
+        private final OrderEntity order = new OrderEntity();
+        private final List<OrderItemsEntity> items = new ArrayList<>();
+        private final Map<Long, Integer> reservedQuantities = new LinkedHashMap<>();
+        private final Map<Long, Integer> stockQuantities = new LinkedHashMap<>();
+        private final Map<Long, String> productNames = new HashMap<>();
+        private IdempotencyKey idempotencyKey;
+        private InventoryReservations.Reservation reservation;
+
+        IllegalArgumentException outOfStock(Set<Long> productIds) {
+            return new IllegalArgumentException(productIds.stream()
+                    .map(productId -> "Product '" + productNames.get(productId) + "' is out of stock")
+                    .collect(Collectors.joining("; ")));
+        }
     }
 }
@@ -1,11 +1,13 @@
 package com.example.commerce.services;
 
 import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
+import com.example.commerce.cache.CacheTags;
+import com.example.commerce.cache.ProductCatalogSnapshot;
 import com.example.commerce.dtos.requests.AddProductDTO;
 import com.example.commerce.dtos.responses.ProductResponseDTO;
 import com.example.commerce.dtos.requests.UpdateProductDTO;
 import com.example.commerce.entities.CategoryEntity;
-import com.example.commerce.entities.InventoryEntity;
 import com.example.commerce.entities.ProductEntity;
 import com.example.commerce.errorhandlers.ConstraintViolationException;
 import com.example.commerce.errorhandlers.ResourceAlreadyExists;
@@ -15,12 +17,17 @@ import com.example.commerce.interfaces.IInventoryRepository;
 import com.example.commerce.interfaces.IProductRepository;
 import com.example.commerce.interfaces.IProductService;
 import com.example.commerce.mappers.ProductMapper;
+import com.example.commerce.utils.pagination.CursorSlice;
+import com.example.commerce.utils.pagination.KeysetCursor;
 import org.jspecify.annotations.NonNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 @Service
@@ -30,13 +37,15 @@ public class ProductService implements IProductService {
     private final ICategoryRepository categoryRepository;
     private final IInventoryRepository inventoryRepository;
     private final CacheManager cacheManager;
+    private final ProductCatalogSnapshot catalogSnapshot;
 
-    public ProductService(IProductRepository productRepository, ProductMapper productMapper, ICategoryRepository categoryRepository, IInventoryRepository inventoryRepository, CacheManager cacheManager) {
+    public ProductService(IProductRepository productRepository, ProductMapper productMapper, ICategoryRepository categoryRepository, IInventoryRepository inventoryRepository, CacheManager cacheManager, ProductCatalogSnapshot catalogSnapshot) {
         this.productRepository = productRepository;
         this.productMapper = productMapper;
         this.categoryRepository = categoryRepository;
         this.inventoryRepository = inventoryRepository;
         this.cacheManager = cacheManager;
+        this.catalogSnapshot = catalogSnapshot;
     }
 
     public ProductResponseDTO addProduct(AddProductDTO addProductDTO) {
@@ -48,6 +57,8 @@ public class ProductService implements IProductService {
         ProductEntity productEntity = productMapper.toEntity(addProductDTO);
         productEntity.setCategoryId(addProductDTO.getCategoryId());
         ProductEntity savedProduct = productRepository.save(productEntity);
+        // The new id may have been looked up, and cached as not found, before it existed
+        cacheManager.invalidate(CacheRegions.PRODUCT, savedProduct.getId());
         ProductResponseDTO response = productMapper.toResponseDTO(savedProduct);
         response.setCategoryName(category.getName());
 
@@ -59,6 +70,10 @@ public class ProductService implements IProductService {
     }
 
     public Page<ProductResponseDTO> getAllProducts(Pageable pageable, boolean isAdmin) {
+        // Public listings come from the off-heap snapshot once it is loaded
+        if (!isAdmin && catalogSnapshot.isReady()) {
+            return catalogSnapshot.page(pageable, null);
+        }
         Page<ProductEntity> productPage = isAdmin ?
                 productRepository.findAll(pageable) :
                 productRepository.findAllWithInventory(pageable);
@@ -66,33 +81,46 @@ public class ProductService implements IProductService {
         return getProductResponseDTOS(productPage);
     }
 
+    public CursorSlice<ProductResponseDTO> getAllProducts(String cursor, int size, Long categoryId, boolean isAdmin) {
+        if (categoryId != null) {
+            categoryRepository.findById(categoryId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + categoryId));
+        }
+        KeysetCursor after = CursorSlice.parse(cursor);
+        Long afterId = after == null ? null : after.id();
+        if (!isAdmin && catalogSnapshot.isReady()) {
+            return CursorSlice.of(catalogSnapshot.after(categoryId, afterId, CursorSlice.fetchSize(size)), size,
+                    product -> new KeysetCursor(null, product.getId()));
+        }
+        List<ProductEntity> rows = isAdmin ?
+                productRepository.findAllAfter(categoryId, afterId, CursorSlice.fetchSize(size)) :
+                productRepository.findAllWithInventoryAfter(categoryId, afterId, CursorSlice.fetchSize(size));
+
+        return CursorSlice.of(rows, size, product -> new KeysetCursor(null, product.getId()))
+                .map(this::toListingResponse);
+    }
+
     @NonNull
     private Page<ProductResponseDTO> getProductResponseDTOS(Page<ProductEntity> productPage) {
-        return productPage.map(product -> {
-            ProductResponseDTO response = productMapper.toResponseDTO(product);
-
-            CategoryEntity category = cacheManager.get("category:" + product.getCategoryId(), () ->
-                    categoryRepository.findById(product.getCategoryId())
-                            .orElse(null)
-            );
-            if (category != null) {
-                response.setCategoryName(category.getName());
-            }
+        // Category name and stock arrive on the listing rows, so no per-product lookups
+        return productPage.map(this::toListingResponse);
+    }
 
-            Integer quantity = cacheManager.get("inventory:quantity:" + product.getId(), () ->
-                    inventoryRepository.findByProductId(product.getId())
-                            .map(InventoryEntity::getQuantity)
-                            .orElse(0)
-            );
-            response.setQuantity(quantity);
-            return response;
-        });
+    private ProductResponseDTO toListingResponse(ProductEntity product) {
+        ProductResponseDTO response = productMapper.toResponseDTO(product);
+        if (response.getQuantity() == null) {
+            response.setQuantity(0);
+        }
+        return response;
     }
 
     public Page<ProductResponseDTO> getProductsByCategory(Long categoryId, Pageable pageable, boolean isAdmin) {
         categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + categoryId));
 
+        if (!isAdmin && catalogSnapshot.isReady()) {
+            return catalogSnapshot.page(pageable, categoryId);
+        }
         Page<ProductEntity> productPage = isAdmin ?
                 productRepository.findByCategoryId(categoryId, pageable) :
                 productRepository.findByCategoryIdWithInventory(categoryId, pageable);
@@ -101,17 +129,38 @@ public class ProductService implements IProductService {
     }
 
     public ProductResponseDTO getProductById(Long id) {
-        ProductEntity product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + id));
-        ProductResponseDTO response = productMapper.toResponseDTO(product);
+        return cacheManager.get(CacheRegions.PRODUCT, id, tags -> {
+            ProductEntity product = productRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + id));
+            ProductResponseDTO response = productMapper.toResponseDTO(product);
+            tags.add(CacheRegions.CATEGORY, product.getCategoryId())
+                    .add(CacheRegions.INVENTORY_BY_PRODUCT, id);
 
-        categoryRepository.findById(product.getCategoryId())
-                .ifPresent(category -> response.setCategoryName(category.getName()));
+            categoryRepository.findById(product.getCategoryId())
+                    .ifPresent(category -> response.setCategoryName(category.getName()));
 
-        inventoryRepository.findByProductId(product.getId())
-                .ifPresent(inventory -> response.setQuantity(inventory.getQuantity()));
+            inventoryRepository.findByProductId(product.getId())
+                    .ifPresent(inventory -> response.setQuantity(inventory.getQuantity()));
 
-        return response;
+            return response;
+        });
+    }
+
+    // Startup warm-up: the entries getProductById would cache, from two bulk queries
+    public int warmCache(Collection<Long> productIds) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        inventoryRepository.findByProductIds(productIds)
+                .forEach(inventory -> quantities.put(inventory.getProductId(), inventory.getQuantity()));
+
+        List<ProductEntity> products = productRepository.findAllById(productIds);
+        for (ProductEntity product : products) {
+            ProductResponseDTO response = productMapper.toResponseDTO(product);
+            response.setQuantity(quantities.get(product.getId()));
+            cacheManager.put(CacheRegions.PRODUCT, product.getId(), response, new CacheTags()
+                    .add(CacheRegions.CATEGORY, product.getCategoryId())
+                    .add(CacheRegions.INVENTORY_BY_PRODUCT, product.getId()));
+        }
+        return products.size();
     }
 
     public ProductResponseDTO updateProduct(Long id, UpdateProductDTO updateProductDTO) {
@@ -133,8 +182,8 @@ public class ProductService implements IProductService {
         productMapper.updateEntity(updateProductDTO, existingProduct);
         ProductEntity updatedProduct = productRepository.save(existingProduct);
 
-        cacheManager.invalidate("product:" + id);
-        cacheManager.invalidate("inventory:quantity:" + id);
+        // Cached inventory and order responses show the product name, so they go too
+        cacheManager.invalidate(CacheRegions.PRODUCT, id);
 
         ProductResponseDTO response = productMapper.toResponseDTO(updatedProduct);
 
@@ -148,16 +197,12 @@ public class ProductService implements IProductService {
     }
 
     public List<ProductResponseDTO> getAllProductsList() {
-        return productRepository.findAllWithInventory().stream().map(product -> {
-            ProductResponseDTO response = productMapper.toResponseDTO(product);
-            Integer quantity = cacheManager.get("inventory:quantity:" + product.getId(), () ->
-                    inventoryRepository.findByProductId(product.getId())
-                            .map(InventoryEntity::getQuantity)
-                            .orElse(null)
-            );
-            response.setQuantity(quantity);
-            return response;
-        }).toList();
+        if (catalogSnapshot.isReady()) {
+            return catalogSnapshot.all();
+        }
+        return productRepository.findAllWithInventory().stream()
+                .map(productMapper::toResponseDTO)
+                .toList();
     }
 
     public void deleteProduct(Long id) {
@@ -166,8 +211,7 @@ public class ProductService implements IProductService {
 
         try {
             productRepository.delete(product);
-            cacheManager.invalidate("product:" + id);
-            cacheManager.invalidate("inventory:quantity:" + id);
+            cacheManager.invalidate(CacheRegions.PRODUCT, id);
         } catch (Exception ex) {
             if (ex.getMessage() != null && ex.getMessage().contains("foreign key constraint")) {
                 throw new ConstraintViolationException(
@@ -1,6 +1,7 @@
 package com.example.commerce.services;
 
 import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
 import com.example.commerce.dtos.requests.LoginDTO;
 import com.example.commerce.dtos.requests.UpdateUserDTO;
 import com.example.commerce.dtos.requests.UserRegistrationDTO;
@@ -15,12 +16,15 @@ import com.example.commerce.interfaces.IOrderRepository;
 import com.example.commerce.interfaces.IUserRepository;
 import com.example.commerce.interfaces.IUserService;
 import com.example.commerce.mappers.UserMapper;
+import com.example.commerce.utils.pagination.CursorSlice;
+import com.example.commerce.utils.pagination.KeysetCursor;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.mindrot.jbcrypt.BCrypt;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -55,6 +59,8 @@ public class UserService implements IUserService {
             userEntity.setPassword(hashedPassword);
 
             UserEntity savedUser = userRepository.save(userEntity);
+            // Drops a not-found entry cached for this id, e.g. by a token probe
+            cacheManager.invalidate(CacheRegions.USER, savedUser.getId());
             LoginResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
             String randomString = UUID.randomUUID().toString().replace("-", "");
             String token = randomString + "-" + savedUser.getId();
@@ -84,11 +90,13 @@ public class UserService implements IUserService {
 
 
     public UserSummaryDTO findUserById(Long id) {
-        UserEntity user = userRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
-        UserSummaryDTO summary = userMapper.toSummaryDTO(user);
-        summary.setName(user.getFirstName() + " " + user.getLastName());
-        return summary;
+        return cacheManager.get(CacheRegions.USER, id, () -> {
+            UserEntity user = userRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
+            UserSummaryDTO summary = userMapper.toSummaryDTO(user);
+            summary.setName(user.getFirstName() + " " + user.getLastName());
+            return summary;
+        });
     }
 
     public UserSummaryDTO updateUser(Long id, @Valid UpdateUserDTO userDTO) {
@@ -102,15 +110,11 @@ public class UserService implements IUserService {
             userDTO.setLastName(nameParts.length > 1 ? nameParts[1] : "");
         }
 
-        String oldEmail = userEntity.getEmail();
         userMapper.updateEntity(userDTO, userEntity);
         UserEntity updatedUser = userRepository.save(userEntity);
 
-        cacheManager.invalidate("user:" + id);
-        cacheManager.invalidate("user:email:" + oldEmail);
-        if (userDTO.getEmail() != null && !oldEmail.equals(userDTO.getEmail())) {
-            cacheManager.invalidate("user:email:" + userDTO.getEmail());
-        }
+        // Cached orders show the user's name, so they go too
+        cacheManager.invalidate(CacheRegions.USER, id);
 
         UserSummaryDTO summary = userMapper.toSummaryDTO(updatedUser);
         summary.setName(updatedUser.getFirstName() + " " + updatedUser.getLastName());
@@ -119,7 +123,19 @@ public class UserService implements IUserService {
 
     public Page<UserSummaryDTO> getAllUsers(Pageable pageable) {
         return userRepository.findAll(pageable).map(user ->
-                cacheManager.get("user:" + user.getId(), () -> {
+                cacheManager.get(CacheRegions.USER, user.getId(), () -> {
+                    UserSummaryDTO summary = userMapper.toSummaryDTO(user);
+                    summary.setName(user.getFirstName() + " " + user.getLastName());
+                    return summary;
+                })
+        );
+    }
+
+    public CursorSlice<UserSummaryDTO> getAllUsers(String cursor, int size) {
+        KeysetCursor after = CursorSlice.parse(cursor);
+        List<UserEntity> rows = userRepository.findAllAfter(after == null ? null : after.id(), CursorSlice.fetchSize(size));
+        return CursorSlice.of(rows, size, user -> new KeysetCursor(null, user.getId())).map(user ->
+                cacheManager.get(CacheRegions.USER, user.getId(), () -> {
                     UserSummaryDTO summary = userMapper.toSummaryDTO(user);
                     summary.setName(user.getFirstName() + " " + user.getLastName());
                     return summary;
@@ -127,10 +143,10 @@ public class UserService implements IUserService {
         );
     }
 
+    @Transactional
     public void deleteUser(Long id) {
         UserEntity userEntity = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
-        String email = userEntity.getEmail();
 
         // Get all orders for this user
         List<OrderEntity> orders = orderRepository.findByUserId(id);
@@ -139,12 +155,11 @@ public class UserService implements IUserService {
         for (OrderEntity order : orders) {
             orderItemsRepository.deleteAll(orderItemsRepository.findByOrderId(order.getId()));
             orderRepository.delete(order);
-            cacheManager.invalidate("order:" + order.getId());
+            cacheManager.invalidate(CacheRegions.ORDER, order.getId());
         }
 
         // Delete the user
         userRepository.delete(userEntity);
-        cacheManager.invalidate("user:" + id);
-        cacheManager.invalidate("user:email:" + email);
+        cacheManager.invalidate(CacheRegions.USER, id);
     }
 }
\ No newline at end of file
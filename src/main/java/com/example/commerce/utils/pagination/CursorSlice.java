@@ -0,0 +1,47 @@
+package com.example.commerce.utils.pagination;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+public record CursorSlice<T>(List<T> content, String nextCursor) {
+
+    /**
+     * Builds a slice from rows fetched with {@code limit = size + 1}: the extra row only
+     * signals that another page exists and is dropped from the content.
+     */
+    public static <T> CursorSlice<T> of(List<T> rows, int size, Function<T, KeysetCursor> cursorOf) {
+        if (rows.size() <= size) {
+            return new CursorSlice<>(new ArrayList<>(rows), null);
+        }
+        List<T> content = new ArrayList<>(rows.subList(0, size));
+        return new CursorSlice<>(content, cursorOf.apply(content.get(size - 1)).encode());
+    }
+
+    public static KeysetCursor parse(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : KeysetCursor.decode(cursor);
+    }
+
+    public static int fetchSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        return size + 1;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public <R> CursorSlice<R> withContent(List<R> mapped) {
+        return new CursorSlice<>(mapped, nextCursor);
+    }
+
+    public <R> CursorSlice<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = new ArrayList<>(content.size());
+        for (T item : content) {
+            mapped.add(mapper.apply(item));
+        }
+        return new CursorSlice<>(mapped, nextCursor);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.commerce.utils.pagination;
+
+import com.example.commerce.cache.BoundedCache;
+import com.example.commerce.cache.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides how the paged repository queries fill in their total, per table:
+ * {@code pagination.count.mode=CACHED} sets the default and
+ * {@code pagination.count.mode.<table>=...} overrides it.
+ */
+@Component
+public class PageCounter {
+
+    public enum CountMode {
+        // COUNT(*) on every request
+        EXACT,
+        // COUNT(*) reused for a short TTL and dropped when the table is written
+        CACHED,
+        // Row estimate from the query planner, no scan
+        ESTIMATED,
+        // No total at all; one extra row is fetched to know whether a next page exists
+        NONE
+    }
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    private final DataSource dataSource;
+    private final Environment environment;
+    private final CountMode defaultMode;
+    private final long ttlNanos;
+    // One entry per table and parameter set (user, category, ...), so bounded
+    private final BoundedCache<String, CachedCount> cachedCounts;
+    // Bumped by every invalidation, so a count that was running meanwhile isn't cached
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public PageCounter(DataSource dataSource,
+                       Environment environment,
+                       @Value("${pagination.count.mode:CACHED}") CountMode defaultMode,
+                       @Value("${pagination.count.ttl-ms:10000}") long ttlMs,
+                       @Value("${pagination.count.max-entries:10000}") int maxEntries) {
+        this.dataSource = dataSource;
+        this.environment = environment;
+        this.defaultMode = defaultMode;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.cachedCounts = new LruCache<>(maxEntries);
+    }
+
+    public CountMode modeFor(String table) {
+        return environment.getProperty("pagination.count.mode." + table, CountMode.class, defaultMode);
+    }
+
+    // Row limit the data query should use for this page
+    public int limitFor(String table, Pageable pageable) {
+        return modeFor(table) == CountMode.NONE ? pageable.getPageSize() + 1 : pageable.getPageSize();
+    }
+
+    /**
+     * Wraps rows fetched with {@link #limitFor} into a page. {@code fromWhere} is the
+     * FROM/WHERE part of the listing query and {@code params} its bind values.
+     */
+    public <T> Page<T> toPage(List<T> rows, Pageable pageable, String table, String fromWhere, Object... params) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(rows, pageable, rows.size());
+        }
+        return switch (modeFor(table)) {
+            case NONE -> {
+                boolean hasNext = rows.size() > pageable.getPageSize();
+                List<T> content = hasNext ? new ArrayList<>(rows.subList(0, pageable.getPageSize())) : rows;
+                yield new UncountedPage<>(content, pageable, hasNext);
+            }
+            case EXACT -> new PageImpl<>(rows, pageable, exactCount(fromWhere, params));
+            case CACHED -> new PageImpl<>(rows, pageable, cachedCount(table, fromWhere, params));
+            // An estimate can lag behind what the page itself proves exists
+            case ESTIMATED -> new PageImpl<>(rows, pageable,
+                    Math.max(estimatedCount(fromWhere, params), pageable.getOffset() + rows.size()));
+        };
+    }
+
+    // Inside a transaction the counts are dropped once it commits; dropped earlier, a concurrent
+    // listing could count the old rows again and cache them for the whole TTL
+    public void invalidate(String table) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(table);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(table);
+            }
+        });
+    }
+
+    private void evict(String table) {
+        generation(table).incrementAndGet();
+        String prefix = table + ":";
+        List<String> keys = new ArrayList<>();
+        cachedCounts.forEach((key, count) -> {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        });
+        keys.forEach(cachedCounts::remove);
+    }
+
+    private long cachedCount(String table, String fromWhere, Object... params) {
+        String key = table + ":" + fromWhere + Arrays.toString(params);
+        long now = System.nanoTime();
+        CachedCount cached = cachedCounts.get(key);
+        if (cached != null) {
+            if (now - cached.countedAt() < ttlNanos) {
+                return cached.total();
+            }
+            cachedCounts.remove(key);
+        }
+        long generation = generation(table).get();
+        long total = exactCount(fromWhere, params);
+        if (generation(table).get() == generation) {
+            cachedCounts.put(key, new CachedCount(total, now));
+        }
+        return total;
+    }
+
+    private AtomicLong generation(String table) {
+        return generations.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    private long exactCount(String fromWhere, Object... params) {
+        String sql = "SELECT COUNT(*) " + fromWhere;
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long estimatedCount(String fromWhere, Object... params) {
+        String sql = "EXPLAIN SELECT 1 " + fromWhere;
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Matcher matcher = PLAN_ROWS.matcher(rs.getString(1));
+                    if (matcher.find()) {
+                        return Long.parseLong(matcher.group(1));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return exactCount(fromWhere, params);
+    }
+
+    private void bind(PreparedStatement ps, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            ps.setObject(i + 1, params[i]);
+        }
+    }
+
+    private record CachedCount(long total, long countedAt) {
+    }
+}
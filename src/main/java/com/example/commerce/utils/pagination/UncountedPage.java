@@ -0,0 +1,31 @@
+package com.example.commerce.utils.pagination;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page whose total was never counted. It only knows whether a next page exists, and
+ * reports a total of just enough rows to make {@link #hasNext()} and {@link #isLast()} right.
+ */
+public class UncountedPage<T> extends PageImpl<T> {
+    private final boolean hasNextPage;
+
+    public UncountedPage(List<T> content, Pageable pageable, boolean hasNextPage) {
+        super(content, pageable, pageable.getOffset() + content.size() + (hasNextPage ? 1 : 0));
+        this.hasNextPage = hasNextPage;
+    }
+
+    @Override
+    public <U> Page<U> map(Function<? super T, ? extends U> converter) {
+        List<U> converted = new ArrayList<>(getNumberOfElements());
+        for (T item : getContent()) {
+            converted.add(converter.apply(item));
+        }
+        return new UncountedPage<>(converted, getPageable(), hasNextPage);
+    }
+}
@@ -3,8 +3,12 @@ CREATE TABLE IF NOT EXISTS inventory (
     product_id BIGINT UNIQUE NOT NULL,
     quantity INTEGER NOT NULL DEFAULT 0,
     location VARCHAR(255),
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (product_id) REFERENCES products(id)
 );
 
+-- Databases created before inventory tracked its last change
+ALTER TABLE inventory ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
+
 CREATE INDEX IF NOT EXISTS idx_inventory_product_id ON inventory(product_id);
 CREATE INDEX IF NOT EXISTS idx_inventory_quantity ON inventory(quantity);
@@ -0,0 +1,10 @@
+-- Stock taken out of inventory.quantity by an instance's in-memory reservations and not yet
+-- sold, per instance (node) and product
+CREATE TABLE IF NOT EXISTS inventory_reservations (
+    node VARCHAR(255) NOT NULL,
+    product_id BIGINT NOT NULL,
+    held INTEGER NOT NULL DEFAULT 0,
+    flushed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (node, product_id),
+    FOREIGN KEY (product_id) REFERENCES products(id)
+);
@@ -0,0 +1,12 @@
+-- Idempotency-Key of each created order, scoped to the ordering user. The row is inserted in the
+-- order's transaction, so a key is only taken once its order exists
+CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    order_id BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, idempotency_key),
+    FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_idempotency_keys_created_at ON order_idempotency_keys(created_at);
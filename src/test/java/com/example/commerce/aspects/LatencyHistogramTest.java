@@ -0,0 +1,83 @@
+package com.example.commerce.aspects;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void index_BucketsStayWithinThreePercent() {
+        for (long value = 1; value < TimeUnit.SECONDS.toNanos(60); value = value * 3 / 2 + 1) {
+            long highest = LatencyHistogram.highestEquivalent(LatencyHistogram.index(value));
+            assertTrue(highest >= value, value + " reported as " + highest);
+            assertTrue(highest - value <= value * 0.032, value + " reported as " + highest);
+        }
+    }
+
+    @Test
+    void snapshot_Percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long now = 100 * MINUTE;
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros), now);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(1, now);
+
+        assertEquals(1000, snapshot.count());
+        assertEquals(500_000, snapshot.percentileNanos(50), 500_000 * 0.03);
+        assertEquals(990_000, snapshot.percentileNanos(99), 990_000 * 0.03);
+        assertEquals(1_000_000, snapshot.percentileNanos(100));
+        assertEquals(500_500, snapshot.meanNanos(), 1);
+    }
+
+    @Test
+    void snapshot_OldMinutesLeaveTheWindow() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000, 100 * MINUTE);
+        histogram.record(2_000, 104 * MINUTE);
+        histogram.record(3_000, 110 * MINUTE + 5);
+
+        assertEquals(1, histogram.snapshot(1, 110 * MINUTE + 10).count());
+        assertEquals(2, histogram.snapshot(6, 110 * MINUTE + 10).count());
+        assertEquals(3, histogram.snapshot(15, 110 * MINUTE + 10).count());
+        // The slot of minute 100 is reused 16 minutes later
+        histogram.record(4_000, 116 * MINUTE);
+        assertEquals(3, histogram.snapshot(15, 116 * MINUTE).count());
+        assertEquals(3_000, histogram.snapshot(15, 116 * MINUTE).percentileNanos(50), 3_000 * 0.03);
+    }
+
+    @Test
+    void record_ConcurrentWritersLoseNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long now = 100 * MINUTE;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        histogram.record(i, now);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(800_000, histogram.snapshot(1, now).count());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.commerce.aspects;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LoggingAspectTest {
+
+    @Test
+    void arguments_SummarizesBulkValues() {
+        String rendered = LoggingAspect.arguments(new Object[]{List.of(1, 2, 3), Map.of("a", 1), new long[5], 42L});
+
+        assertTrue(rendered.contains("(3)"));
+        assertTrue(rendered.contains("(1)"));
+        assertTrue(rendered.contains("long[5]"));
+        assertTrue(rendered.endsWith("42]"));
+    }
+
+    @Test
+    void arguments_SkipsServletObjectsAndMasksSecrets() {
+        String rendered = LoggingAspect.arguments(new Object[]{
+                mock(HttpServletRequest.class), "LoginDTO(email=a@b.c, password=hunter2)"});
+
+        assertEquals("[LoginDTO(email=a@b.c, password=***)]", rendered);
+    }
+
+    @Test
+    void arguments_TruncatesLongValues() {
+        String rendered = LoggingAspect.arguments(new Object[]{"x".repeat(1000)});
+
+        assertTrue(rendered.length() < 300);
+        assertTrue(rendered.endsWith("...]"));
+    }
+}
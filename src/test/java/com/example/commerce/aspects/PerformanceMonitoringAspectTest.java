@@ -0,0 +1,72 @@
+package com.example.commerce.aspects;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PerformanceMonitoringAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PerformanceMonitoringAspect performanceMonitor;
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private Signature signature;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        performanceMonitor = new PerformanceMonitoringAspect(meterRegistry);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.commerce.repositories.ProductRepository");
+        when(signature.getName()).thenReturn("findById");
+    }
+
+    @Test
+    void monitorDatabaseFetch_PublishesTimerPerMethodAndOutcome() throws Throwable {
+        when(joinPoint.proceed()).thenReturn("product").thenThrow(new IllegalStateException("down"));
+
+        performanceMonitor.monitorDatabaseFetch(joinPoint);
+        assertThrows(IllegalStateException.class, () -> performanceMonitor.monitorDatabaseFetch(joinPoint));
+
+        assertEquals(1, meterRegistry.get("commerce.db.query")
+                .tags("repository", "ProductRepository", "method", "findById", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("commerce.db.query").tag("outcome", "error").timer().count());
+        assertEquals(1L, performanceMonitor.getDbFetchTimes().get("ProductRepository.findById").get("count"));
+    }
+
+    @Test
+    void clearMetrics_KeepsPublishedCountersCumulative() {
+        performanceMonitor.recordCacheHit("product");
+        performanceMonitor.recordCacheMiss("product");
+
+        performanceMonitor.clearMetrics();
+        performanceMonitor.recordCacheHit("product");
+
+        assertEquals(1L, performanceMonitor.getCacheMetrics().get("product").get("hits"));
+        assertEquals(2, meterRegistry.get("commerce.cache.requests").tags("region", "product", "result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("commerce.cache.requests").tags("region", "product", "result", "miss").counter().count());
+    }
+
+    @Test
+    void monitorCacheSize_GaugeFollowsTheCache() {
+        AtomicInteger size = new AtomicInteger(3);
+
+        performanceMonitor.monitorCacheSize("product", "values", size::get);
+        size.set(7);
+
+        assertEquals(7, meterRegistry.get("commerce.cache.size").tags("region", "product", "store", "values").gauge().value());
+    }
+}
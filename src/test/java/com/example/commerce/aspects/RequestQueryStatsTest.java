@@ -0,0 +1,50 @@
+package com.example.commerce.aspects;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestQueryStatsTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestQueryStats.end();
+    }
+
+    @Test
+    void violations_RepeatedStatementIsFlaggedAsNPlusOne() {
+        RequestQueryStats stats = RequestQueryStats.start(50, 2);
+        RequestQueryStats.recordStatement("SELECT * FROM orders LIMIT ?");
+        for (int i = 0; i < 10; i++) {
+            RequestQueryStats.recordStatement("SELECT * FROM order_items WHERE order_id = ?");
+        }
+
+        assertEquals(11, stats.statementCount());
+        assertEquals(Map.of("SELECT * FROM order_items WHERE order_id = ?", 10), stats.repeatedStatements());
+        assertEquals(List.of("10x SELECT * FROM order_items WHERE order_id = ?, budget 2"), stats.violations());
+    }
+
+    @Test
+    void declareBudget_TightensStatementCount() {
+        RequestQueryStats stats = RequestQueryStats.start(50, 10);
+        RequestQueryStats.recordStatement("SELECT COUNT(*) FROM products");
+        RequestQueryStats.recordStatement("SELECT * FROM products LIMIT ?");
+        RequestQueryStats.recordStatement("SELECT * FROM inventory WHERE product_id = ANY(?)");
+
+        stats.declareBudget(2, -1);
+
+        assertEquals(List.of("3 SQL statements, budget 2"), stats.violations());
+    }
+
+    @Test
+    void recordStatement_IgnoredOutsideRequests() {
+        RequestQueryStats.recordStatement("SELECT 1");
+        RequestQueryStats.recordRepositoryCall();
+
+        assertNull(RequestQueryStats.current());
+    }
+}
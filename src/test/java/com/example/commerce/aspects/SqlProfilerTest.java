@@ -0,0 +1,106 @@
+package com.example.commerce.aspects;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SqlProfilerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SqlProfiler sqlProfiler;
+    private ProfilingDataSource dataSource;
+
+    @Mock
+    private DataSource targetDataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        sqlProfiler = new SqlProfiler(meterRegistry, true, 0, 500);
+        dataSource = new ProfilingDataSource(targetDataSource, sqlProfiler);
+        when(targetDataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+    }
+
+    @Test
+    void normalize_CollapsesLiteralsAndInLists() {
+        assertEquals("SELECT * FROM products WHERE name = ? AND id IN (?) LIMIT ?",
+                sqlProfiler.normalize("SELECT *\n  FROM products WHERE name = 'it''s' AND id IN (1, 2, 3) LIMIT 20"));
+        assertEquals("SELECT * FROM users WHERE id IN (?)", sqlProfiler.normalize("SELECT * FROM users WHERE id IN (?,?,?)"));
+    }
+
+    @Test
+    void executeQuery_RecordedWithRowsOnceResultSetIsClosed() throws Exception {
+        when(resultSet.next()).thenReturn(true, true, true, false);
+
+        try (Connection profiled = dataSource.getConnection();
+             PreparedStatement ps = profiled.prepareStatement("SELECT * FROM products WHERE id = ?")) {
+            ps.setLong(1, 5L);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    assertTrue(sqlProfiler.getSqlMetrics().isEmpty());
+                }
+            }
+        }
+
+        Map<String, Object> metrics = sqlProfiler.getSqlMetrics().get("SELECT * FROM products WHERE id = ?");
+        assertEquals(1L, metrics.get("count"));
+        assertEquals(3L, metrics.get("rows"));
+        verify(statement).setLong(1, 5L);
+        verify(resultSet).close();
+    }
+
+    @Test
+    void executeBatch_CountsUpdatedRowsAndSlowQueries() throws Exception {
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1, 1});
+
+        try (Connection profiled = dataSource.getConnection();
+             PreparedStatement ps = profiled.prepareStatement("UPDATE inventory SET quantity = ? WHERE id = ?")) {
+            for (int i = 0; i < 3; i++) {
+                ps.setInt(1, i);
+                ps.setLong(2, i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        assertEquals(3L, sqlProfiler.getSqlMetrics().get("UPDATE inventory SET quantity = ? WHERE id = ?").get("rows"));
+        // The threshold is 0 ms, so every statement counts as slow
+        assertEquals(1, meterRegistry.get("commerce.db.slow.queries").counter().count());
+    }
+
+    @Test
+    void bindShapes_ShowTypesNotValues() {
+        assertEquals("[1: Long, 2: String(6), 3: null] x 2", SqlProfiler.bindShapes(new Object[]{null, 5L, "secret", null}, 2));
+    }
+
+    @Test
+    void getConnection_DisabledProfilerReturnsTheTargetConnection() throws Exception {
+        ProfilingDataSource disabled = new ProfilingDataSource(targetDataSource, new SqlProfiler(meterRegistry, false, 500, 500));
+
+        assertSame(connection, disabled.getConnection());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.commerce.cache;
+
+import com.example.commerce.aspects.PerformanceMonitoringAspect;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ns/op and, with the GC profiler, bytes/op of CacheManager hits. Run after
+ * {@code mvn test-compile} with the test classpath:
+ * {@code java -cp target/test-classes:target/classes:<deps> com.example.commerce.cache.CacheHitBenchmark}
+ * and look at {@code gc.alloc.rate.norm}, which should stay at 0 B/op. The contended cases read
+ * one shared cache from 8 threads, where hits must not queue on the eviction policy's lock.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheHitBenchmark {
+
+    private static final CacheRegion<String> PRODUCT = new CacheRegion<>("product", String.class);
+    private static final int KEYS = 512;
+
+    private CacheManager cacheManager;
+    private Long[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cacheManager = newCacheManager();
+        ids = ids(cacheManager);
+    }
+
+    @Benchmark
+    public String getIfPresentHit() {
+        return cacheManager.getIfPresent(PRODUCT, ids[next++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    public String getHit() {
+        return cacheManager.get(PRODUCT, ids[next++ & (KEYS - 1)], () -> "unused");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String getIfPresentHitContended(Shared shared) {
+        return shared.cacheManager.getIfPresent(PRODUCT, shared.ids[next++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String getHitContended(Shared shared) {
+        return shared.cacheManager.get(PRODUCT, shared.ids[next++ & (KEYS - 1)], () -> "unused");
+    }
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        private CacheManager cacheManager;
+        private Long[] ids;
+
+        @Setup
+        public void setUp() {
+            cacheManager = newCacheManager();
+            ids = ids(cacheManager);
+        }
+    }
+
+    private static CacheManager newCacheManager() {
+        return new CacheManager(new PerformanceMonitoringAspect(new SimpleMeterRegistry()), new MockEnvironment(),
+                CacheManager.EvictionPolicy.W_TINY_LFU, 1000, 0, 30, 1000, Runnable::run);
+    }
+
+    // Loads every key, so each benchmark call is a hit
+    private static Long[] ids(CacheManager cacheManager) {
+        Long[] ids = new Long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            ids[i] = (long) i;
+            cacheManager.get(PRODUCT, ids[i], () -> "product");
+        }
+        return ids;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CacheHitBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.commerce.cache;
+
+import com.example.commerce.aspects.PerformanceMonitoringAspect;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.example.commerce.errorhandlers.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheManagerTest {
+
+    private static final CacheRegion<String> PRODUCT = new CacheRegion<>("product", String.class);
+    private static final CacheRegion<String> CATEGORY = new CacheRegion<>("category", String.class);
+
+    private CacheManager cacheManager;
+
+    @Mock
+    private PerformanceMonitoringAspect performanceMonitor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cacheManager = new CacheManager(performanceMonitor, new MockEnvironment(),
+                CacheManager.EvictionPolicy.W_TINY_LFU, 100, 0, 30, 100, Runnable::run);
+    }
+
+    @Test
+    void get_ConcurrentMissesRunSupplierOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cacheManager.get(PRODUCT, 1L, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "laptop";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("laptop", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_WaitersSeeLoaderException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = pool.submit(() -> cacheManager.get(PRODUCT, 2L, () -> {
+                await(release);
+                throw new IllegalStateException("boom");
+            }));
+            Thread.sleep(50);
+            Future<String> second = pool.submit(() -> cacheManager.get(PRODUCT, 2L, () -> "unused"));
+            Thread.sleep(50);
+            release.countDown();
+
+            Exception firstError = assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, firstError.getCause());
+            Object secondResult;
+            try {
+                secondResult = second.get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                secondResult = e.getCause();
+            }
+            // The second caller either joined the failed load or started its own after it ended
+            assertTrue(secondResult instanceof IllegalStateException || "unused".equals(secondResult));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_InvalidateDuringLoadDoesNotCacheResult() {
+        cacheManager.get(PRODUCT, 3L, () -> {
+            cacheManager.invalidate(PRODUCT, 3L);
+            return "outdated";
+        });
+
+        assertNull(cacheManager.getIfPresent(PRODUCT, 3L));
+    }
+
+    @Test
+    void invalidate_DropsEntriesTaggedWithEntity() {
+        cacheManager.get(PRODUCT, 4L, tags -> {
+            tags.add(CATEGORY, 9L);
+            return "in category 9";
+        });
+        cacheManager.get(PRODUCT, 5L, tags -> {
+            tags.add(CATEGORY, 10L);
+            return "in category 10";
+        });
+
+        cacheManager.invalidate(CATEGORY, 9L);
+
+        assertNull(cacheManager.getIfPresent(PRODUCT, 4L));
+        assertEquals("in category 10", cacheManager.getIfPresent(PRODUCT, 5L));
+    }
+
+    @Test
+    void invalidateRegion_DropsOnlyThatRegion() {
+        cacheManager.get(PRODUCT, 6L, () -> "product");
+        cacheManager.get(CATEGORY, 6L, () -> "category");
+
+        cacheManager.invalidateRegion(PRODUCT);
+
+        assertNull(cacheManager.getIfPresent(PRODUCT, 6L));
+        assertEquals("category", cacheManager.getIfPresent(CATEGORY, 6L));
+    }
+
+    @Test
+    void get_NotFoundIsCachedUntilInvalidated() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            ResourceNotFoundException e = assertThrows(ResourceNotFoundException.class,
+                    () -> cacheManager.get(PRODUCT, 7L, () -> {
+                        loads.incrementAndGet();
+                        throw new ResourceNotFoundException("Product not found with ID: 7");
+                    }));
+            assertEquals("Product not found with ID: 7", e.getMessage());
+        }
+        assertEquals(1, loads.get());
+
+        cacheManager.invalidate(PRODUCT, 7L);
+
+        assertEquals("created", cacheManager.get(PRODUCT, 7L, () -> "created"));
+    }
+
+    @Test
+    void get_NotFoundIsDroppedWithItsTags() {
+        assertThrows(ResourceNotFoundException.class, () -> cacheManager.get(PRODUCT, 8L, tags -> {
+            tags.add(CATEGORY, 11L);
+            throw new ResourceNotFoundException("missing");
+        }));
+
+        cacheManager.invalidate(CATEGORY, 11L);
+
+        assertEquals("found", cacheManager.get(PRODUCT, 8L, () -> "found"));
+    }
+
+    @Test
+    void get_OtherLoaderFailuresAreNotCached() {
+        assertThrows(IllegalStateException.class, () -> cacheManager.get(PRODUCT, 9L, () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        assertEquals("recovered", cacheManager.get(PRODUCT, 9L, () -> "recovered"));
+    }
+
+    @Test
+    void restore_RebuildsEntriesAndTagsFromVisit() {
+        cacheManager.get(PRODUCT, 10L, tags -> {
+            tags.add(CATEGORY, 12L);
+            return "restored";
+        });
+        CacheManager restarted = new CacheManager(performanceMonitor, new MockEnvironment(),
+                CacheManager.EvictionPolicy.W_TINY_LFU, 100, 0, 30, 100, Runnable::run);
+
+        cacheManager.forEachEntry(restarted::restore);
+
+        assertEquals("restored", restarted.getIfPresent(PRODUCT, 10L));
+        restarted.invalidate(CATEGORY, 12L);
+        assertNull(restarted.getIfPresent(PRODUCT, 10L));
+    }
+
+    @Test
+    void restore_KeepsNewerEntry() {
+        cacheManager.get(PRODUCT, 11L, () -> "loaded after start");
+
+        cacheManager.restore(PRODUCT, 11L, "from disk", Set.of(), TimeUnit.MINUTES.toNanos(1));
+
+        assertEquals("loaded after start", cacheManager.getIfPresent(PRODUCT, 11L));
+    }
+
+    @Test
+    void getIfPresent_HitDoesNotAllocate() {
+        // A real monitor: Mockito records every call on a mock, which allocates
+        CacheManager manager = new CacheManager(new PerformanceMonitoringAspect(new SimpleMeterRegistry()), new MockEnvironment(),
+                CacheManager.EvictionPolicy.W_TINY_LFU, 100, 0, 30, 100, Runnable::run);
+        Long[] ids = new Long[64];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (long) i;
+            manager.get(PRODUCT, ids[i], () -> "product");
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int calls = 200_000;
+        for (int i = 0; i < calls; i++) {
+            manager.getIfPresent(PRODUCT, ids[i & 63]);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < calls; i++) {
+            manager.getIfPresent(PRODUCT, ids[i & 63]);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(allocated < calls / 10, "hits allocated " + allocated + " bytes over " + calls + " calls");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
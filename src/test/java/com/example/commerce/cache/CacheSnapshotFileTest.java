@@ -0,0 +1,52 @@
+package com.example.commerce.cache;
+
+import com.example.commerce.dtos.responses.ProductResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void write_ReadsBackEntriesAndDumpTime() throws IOException {
+        Path path = dir.resolve("cache.snapshot");
+        LocalDateTime dumpedAt = LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_000);
+        ProductResponseDTO product = new ProductResponseDTO();
+        product.setId(1L);
+        product.setName("Laptop");
+        product.setPrice(999.99);
+
+        CacheSnapshotFile.write(path, dumpedAt, List.of(
+                new CacheSnapshotFile.Entry("product", 1L, product, new String[]{"category:2", "region:product"}, 42L),
+                new CacheSnapshotFile.Entry("category", 2L, "Computing", new String[0], 43L)));
+        CacheSnapshotFile.Contents contents = CacheSnapshotFile.read(path);
+
+        assertEquals(dumpedAt, contents.dumpedAt());
+        assertEquals(2, contents.entries().size());
+        CacheSnapshotFile.Entry first = contents.entries().get(0);
+        assertEquals("product", first.region());
+        assertEquals(1L, first.id());
+        assertEquals(product, first.value());
+        assertArrayEquals(new String[]{"category:2", "region:product"}, first.tags());
+        assertEquals(42L, first.expiresAtMillis());
+        assertFalse(Files.exists(dir.resolve("cache.snapshot.tmp")));
+    }
+
+    @Test
+    void read_RejectsOtherFiles() throws IOException {
+        Path path = dir.resolve("cache.snapshot");
+        Files.write(path, new byte[64]);
+
+        assertThrows(IOException.class, () -> CacheSnapshotFile.read(path));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.commerce.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays a key trace against each eviction policy and compares hit rates. Point
+ * -Dcache.trace at a file with one cache key per line to replay a recorded trace;
+ * otherwise a synthetic one is used: Zipf-distributed product/inventory reads
+ * interleaved with admin listings that page through every inventory row once.
+ */
+class EvictionPolicyBenchmarkTest {
+
+    private static final int CAPACITY = 1000;
+
+    @Test
+    void wTinyLfu_BeatsExpiryOrderedEviction() throws IOException {
+        List<String> trace = loadTrace();
+
+        double legacy = hitRate(new ExpiryOrderedCache(CAPACITY), trace);
+        double lru = hitRate(new LruCache<>(CAPACITY), trace);
+        double tinyLfu = hitRate(new WTinyLfuCache<>(CAPACITY), trace);
+
+        System.out.printf("hit rate over %d requests: expiry-ordered=%.3f lru=%.3f w-tinylfu=%.3f%n",
+                trace.size(), legacy, lru, tinyLfu);
+        assertTrue(tinyLfu >= legacy, "W-TinyLFU should not lose to the expiry-ordered policy");
+        assertTrue(tinyLfu >= lru, "W-TinyLFU should not lose to plain LRU");
+    }
+
+    private double hitRate(BoundedCache<String, Object> cache, List<String> trace) {
+        int hits = 0;
+        for (String key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        assertTrue(cache.size() <= cache.capacity(), "cache grew past its capacity");
+        return (double) hits / trace.size();
+    }
+
+    private List<String> loadTrace() throws IOException {
+        String recorded = System.getProperty("cache.trace");
+        if (recorded != null) {
+            return Files.readAllLines(Path.of(recorded));
+        }
+        Random random = new Random(42);
+        ZipfGenerator products = new ZipfGenerator(20_000, 0.9, random);
+        List<String> trace = new ArrayList<>();
+        int scanCursor = 0;
+        for (int i = 0; i < 300_000; i++) {
+            if (i % 10 < 2) {
+                trace.add("inventory:" + (scanCursor++ % 50_000));
+            } else {
+                trace.add((random.nextBoolean() ? "product:" : "inventory:product:") + products.next());
+            }
+        }
+        return trace;
+    }
+
+    // What CacheManager did before: on overflow drop the entry expiring first, found by a full scan
+    private static class ExpiryOrderedCache implements BoundedCache<String, Object> {
+        private final int capacity;
+        private final Map<String, Object> values = new HashMap<>();
+        private final Map<String, Long> expiresAt = new HashMap<>();
+        private long clock;
+
+        ExpiryOrderedCache(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Object get(String key) {
+            return values.get(key);
+        }
+
+        public void put(String key, Object value) {
+            if (values.size() >= capacity) {
+                expiresAt.entrySet().stream()
+                        .min(Map.Entry.comparingByValue())
+                        .map(Map.Entry::getKey)
+                        .ifPresent(this::remove);
+            }
+            values.put(key, value);
+            expiresAt.put(key, ++clock);
+        }
+
+        public Object remove(String key) {
+            expiresAt.remove(key);
+            return values.remove(key);
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        public int capacity() {
+            return capacity;
+        }
+
+        public void forEach(BiConsumer<? super String, ? super Object> action) {
+            values.forEach(action);
+        }
+    }
+
+    private static class ZipfGenerator {
+        private final double[] cumulative;
+        private final Random random;
+
+        ZipfGenerator(int items, double skew, Random random) {
+            this.random = random;
+            this.cumulative = new double[items];
+            double sum = 0;
+            for (int i = 0; i < items; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < items; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next() {
+            int index = java.util.Arrays.binarySearch(cumulative, random.nextDouble());
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.commerce.cache;
+
+import com.example.commerce.aspects.PerformanceMonitoringAspect;
+import com.example.commerce.dtos.responses.ProductResponseDTO;
+import com.example.commerce.entities.ProductEntity;
+import com.example.commerce.interfaces.IProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ProductCatalogSnapshotTest {
+
+    // Stands in for the products joined with categories and inventory, keyed by id
+    private final TreeMap<Long, ProductEntity> listing = new TreeMap<>();
+
+    private CacheManager cacheManager;
+    private ProductCatalogSnapshot snapshot;
+
+    @Mock
+    private IProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cacheManager = new CacheManager(mock(PerformanceMonitoringAspect.class), new MockEnvironment(),
+                CacheManager.EvictionPolicy.W_TINY_LFU, 100, 0, 30, 100, Runnable::run);
+        snapshot = new ProductCatalogSnapshot(productRepository, cacheManager, true, Runnable::run);
+        when(productRepository.findAllWithInventoryAfter(any(), any(), anyInt())).thenAnswer(invocation -> {
+            Long categoryId = invocation.getArgument(0);
+            Long afterId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return (afterId == null ? listing : listing.tailMap(afterId, false)).values().stream()
+                    .filter(product -> categoryId == null || categoryId.equals(product.getCategoryId()))
+                    .limit(limit)
+                    .toList();
+        });
+    }
+
+    @Test
+    void load_ServesPagesInIdOrderWithTotals() {
+        for (long id = 1; id <= 2500; id++) {
+            listing.put(id, product(id, id % 2 == 0 ? 1L : 2L, "Product " + id));
+        }
+
+        snapshot.load();
+
+        assertTrue(snapshot.isReady());
+        Page<ProductResponseDTO> page = snapshot.page(Pageable.ofSize(10).withPage(3), null);
+        assertEquals(2500, page.getTotalElements());
+        assertEquals(31L, page.getContent().get(0).getId());
+        assertEquals("Product 31", page.getContent().get(0).getName());
+        assertEquals("Category 2", page.getContent().get(0).getCategoryName());
+
+        Page<ProductResponseDTO> evens = snapshot.page(Pageable.ofSize(5).withPage(1), 1L);
+        assertEquals(1250, evens.getTotalElements());
+        assertEquals(List.of(12L, 14L, 16L, 18L, 20L), evens.getContent().stream().map(ProductResponseDTO::getId).toList());
+
+        assertEquals(List.of(2499L, 2500L), snapshot.after(null, 2498L, 10).stream().map(ProductResponseDTO::getId).toList());
+    }
+
+    @Test
+    void invalidate_RefreshesInsertedUpdatedAndRemovedRows() {
+        listing.put(10L, product(10L, 1L, "Laptop"));
+        listing.put(30L, product(30L, 1L, "Phone"));
+        snapshot.load();
+
+        // Product 20 gets its inventory row after 30 already exists
+        listing.put(20L, product(20L, 1L, "Tablet"));
+        cacheManager.invalidate(CacheRegions.INVENTORY_BY_PRODUCT, 20L);
+        ProductEntity renamed = product(10L, 1L, "Gaming laptop with a much longer name");
+        renamed.setQuantity(3);
+        listing.put(10L, renamed);
+        cacheManager.invalidate(CacheRegions.PRODUCT, 10L);
+        listing.remove(30L);
+        cacheManager.invalidate(CacheRegions.PRODUCT, 30L);
+
+        List<ProductResponseDTO> all = snapshot.all();
+        assertEquals(List.of(10L, 20L), all.stream().map(ProductResponseDTO::getId).toList());
+        assertEquals("Gaming laptop with a much longer name", all.get(0).getName());
+        assertEquals(3, all.get(0).getQuantity());
+        assertEquals("Tablet", all.get(1).getName());
+    }
+
+    @Test
+    void invalidate_RenamedCategoryShowsOnEveryRow() {
+        listing.put(1L, product(1L, 1L, "Laptop"));
+        listing.put(2L, product(2L, 1L, "Phone"));
+        snapshot.load();
+
+        listing.values().forEach(product -> product.setCategoryName("Computing"));
+        cacheManager.invalidate(CacheRegions.CATEGORY, 1L);
+
+        assertTrue(snapshot.all().stream().allMatch(product -> "Computing".equals(product.getCategoryName())));
+    }
+
+    @Test
+    void upsert_ReplacedNamesAreCompactedAway() {
+        listing.put(1L, product(1L, 1L, "Laptop"));
+        snapshot.load();
+
+        for (int i = 0; i < 5000; i++) {
+            listing.put(1L, product(1L, 1L, "Laptop revision " + i));
+            cacheManager.invalidate(CacheRegions.PRODUCT, 1L);
+        }
+
+        assertEquals("Laptop revision 4999", snapshot.all().get(0).getName());
+    }
+
+    @Test
+    void invalidate_RefreshesInTheBackgroundOncePerWrittenId() {
+        List<Runnable> queued = new ArrayList<>();
+        snapshot = new ProductCatalogSnapshot(productRepository, cacheManager, true, queued::add);
+        listing.put(1L, product(1L, 1L, "Laptop"));
+        snapshot.load();
+
+        for (int i = 0; i < 3; i++) {
+            listing.put(1L, product(1L, 1L, "Laptop revision " + i));
+            cacheManager.invalidate(CacheRegions.PRODUCT, 1L);
+            cacheManager.invalidate(CacheRegions.INVENTORY_BY_PRODUCT, 1L);
+        }
+
+        // Nothing was read on the writing thread, and one task covers every write
+        assertEquals("Laptop", snapshot.all().get(0).getName());
+        assertEquals(1, queued.size());
+        clearInvocations(productRepository);
+        queued.get(0).run();
+
+        assertEquals("Laptop revision 2", snapshot.all().get(0).getName());
+        verify(productRepository, times(1)).findAllWithInventoryAfter(null, 0L, 1);
+    }
+
+    @Test
+    void load_DisabledSnapshotStaysUnready() {
+        ProductCatalogSnapshot disabled = new ProductCatalogSnapshot(productRepository, cacheManager, false, Runnable::run);
+
+        disabled.load();
+
+        assertFalse(disabled.isReady());
+        verifyNoInteractions(productRepository);
+    }
+
+    private static ProductEntity product(long id, long categoryId, String name) {
+        ProductEntity product = new ProductEntity();
+        product.setId(id);
+        product.setCategoryId(categoryId);
+        product.setCategoryName("Category " + categoryId);
+        product.setName(name);
+        product.setPrice(9.99);
+        product.setQuantity(1);
+        return product;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.commerce.config;
+
+import com.example.commerce.aspects.ProfilingDataSource;
+import com.example.commerce.aspects.SqlProfiler;
+import com.example.commerce.cache.CacheManager;
+import com.example.commerce.dtos.requests.AddOrderDTO;
+import com.example.commerce.dtos.requests.OrderItemDTO;
+import com.example.commerce.entities.ProductEntity;
+import com.example.commerce.entities.UserEntity;
+import com.example.commerce.interfaces.*;
+import com.example.commerce.mappers.OrderMapper;
+import com.example.commerce.repositories.InventoryRepository;
+import com.example.commerce.repositories.OrderItemsRepository;
+import com.example.commerce.repositories.OrderRepository;
+import com.example.commerce.services.InventoryReservations;
+import com.example.commerce.services.OrderService;
+import com.example.commerce.utils.pagination.PageCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JdbcConnectionConfigTest {
+
+    private static final String DECREMENT_STOCK = "UPDATE inventory SET quantity = quantity - ?, updated_at = NOW() WHERE product_id = ? AND quantity >= ?";
+    private static final String INSERT_ORDER = "INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, ?, NOW(), NOW())";
+    private static final String INSERT_ORDER_ITEM = "INSERT INTO order_items (order_id, product_id, quantity, total_price) VALUES (?, ?, ?, ?)";
+
+    private IOrderService orderService;
+
+    @Mock
+    private DataSource poolDataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement decrementStatement;
+
+    @Mock
+    private PreparedStatement orderStatement;
+
+    @Mock
+    private PreparedStatement itemStatement;
+
+    @Mock
+    private ResultSet orderKeys;
+
+    @Mock
+    private IUserRepository userRepository;
+
+    @Mock
+    private IProductRepository productRepository;
+
+    @Mock
+    private IOrderIdempotencyRepository idempotencyRepository;
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private InventoryReservations inventoryReservations;
+
+    @Mock
+    private PageCounter pageCounter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(poolDataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(DECREMENT_STOCK)).thenReturn(decrementStatement);
+        when(connection.prepareStatement(eq(INSERT_ORDER), anyInt())).thenReturn(orderStatement);
+        when(connection.prepareStatement(eq(INSERT_ORDER_ITEM), any(String[].class))).thenReturn(itemStatement);
+        when(decrementStatement.executeBatch()).thenReturn(new int[]{1});
+        when(orderStatement.getGeneratedKeys()).thenReturn(orderKeys);
+        when(orderKeys.next()).thenReturn(true);
+        when(orderKeys.getLong(1)).thenReturn(10L);
+        when(itemStatement.executeBatch()).thenThrow(new BatchUpdateException());
+
+        // The beans as JdbcConnectionConfig wires them, with a mocked pool
+        JdbcConnectionConfig config = new JdbcConnectionConfig();
+        ProfilingDataSource profilingDataSource = new ProfilingDataSource(poolDataSource,
+                new SqlProfiler(new SimpleMeterRegistry(), true, 500, 500));
+        DataSource dataSource = config.dataSource(profilingDataSource);
+        DataSourceTransactionManager transactionManager = config.transactionManager(profilingDataSource);
+
+        OrderService target = new OrderService(new OrderRepository(dataSource, pageCounter, 50),
+                new OrderItemsRepository(dataSource, 50), productRepository, userRepository,
+                new InventoryRepository(dataSource, 50, pageCounter), orderMapper, cacheManager,
+                inventoryReservations, idempotencyRepository);
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        orderService = (IOrderService) proxyFactory.getProxy();
+    }
+
+    @Test
+    void createOrder_FailureRollsBackEveryRepositoryOnOneConnection() throws Exception {
+        ProductEntity product = new ProductEntity();
+        product.setId(1L);
+        product.setName("Product 1");
+        product.setPrice(10.0);
+        product.setAvailable(true);
+        product.setQuantity(5);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new UserEntity()));
+        when(productRepository.findAllWithInventoryById(anyCollection())).thenReturn(List.of(product));
+
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(1L);
+        item.setQuantity(2);
+        AddOrderDTO order = new AddOrderDTO();
+        order.setUserId(1L);
+        order.setItems(List.of(item));
+
+        assertThrows(RuntimeException.class, () -> orderService.createOrder(order));
+
+        // Stock, order and items were all written on the transaction's connection, which is
+        // rolled back and closed once; none of the repositories committed or closed it on its own
+        verify(poolDataSource, times(1)).getConnection();
+        verify(decrementStatement).executeBatch();
+        verify(orderStatement).executeUpdate();
+        verify(connection).setAutoCommit(false);
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(connection, times(1)).close();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.commerce.config;
+
+import com.example.commerce.aspects.RequestQueryStats;
+import com.example.commerce.errorhandlers.QueryBudgetExceededException;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryBudgetFilterTest {
+
+    @Test
+    void doFilter_EnforcedBudgetFailsTheRequest() {
+        QueryBudgetFilter filter = new QueryBudgetFilter(true, true, 50, 1);
+
+        QueryBudgetExceededException e = assertThrows(QueryBudgetExceededException.class,
+                () -> filter.doFilter(new MockHttpServletRequest("GET", "/api/orders/all"), new MockHttpServletResponse(),
+                        chain(request -> repeat("SELECT * FROM order_items WHERE order_id = ?", 3))));
+
+        assertTrue(e.getMessage().contains("3x SELECT * FROM order_items WHERE order_id = ?"));
+        assertNull(RequestQueryStats.current());
+    }
+
+    @Test
+    void doFilter_DeclaredBudgetOverridesDefault() throws Exception {
+        QueryBudgetFilter filter = new QueryBudgetFilter(true, true, 50, 10);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/public/all");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                new HandlerMethod(new Listings(), Listings.class.getMethod("page")));
+
+        assertThrows(QueryBudgetExceededException.class, () -> filter.doFilter(request, new MockHttpServletResponse(),
+                chain(r -> repeat("SELECT * FROM products LIMIT ?", 2))));
+    }
+
+    @Test
+    void doFilter_OnlyLogsWhenNotEnforced() throws Exception {
+        QueryBudgetFilter filter = new QueryBudgetFilter(true, false, 1, 1);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/orders/all"), new MockHttpServletResponse(),
+                chain(request -> repeat("SELECT * FROM orders", 5)));
+
+        assertNull(RequestQueryStats.current());
+    }
+
+    private static FilterChain chain(Consumer<Object> handler) {
+        return (request, response) -> handler.accept(request);
+    }
+
+    // Stands in for the SQL profiler, which isn't wired up here
+    private static void repeat(String statement, int times) {
+        for (int i = 0; i < times; i++) {
+            RequestQueryStats.recordStatement(statement);
+        }
+    }
+
+    static class Listings {
+        @QueryBudget(maxRepeats = 1)
+        public void page() {
+        }
+    }
+}
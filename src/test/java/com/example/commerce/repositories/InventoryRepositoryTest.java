@@ -0,0 +1,115 @@
+package com.example.commerce.repositories;
+
+import com.example.commerce.entities.InventoryEntity;
+import com.example.commerce.utils.pagination.PageCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InventoryRepositoryTest {
+
+    private static final String INSERT = "INSERT INTO inventory (product_id, quantity, location) VALUES (?, ?, ?)";
+    private static final String UPDATE = "UPDATE inventory SET product_id = ?, quantity = ?, location = ?, updated_at = NOW() WHERE id = ?";
+
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    @Mock
+    private PreparedStatement updateStatement;
+
+    @Mock
+    private PageCounter pageCounter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        inventoryRepository = new InventoryRepository(dataSource, 2, pageCounter);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(eq(INSERT), any(String[].class))).thenReturn(insertStatement);
+        when(connection.prepareStatement(UPDATE)).thenReturn(updateStatement);
+    }
+
+    @Test
+    void saveAll_EachInsertGetsItsOwnIdAcrossBatches() throws Exception {
+        ResultSet first = keys(11, 12);
+        ResultSet second = keys(13, 14);
+        ResultSet third = keys(15);
+        when(insertStatement.getGeneratedKeys()).thenReturn(first, second, third);
+        List<InventoryEntity> inventories = List.of(inventory(null, 1L), inventory(null, 2L), inventory(null, 3L),
+                inventory(null, 4L), inventory(null, 5L));
+
+        inventoryRepository.saveAll(inventories);
+
+        assertEquals(List.of(11L, 12L, 13L, 14L, 15L), inventories.stream().map(InventoryEntity::getId).toList());
+        verify(insertStatement, times(5)).addBatch();
+        verify(insertStatement, times(3)).executeBatch();
+        verify(connection, never()).prepareStatement(UPDATE);
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    void saveAll_InsertsAndUpdatesAreBatchedSeparately() throws Exception {
+        ResultSet keys = keys(21, 22);
+        when(insertStatement.getGeneratedKeys()).thenReturn(keys);
+        List<InventoryEntity> inventories = List.of(inventory(7L, 1L), inventory(null, 2L), inventory(8L, 3L),
+                inventory(null, 4L));
+
+        inventoryRepository.saveAll(inventories);
+
+        assertEquals(List.of(7L, 21L, 8L, 22L), inventories.stream().map(InventoryEntity::getId).toList());
+        verify(insertStatement, times(2)).addBatch();
+        verify(insertStatement, times(1)).executeBatch();
+        verify(updateStatement).setLong(4, 7L);
+        verify(updateStatement).setLong(4, 8L);
+        verify(updateStatement, times(2)).addBatch();
+        verify(updateStatement, times(1)).executeBatch();
+        verify(pageCounter).invalidate("inventory");
+    }
+
+    @Test
+    void findAllAfter_SeeksPastTheLastId() throws Exception {
+        String sql = "SELECT * FROM inventory WHERE id > ? ORDER BY id LIMIT ?";
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rows = mock(ResultSet.class);
+        when(connection.prepareStatement(sql)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rows);
+
+        inventoryRepository.findAllAfter(30L, 11);
+
+        verify(statement).setLong(1, 30L);
+        verify(statement).setInt(2, 11);
+    }
+
+    private static InventoryEntity inventory(Long id, Long productId) {
+        return new InventoryEntity(id, productId, 10, "A1");
+    }
+
+    // One generated-keys result set per executed batch
+    static ResultSet keys(long... ids) throws SQLException {
+        ResultSet keys = mock(ResultSet.class);
+        AtomicInteger row = new AtomicInteger(-1);
+        when(keys.next()).thenAnswer(inv -> row.incrementAndGet() < ids.length);
+        when(keys.getLong(1)).thenAnswer(inv -> ids[row.get()]);
+        return keys;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.commerce.repositories;
+
+import com.example.commerce.interfaces.IOrderIdempotencyRepository.IdempotencyKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderIdempotencyRepositoryTest {
+
+    private OrderIdempotencyRepository idempotencyRepository;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        idempotencyRepository = new OrderIdempotencyRepository(dataSource, 50, 24);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+        when(statement.executeQuery()).thenReturn(resultSet);
+    }
+
+    @Test
+    void findOrderId_IgnoresKeysOlderThanTheRetention() throws Exception {
+        Optional<Long> orderId = idempotencyRepository.findOrderId(new IdempotencyKey(1L, "abc"));
+
+        assertTrue(orderId.isEmpty());
+        verify(connection).prepareStatement(contains("AND created_at >= NOW() - ? * INTERVAL '1 hour'"));
+        verify(statement).setLong(1, 1L);
+        verify(statement).setString(2, "abc");
+        verify(statement).setLong(3, 24L);
+    }
+
+    @Test
+    void claim_TakesOverAnExpiredKey() throws Exception {
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(1L);
+        when(resultSet.getString(2)).thenReturn("abc");
+
+        Set<IdempotencyKey> claimed = idempotencyRepository.claim(List.of(new IdempotencyKey(1L, "abc"), new IdempotencyKey(1L, "abc")));
+
+        assertEquals(Set.of(new IdempotencyKey(1L, "abc")), claimed);
+        verify(connection).prepareStatement("INSERT INTO order_idempotency_keys (user_id, idempotency_key) SELECT DISTINCT * FROM unnest(?, ?) "
+                + "ON CONFLICT (user_id, idempotency_key) DO UPDATE SET order_id = NULL, created_at = NOW() "
+                + "WHERE order_idempotency_keys.created_at < NOW() - ? * INTERVAL '1 hour' "
+                + "RETURNING user_id, idempotency_key");
+        verify(statement).setLong(3, 24L);
+    }
+
+    @Test
+    void deleteExpired_UsesTheRetention() throws Exception {
+        when(statement.executeUpdate()).thenReturn(3);
+
+        assertEquals(3, idempotencyRepository.deleteExpired());
+        verify(statement).setLong(1, 24L);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.commerce.repositories;
+
+import com.example.commerce.entities.OrderItemsEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.commerce.repositories.InventoryRepositoryTest.keys;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderItemsRepositoryTest {
+
+    private static final String INSERT = "INSERT INTO order_items (order_id, product_id, quantity, total_price) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE order_items SET order_id = ?, product_id = ?, quantity = ?, total_price = ? WHERE id = ?";
+
+    private OrderItemsRepository orderItemsRepository;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    @Mock
+    private PreparedStatement updateStatement;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        orderItemsRepository = new OrderItemsRepository(dataSource, 3);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(eq(INSERT), any(String[].class))).thenReturn(insertStatement);
+        when(connection.prepareStatement(UPDATE)).thenReturn(updateStatement);
+    }
+
+    @Test
+    void saveAll_EachInsertGetsItsOwnIdAcrossBatches() throws Exception {
+        ResultSet first = keys(101, 102, 103);
+        ResultSet second = keys(104, 105, 106);
+        ResultSet third = keys(107);
+        when(insertStatement.getGeneratedKeys()).thenReturn(first, second, third);
+        List<OrderItemsEntity> items = new ArrayList<>();
+        for (long productId = 1; productId <= 7; productId++) {
+            items.add(item(null, productId));
+        }
+
+        orderItemsRepository.saveAll(items);
+
+        assertEquals(List.of(101L, 102L, 103L, 104L, 105L, 106L, 107L), items.stream().map(OrderItemsEntity::getId).toList());
+        verify(insertStatement, times(7)).addBatch();
+        verify(insertStatement, times(3)).executeBatch();
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    void saveAll_InsertsAndUpdatesAreBatchedSeparately() throws Exception {
+        ResultSet keys = keys(201);
+        when(insertStatement.getGeneratedKeys()).thenReturn(keys);
+        List<OrderItemsEntity> items = List.of(item(5L, 1L), item(null, 2L), item(6L, 3L));
+
+        orderItemsRepository.saveAll(items);
+
+        assertEquals(List.of(5L, 201L, 6L), items.stream().map(OrderItemsEntity::getId).toList());
+        verify(insertStatement, times(1)).executeBatch();
+        verify(updateStatement).setLong(5, 5L);
+        verify(updateStatement).setLong(5, 6L);
+        verify(updateStatement, times(2)).addBatch();
+        verify(updateStatement, times(1)).executeBatch();
+    }
+
+    private static OrderItemsEntity item(Long id, Long productId) {
+        OrderItemsEntity item = new OrderItemsEntity();
+        item.setId(id);
+        item.setOrderId(1L);
+        item.setProductId(productId);
+        item.setQuantity(1);
+        item.setTotalPrice(10.0);
+        return item;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.commerce.repositories;
+
+import com.example.commerce.entities.OrderEntity;
+import com.example.commerce.enums.OrderStatus;
+import com.example.commerce.utils.pagination.PageCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.commerce.repositories.InventoryRepositoryTest.keys;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderRepositoryTest {
+
+    private static final String INSERT = "INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, ?, NOW(), NOW())";
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private OrderRepository orderRepository;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private PageCounter pageCounter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        orderRepository = new OrderRepository(dataSource, pageCounter, 50);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+    }
+
+    @Test
+    void findAllAfter_FirstPageHasNoSeek() throws Exception {
+        orderRepository.findAllAfter(null, null, 11);
+
+        verify(connection).prepareStatement("SELECT * FROM orders WHERE 1 = 1 ORDER BY created_at DESC, id DESC LIMIT ?");
+        verify(statement).setInt(1, 11);
+        verify(statement, never()).setTimestamp(anyInt(), any());
+    }
+
+    @Test
+    void findAllAfter_SeeksPastTheCursorRowWithIdAsTieBreak() throws Exception {
+        orderRepository.findAllAfter(CREATED_AT, 40L, 11);
+
+        // Same timestamp as the cursor row: only lower ids follow it in created_at DESC, id DESC order
+        verify(connection).prepareStatement("SELECT * FROM orders WHERE 1 = 1 AND created_at <= ? AND (created_at < ? OR id < ?) "
+                + "ORDER BY created_at DESC, id DESC LIMIT ?");
+        verify(statement).setTimestamp(1, Timestamp.valueOf(CREATED_AT));
+        verify(statement).setTimestamp(2, Timestamp.valueOf(CREATED_AT));
+        verify(statement).setLong(3, 40L);
+        verify(statement).setInt(4, 11);
+    }
+
+    @Test
+    void findByUserIdAfter_FiltersByUserBeforeTheSeek() throws Exception {
+        orderRepository.findByUserIdAfter(7L, CREATED_AT, 40L, 11);
+
+        verify(connection).prepareStatement("SELECT * FROM orders WHERE 1 = 1 AND user_id = ? AND created_at <= ? "
+                + "AND (created_at < ? OR id < ?) ORDER BY created_at DESC, id DESC LIMIT ?");
+        verify(statement).setLong(1, 7L);
+        verify(statement).setTimestamp(2, Timestamp.valueOf(CREATED_AT));
+        verify(statement).setTimestamp(3, Timestamp.valueOf(CREATED_AT));
+        verify(statement).setLong(4, 40L);
+        verify(statement).setInt(5, 11);
+    }
+
+    @Test
+    void saveAll_EachOrderGetsItsOwnIdAcrossBatches() throws Exception {
+        PreparedStatement insertStatement = mock(PreparedStatement.class);
+        ResultSet first = keys(101, 102);
+        ResultSet second = keys(103);
+        when(connection.prepareStatement(eq(INSERT), any(String[].class))).thenReturn(insertStatement);
+        when(insertStatement.getGeneratedKeys()).thenReturn(first, second);
+        List<OrderEntity> orders = List.of(order(7L), order(8L), order(9L));
+
+        new OrderRepository(dataSource, pageCounter, 2).saveAll(orders);
+
+        assertEquals(List.of(101L, 102L, 103L), orders.stream().map(OrderEntity::getId).toList());
+        verify(insertStatement).setLong(1, 9L);
+        verify(insertStatement, times(2)).executeBatch();
+        verify(pageCounter).invalidate("orders");
+    }
+
+    @Test
+    void saveAll_MissingGeneratedIdFails() throws Exception {
+        PreparedStatement insertStatement = mock(PreparedStatement.class);
+        ResultSet generated = keys(101);
+        when(connection.prepareStatement(eq(INSERT), any(String[].class))).thenReturn(insertStatement);
+        when(insertStatement.getGeneratedKeys()).thenReturn(generated);
+        List<OrderEntity> orders = new ArrayList<>(List.of(order(7L), order(8L)));
+
+        assertThrows(IllegalStateException.class, () -> orderRepository.saveAll(orders));
+        verify(pageCounter, never()).invalidate("orders");
+    }
+
+    private static OrderEntity order(long userId) {
+        OrderEntity order = new OrderEntity();
+        order.setUserId(userId);
+        order.setTotalAmount(10.0);
+        order.setStatus(OrderStatus.PENDING);
+        return order;
+    }
+}
@@ -6,6 +6,7 @@ import com.example.commerce.dtos.requests.UpdateCategoryDTO;
 import com.example.commerce.entities.CategoryEntity;
 import com.example.commerce.mappers.CategoryMapper;
 import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
 import com.example.commerce.interfaces.ICategoryRepository;
 import com.example.commerce.interfaces.IProductRepository;
 import com.example.commerce.interfaces.IInventoryRepository;
@@ -15,7 +16,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -43,6 +50,9 @@ class CategoryServiceTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         categoryService = new CategoryService(categoryRepository, categoryMapper, cacheManager, productRepository, inventoryRepository);
+        // Cache misses run the loader, so the lookups under test still happen
+        when(cacheManager.get(any(), any(), any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
     }
 
     @Test
@@ -139,4 +149,24 @@ class CategoryServiceTest {
         assertDoesNotThrow(() -> categoryService.deleteCategory(1L));
         verify(categoryRepository).delete(entity);
     }
+
+    @Test
+    void warmCache_CachesEveryCategoryPage() {
+        List<CategoryEntity> firstPage = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            CategoryEntity category = new CategoryEntity();
+            category.setId(id);
+            firstPage.add(category);
+        }
+        CategoryEntity last = new CategoryEntity();
+        last.setId(501L);
+        when(categoryRepository.findAll(any(Pageable.class))).thenAnswer(invocation ->
+                invocation.<Pageable>getArgument(0).getPageNumber() == 0
+                        ? new PageImpl<>(firstPage)
+                        : new PageImpl<>(List.of(last)));
+
+        assertEquals(501, categoryService.warmCache());
+        verify(cacheManager).put(eq(CacheRegions.CATEGORY), eq(501L), eq(last), any());
+        verify(categoryRepository, times(2)).findAll(any(Pageable.class));
+    }
 }
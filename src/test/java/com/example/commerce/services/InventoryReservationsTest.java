@@ -0,0 +1,266 @@
+package com.example.commerce.services;
+
+import com.example.commerce.cache.CacheManager;
+import com.example.commerce.interfaces.IInventoryReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InventoryReservationsTest {
+
+    private InventoryReservations reservations;
+
+    @Mock
+    private IInventoryReservationRepository reservationRepository;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        reservations = new InventoryReservations(reservationRepository, cacheManager,
+                true, Set.of(1L), 10, 60_000, "node-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservations.stop();
+    }
+
+    @Test
+    void reserve_TakesStockOneSliceAtATime() {
+        when(reservationRepository.takeStock("node-1", 1L, 10)).thenReturn(10);
+        reservations.start();
+        reservations.refill();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(reservations.reserve(Map.of(1L, 2)).unreserved().isEmpty());
+        }
+
+        verify(reservationRepository, times(1)).takeStock(anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void reserve_LeavesProductUnreservedOnceSliceRunsOut() {
+        when(reservationRepository.takeStock("node-1", 1L, 10)).thenReturn(3);
+        reservations.start();
+        reservations.refill();
+
+        assertTrue(reservations.reserve(Map.of(1L, 2)).unreserved().isEmpty());
+        assertEquals(Set.of(1L), reservations.reserve(Map.of(1L, 2)).unreserved());
+        // What was left is still there for a smaller order
+        assertTrue(reservations.reserve(Map.of(1L, 1)).unreserved().isEmpty());
+    }
+
+    @Test
+    void reserve_RollbackGivesStockBack() {
+        when(reservationRepository.takeStock("node-1", 1L, 10)).thenReturn(10).thenReturn(0);
+        reservations.start();
+        reservations.refill();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(reservations.reserve(Map.of(1L, 10)).unreserved().isEmpty());
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(reservations.reserve(Map.of(1L, 10)).unreserved().isEmpty());
+        reservations.flush();
+        verify(reservationRepository).recordSold("node-1", Map.of(1L, 10));
+    }
+
+    @Test
+    void reserve_KeepsWhatItCouldReserveAndCanBeCancelled() {
+        reservations = new InventoryReservations(reservationRepository, cacheManager,
+                true, Set.of(1L, 2L), 10, 60_000, "node-1");
+        when(reservationRepository.takeStock("node-1", 1L, 10)).thenReturn(10).thenReturn(0);
+        when(reservationRepository.takeStock("node-1", 2L, 10)).thenReturn(0);
+        reservations.start();
+        reservations.refill();
+
+        InventoryReservations.Reservation reservation = reservations.reserve(Map.of(1L, 10, 2L, 1));
+        assertEquals(Set.of(2L), reservation.unreserved());
+        assertEquals(Set.of(1L), reservations.reserve(Map.of(1L, 1)).unreserved());
+        reservation.cancel();
+        assertTrue(reservations.reserve(Map.of(1L, 10)).unreserved().isEmpty());
+    }
+
+    @Test
+    void flush_RecordsCommittedSalesOnlyOnce() {
+        when(reservationRepository.takeStock("node-1", 1L, 10)).thenReturn(10);
+        reservations.start();
+        reservations.refill();
+
+        reservations.reserve(Map.of(1L, 3));
+        reservations.reserve(Map.of(1L, 4));
+        reservations.flush();
+        reservations.flush();
+
+        verify(reservationRepository).recordSold("node-1", Map.of(1L, 7));
+        verify(reservationRepository).recordSold("node-1", Map.of(1L, 0));
+    }
+
+    @Test
+    void reserve_NeverGrantsMoreThanWasTaken() throws Exception {
+        AtomicInteger stock = new AtomicInteger(1000);
+        when(reservationRepository.takeStock(eq("node-1"), eq(1L), anyInt()))
+                .thenAnswer(inv -> {
+                    int wanted = inv.getArgument(2);
+                    int left = stock.get();
+                    int took = Math.min(wanted, left);
+                    stock.addAndGet(-took);
+                    return took;
+                });
+        reservations.start();
+        reservations.refill();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(pool.submit(() -> {
+                int granted = 0;
+                for (int i = 0; i < 500; i++) {
+                    if (reservations.reserve(Map.of(1L, 1)).unreserved().isEmpty()) {
+                        granted++;
+                    }
+                }
+                return granted;
+            }));
+        }
+        int granted = 0;
+        for (Future<Integer> result : results) {
+            granted += result.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Every grant is flushed as sold; what was taken and not granted goes back with the release
+        assertTrue(granted <= 1000 - stock.get());
+        reservations.stop();
+        verify(reservationRepository).recordSold("node-1", Map.of(1L, granted));
+        verify(reservationRepository).release("node-1");
+    }
+
+    @Test
+    void reserve_NeverWaitsForAConnectionWhileTheOrderHoldsOne() throws Exception {
+        // Every order thread holds one of the pool's connections while it reserves, as an order's
+        // transaction does; a refill that needed one on the order's behalf would never get it
+        Semaphore connections = new Semaphore(2, true);
+        AtomicInteger starved = new AtomicInteger();
+        AtomicInteger stock = new AtomicInteger(1000);
+        when(reservationRepository.takeStock(eq("node-1"), eq(1L), anyInt()))
+                .thenAnswer(inv -> {
+                    if (!connections.tryAcquire(1, TimeUnit.SECONDS)) {
+                        starved.incrementAndGet();
+                        throw new IllegalStateException("Connection is not available");
+                    }
+                    try {
+                        int wanted = inv.getArgument(2);
+                        int took = Math.min(wanted, stock.get());
+                        stock.addAndGet(-took);
+                        return took;
+                    } finally {
+                        connections.release();
+                    }
+                });
+        reservations.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            results.add(pool.submit(() -> {
+                int granted = 0;
+                for (int i = 0; i < 500; i++) {
+                    if (!connections.tryAcquire(1, TimeUnit.SECONDS)) {
+                        starved.incrementAndGet();
+                        continue;
+                    }
+                    try {
+                        if (reservations.reserve(Map.of(1L, 1)).unreserved().isEmpty()) {
+                            granted++;
+                        }
+                    } finally {
+                        connections.release();
+                    }
+                }
+                return granted;
+            }));
+        }
+        int granted = 0;
+        for (Future<Integer> result : results) {
+            granted += result.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, starved.get());
+        assertTrue(granted <= 1000 - stock.get());
+    }
+
+    @Test
+    void stop_ReleasesOnlyAfterOpenOrdersComplete() throws Exception {
+        when(reservationRepository.takeStock("node-1", 1L, 10)).thenReturn(10);
+        reservations.start();
+        reservations.refill();
+
+        ExecutorService stopper = Executors.newSingleThreadExecutor();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(reservations.reserve(Map.of(1L, 4)).unreserved().isEmpty());
+            Future<?> stopped = stopper.submit(reservations::stop);
+
+            // Once stopping, new orders go to inventory, and nothing is released under the open order
+            verify(reservationRepository, after(200).never()).release(anyString());
+            assertFalse(reservations.handles(1L));
+            assertEquals(Set.of(1L), reservations.reserve(Map.of(1L, 1)).unreserved());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            stopped.get(5, TimeUnit.SECONDS);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+            stopper.shutdown();
+        }
+
+        InOrder inOrder = inOrder(reservationRepository);
+        inOrder.verify(reservationRepository).recordSold("node-1", Map.of(1L, 4));
+        inOrder.verify(reservationRepository).release("node-1");
+    }
+
+    @Test
+    void stop_FlushesAndReleases() {
+        when(reservationRepository.takeStock("node-1", 1L, 10)).thenReturn(10);
+        reservations.start();
+        reservations.refill();
+        reservations.reserve(Map.of(1L, 4));
+
+        reservations.stop();
+
+        verify(reservationRepository).recordSold("node-1", Map.of(1L, 4));
+        verify(reservationRepository).release("node-1");
+        assertFalse(reservations.handles(1L));
+    }
+}
@@ -7,6 +7,7 @@ import com.example.commerce.entities.InventoryEntity;
 import com.example.commerce.entities.ProductEntity;
 import com.example.commerce.mappers.InventoryMapper;
 import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheTags;
 import com.example.commerce.interfaces.IInventoryRepository;
 import com.example.commerce.interfaces.IProductRepository;
 import com.example.commerce.errorhandlers.*;
@@ -16,6 +17,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -40,6 +42,9 @@ class InventoryServiceTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         inventoryService = new InventoryService(inventoryRepository, productRepository, inventoryMapper, cacheManager);
+        // Cache misses run the loader, so the lookups under test still happen
+        when(cacheManager.get(any(), any(), any(Function.class)))
+                .thenAnswer(invocation -> invocation.<Function<CacheTags, ?>>getArgument(2).apply(new CacheTags()));
     }
 
     @Test
@@ -0,0 +1,142 @@
+package com.example.commerce.services;
+
+import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
+import com.example.commerce.dtos.requests.AddOrderDTO;
+import com.example.commerce.dtos.responses.OrderResponseDTO;
+import com.example.commerce.errorhandlers.DuplicateOrderException;
+import com.example.commerce.interfaces.IOrderIdempotencyRepository;
+import com.example.commerce.interfaces.IOrderIdempotencyRepository.IdempotencyKey;
+import com.example.commerce.interfaces.IOrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderIdempotencyTest {
+
+    private OrderIdempotency orderIdempotency;
+
+    @Mock
+    private IOrderIdempotencyRepository idempotencyRepository;
+
+    @Mock
+    private IOrderService orderService;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderIdempotency = new OrderIdempotency(idempotencyRepository, orderService, cacheManager);
+    }
+
+    @Test
+    void createOnce_WithoutKeyAlwaysCreates() {
+        AtomicInteger created = new AtomicInteger();
+
+        orderIdempotency.createOnce(order(null), () -> response(created.incrementAndGet()));
+        orderIdempotency.createOnce(order(null), () -> response(created.incrementAndGet()));
+
+        assertEquals(2, created.get());
+        verifyNoInteractions(idempotencyRepository, cacheManager);
+    }
+
+    @Test
+    void createOnce_RetryFoundInCacheReturnsTheOriginalOrder() {
+        when(cacheManager.getIfPresent(CacheRegions.ORDER_IDEMPOTENCY_KEY, "1:abc")).thenReturn(5L);
+        when(orderService.getOrderById(5L)).thenReturn(response(5));
+
+        OrderResponseDTO result = orderIdempotency.createOnce(order("abc"), () -> fail("must not create"));
+
+        assertEquals(5L, result.getId());
+        verifyNoInteractions(idempotencyRepository);
+    }
+
+    @Test
+    void createOnce_RetryFoundInDatabaseReturnsTheOriginalOrder() {
+        when(idempotencyRepository.findOrderId(new IdempotencyKey(1L, "abc"))).thenReturn(Optional.of(5L));
+        when(orderService.getOrderById(5L)).thenReturn(response(5));
+
+        OrderResponseDTO result = orderIdempotency.createOnce(order("abc"), () -> fail("must not create"));
+
+        assertEquals(5L, result.getId());
+        verify(cacheManager).put(eq(CacheRegions.ORDER_IDEMPOTENCY_KEY), eq("1:abc"), eq(5L), any());
+    }
+
+    @Test
+    void createOnce_LosingTheKeyToAnotherInstanceReturnsItsOrder() {
+        when(idempotencyRepository.findOrderId(any())).thenReturn(Optional.empty());
+        when(orderService.getOrderById(9L)).thenReturn(response(9));
+
+        OrderResponseDTO result = orderIdempotency.createOnce(order("abc"), () -> {
+            throw new DuplicateOrderException(9L);
+        });
+
+        assertEquals(9L, result.getId());
+    }
+
+    @Test
+    void createOnce_ConcurrentRetriesCreateOnce() throws Exception {
+        when(idempotencyRepository.findOrderId(any())).thenReturn(Optional.empty());
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<OrderResponseDTO>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(callers.submit(() -> orderIdempotency.createOnce(order("abc"), () -> {
+                created.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return response(3);
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<OrderResponseDTO> result : results) {
+            assertEquals(3L, result.get().getId());
+        }
+        callers.shutdown();
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void createOnce_RejectsOversizedKey() {
+        assertThrows(IllegalArgumentException.class,
+                () -> orderIdempotency.createOnce(order("k".repeat(256)), () -> response(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> orderIdempotency.createOnce(order(" "), () -> response(1)));
+    }
+
+    private static AddOrderDTO order(String idempotencyKey) {
+        AddOrderDTO order = new AddOrderDTO();
+        order.setUserId(1L);
+        order.setIdempotencyKey(idempotencyKey);
+        return order;
+    }
+
+    private static OrderResponseDTO response(long id) {
+        OrderResponseDTO response = new OrderResponseDTO();
+        response.setId(id);
+        return response;
+    }
+}
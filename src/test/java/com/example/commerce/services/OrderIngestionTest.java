@@ -0,0 +1,113 @@
+package com.example.commerce.services;
+
+import com.example.commerce.cache.CacheManager;
+import com.example.commerce.dtos.requests.AddOrderDTO;
+import com.example.commerce.dtos.responses.OrderResponseDTO;
+import com.example.commerce.interfaces.IOrderIdempotencyRepository;
+import com.example.commerce.interfaces.IOrderService;
+import com.example.commerce.interfaces.IOrderService.OrderOutcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderIngestionTest {
+
+    private OrderIngestion orderIngestion;
+
+    @Mock
+    private IOrderService orderService;
+
+    @Mock
+    private IOrderIdempotencyRepository idempotencyRepository;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    private OrderIdempotency orderIdempotency;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderIdempotency = new OrderIdempotency(idempotencyRepository, orderService, cacheManager);
+        orderIngestion = new OrderIngestion(orderService, orderIdempotency, true, 200, 50, 1);
+        orderIngestion.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        orderIngestion.stop();
+    }
+
+    @Test
+    void createOrder_EachCallerGetsItsOwnOutcome() throws Exception {
+        when(orderService.createOrders(anyList())).thenAnswer(inv -> {
+            List<AddOrderDTO> orders = inv.getArgument(0);
+            List<OrderOutcome> outcomes = new ArrayList<>();
+            for (AddOrderDTO order : orders) {
+                outcomes.add(order.getUserId() < 0
+                        ? OrderOutcome.failed(new IllegalArgumentException("rejected"))
+                        : OrderOutcome.created(response(order.getUserId())));
+            }
+            return outcomes;
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<OrderResponseDTO>> results = new ArrayList<>();
+        for (long userId : new long[]{1, 2, -1, 3}) {
+            results.add(callers.submit(() -> orderIngestion.createOrder(order(userId))));
+        }
+
+        assertEquals(1L, results.get(0).get().getId());
+        assertEquals(2L, results.get(1).get().getId());
+        Exception rejected = assertThrows(Exception.class, () -> results.get(2).get());
+        assertInstanceOf(IllegalArgumentException.class, rejected.getCause());
+        assertEquals(3L, results.get(3).get().getId());
+        callers.shutdown();
+
+        verify(orderService, atMost(4)).createOrders(anyList());
+        verify(orderService, never()).createOrder(any());
+    }
+
+    @Test
+    void createOrder_FailedBatchFallsBackToSingleOrders() {
+        when(orderService.createOrders(anyList())).thenThrow(new RuntimeException("connection reset"));
+        when(orderService.createOrder(any())).thenReturn(response(7L));
+
+        assertEquals(7L, orderIngestion.createOrder(order(7L)).getId());
+    }
+
+    @Test
+    void createOrder_WithoutGroupCommitCallsTheServiceDirectly() throws InterruptedException {
+        orderIngestion.stop();
+        orderIngestion = new OrderIngestion(orderService, orderIdempotency, false, 200, 50, 1);
+        orderIngestion.start();
+        when(orderService.createOrder(any())).thenReturn(response(5L));
+
+        assertEquals(5L, orderIngestion.createOrder(order(5L)).getId());
+        verify(orderService, never()).createOrders(anyList());
+    }
+
+    private static AddOrderDTO order(long userId) {
+        AddOrderDTO order = new AddOrderDTO();
+        order.setUserId(userId);
+        order.setItems(List.of());
+        return order;
+    }
+
+    private static OrderResponseDTO response(long id) {
+        OrderResponseDTO response = new OrderResponseDTO();
+        response.setId(id);
+        return response;
+    }
+}
@@ -11,14 +11,24 @@ import com.example.commerce.mappers.OrderMapper;
 import com.example.commerce.cache.CacheManager;
 import com.example.commerce.interfaces.*;
 import com.example.commerce.errorhandlers.*;
+import com.example.commerce.utils.pagination.CursorSlice;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -48,11 +58,18 @@ class OrderServiceTest {
     @Mock
     private CacheManager cacheManager;
 
+    @Mock
+    private InventoryReservations inventoryReservations;
+
+    @Mock
+    private IOrderIdempotencyRepository idempotencyRepository;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
         orderService = new OrderService(orderRepository, orderItemsRepository, productRepository, 
-                                       userRepository, inventoryRepository, orderMapper, cacheManager);
+                                       userRepository, inventoryRepository, orderMapper, cacheManager,
+                                       inventoryReservations, idempotencyRepository);
     }
 
     @Test
@@ -73,9 +90,6 @@ class OrderServiceTest {
         product.setPrice(999.99);
         product.setAvailable(true);
         
-        InventoryEntity inventory = new InventoryEntity();
-        inventory.setQuantity(10);
-        
         OrderEntity savedOrder = new OrderEntity();
         savedOrder.setId(1L);
         
@@ -86,8 +100,8 @@ class OrderServiceTest {
         responseDTO.setId(1L);
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(inventory));
+        when(productRepository.findAllWithInventoryById(Set.of(1L))).thenReturn(List.of(product));
+        when(inventoryRepository.decrementStock(Map.of(1L, 2))).thenReturn(Set.of());
         when(orderRepository.save(any(OrderEntity.class))).thenReturn(savedOrder);
         when(orderItemsRepository.saveAll(anyList())).thenReturn(List.of(savedItem));
         when(orderMapper.toResponseDTO(savedOrder)).thenReturn(responseDTO);
@@ -97,6 +111,89 @@ class OrderServiceTest {
 
         assertNotNull(result);
         verify(orderRepository).save(any(OrderEntity.class));
+        verify(inventoryRepository).decrementStock(Map.of(1L, 2));
+        verify(inventoryRepository, never()).findByProductId(anyLong());
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void createOrder_MergesLinesOfTheSameProduct() {
+        AddOrderDTO dto = new AddOrderDTO();
+        dto.setUserId(1L);
+        dto.setItems(List.of(orderItem(1L, 2), orderItem(2L, 1), orderItem(1L, 3)));
+
+        List<ProductEntity> products = new ArrayList<>();
+        for (long id = 1; id <= 2; id++) {
+            ProductEntity product = new ProductEntity();
+            product.setId(id);
+            product.setPrice(10.0);
+            product.setAvailable(true);
+            product.setQuantity(5);
+            products.add(product);
+        }
+        OrderEntity savedOrder = new OrderEntity();
+        savedOrder.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new UserEntity()));
+        when(productRepository.findAllWithInventoryById(Set.of(1L, 2L))).thenReturn(products);
+        when(inventoryRepository.decrementStock(Map.of(1L, 5, 2L, 1))).thenReturn(Set.of());
+        when(orderRepository.save(any(OrderEntity.class))).thenReturn(savedOrder);
+        when(orderItemsRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(orderMapper.toResponseDTO(savedOrder)).thenReturn(new OrderResponseDTO());
+        when(orderMapper.toOrderItemResponseDTO(any())).thenReturn(new OrderItemResponseDTO());
+
+        orderService.createOrder(dto);
+
+        verify(orderItemsRepository).saveAll(argThat(items -> items.size() == 2
+                && items.get(0).getQuantity() == 5 && items.get(0).getTotalPrice() == 50.0));
+        verify(productRepository, times(1)).findAllWithInventoryById(anyCollection());
+    }
+
+    @Test
+    void createOrder_ShortStockFailsBeforeAnyWrite() {
+        AddOrderDTO dto = new AddOrderDTO();
+        dto.setUserId(1L);
+        dto.setItems(List.of(orderItem(1L, 2), orderItem(1L, 2)));
+
+        ProductEntity product = new ProductEntity();
+        product.setId(1L);
+        product.setName("Product 1");
+        product.setPrice(10.0);
+        product.setAvailable(true);
+        product.setQuantity(3);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new UserEntity()));
+        when(productRepository.findAllWithInventoryById(Set.of(1L))).thenReturn(List.of(product));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(dto));
+
+        assertEquals("Product 'Product 1' is out of stock", ex.getMessage());
+        verify(inventoryRepository, never()).decrementStock(anyMap());
+    }
+
+    @Test
+    void createOrder_KeyAlreadyClaimedPointsAtTheOriginalOrder() {
+        AddOrderDTO dto = new AddOrderDTO();
+        dto.setUserId(1L);
+        dto.setIdempotencyKey("retry-1");
+        dto.setItems(List.of(orderItem(1L, 2)));
+
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        ProductEntity product = new ProductEntity();
+        product.setId(1L);
+        product.setPrice(10.0);
+        product.setAvailable(true);
+        IOrderIdempotencyRepository.IdempotencyKey key = new IOrderIdempotencyRepository.IdempotencyKey(1L, "retry-1");
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(productRepository.findAllWithInventoryById(Set.of(1L))).thenReturn(List.of(product));
+        when(idempotencyRepository.claim(List.of(key))).thenReturn(Set.of());
+        when(idempotencyRepository.findOrderId(key)).thenReturn(Optional.of(7L));
+
+        DuplicateOrderException e = assertThrows(DuplicateOrderException.class, () -> orderService.createOrder(dto));
+
+        assertEquals(7L, e.getOrderId());
+        verify(inventoryRepository, never()).decrementStock(anyMap());
+        verify(orderRepository, never()).save(any(OrderEntity.class));
     }
 
     @Test
@@ -122,10 +219,11 @@ class OrderServiceTest {
         UserEntity user = new UserEntity();
         
         ProductEntity product = new ProductEntity();
+        product.setId(1L);
         product.setAvailable(false);
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.findAllWithInventoryById(Set.of(1L))).thenReturn(List.of(product));
 
         assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(dto));
     }
@@ -143,16 +241,119 @@ class OrderServiceTest {
         UserEntity user = new UserEntity();
         
         ProductEntity product = new ProductEntity();
+        product.setId(1L);
+        product.setPrice(10.0);
         product.setAvailable(true);
         
-        InventoryEntity inventory = new InventoryEntity();
-        inventory.setQuantity(5);
-
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProductId(1L)).thenReturn(Optional.of(inventory));
+        when(productRepository.findAllWithInventoryById(Set.of(1L))).thenReturn(List.of(product));
+        when(inventoryRepository.decrementStock(Map.of(1L, 20))).thenReturn(Set.of(1L));
 
         assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(dto));
+        verify(inventoryRepository).decrementStock(Map.of(1L, 20));
+        verify(orderRepository, never()).save(any(OrderEntity.class));
+    }
+
+    @Test
+    void createOrder_ReportsEveryOutOfStockLine() {
+        AddOrderDTO dto = new AddOrderDTO();
+        dto.setUserId(1L);
+        dto.setItems(List.of(orderItem(1L, 2), orderItem(2L, 1), orderItem(1L, 3), orderItem(3L, 4)));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new UserEntity()));
+        List<ProductEntity> products = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            ProductEntity product = new ProductEntity();
+            product.setId(id);
+            product.setName("Product " + id);
+            product.setPrice(10.0);
+            product.setAvailable(true);
+            products.add(product);
+        }
+        when(productRepository.findAllWithInventoryById(anyCollection())).thenReturn(products);
+        when(inventoryRepository.decrementStock(Map.of(1L, 5, 2L, 1, 3L, 4))).thenReturn(new LinkedHashSet<>(List.of(1L, 3L)));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(dto));
+
+        assertEquals("Product 'Product 1' is out of stock; Product 'Product 3' is out of stock", ex.getMessage());
+        verify(orderRepository, never()).save(any(OrderEntity.class));
+        verify(orderItemsRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createOrder_TakesFlashSaleProductsFromInventoryWhenTheSliceIsShort() {
+        AddOrderDTO dto = new AddOrderDTO();
+        dto.setUserId(1L);
+        dto.setItems(List.of(orderItem(1L, 2), orderItem(2L, 1)));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new UserEntity()));
+        List<ProductEntity> products = new ArrayList<>();
+        for (long id = 1; id <= 2; id++) {
+            ProductEntity product = new ProductEntity();
+            product.setId(id);
+            product.setName("Product " + id);
+            product.setPrice(10.0);
+            product.setAvailable(true);
+            products.add(product);
+        }
+        when(productRepository.findAllWithInventoryById(anyCollection())).thenReturn(products);
+        when(inventoryReservations.handles(2L)).thenReturn(true);
+        when(inventoryReservations.reserve(Map.of(2L, 1))).thenReturn(new InventoryReservations.Reservation(Set.of(2L), new HashMap<>()));
+        when(inventoryRepository.decrementStock(Map.of(1L, 2, 2L, 1))).thenReturn(Set.of(2L));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(dto));
+
+        assertEquals("Product 'Product 2' is out of stock", ex.getMessage());
+        verify(inventoryRepository).decrementStock(Map.of(1L, 2, 2L, 1));
+        verify(cacheManager, never()).invalidate(any(), eq(2L));
+    }
+
+    @Test
+    void createOrders_RejectsOrdersOneByOneAndWritesTheRestTogether() {
+        AddOrderDTO unknownUser = new AddOrderDTO();
+        unknownUser.setUserId(9L);
+        unknownUser.setItems(List.of(orderItem(1L, 1)));
+        AddOrderDTO first = new AddOrderDTO();
+        first.setUserId(1L);
+        first.setItems(List.of(orderItem(1L, 2)));
+        AddOrderDTO second = new AddOrderDTO();
+        second.setUserId(1L);
+        second.setItems(List.of(orderItem(1L, 1)));
+
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        ProductEntity product = new ProductEntity();
+        product.setId(1L);
+        product.setName("Product 1");
+        product.setPrice(10.0);
+        product.setAvailable(true);
+        when(userRepository.findAllById(anyCollection())).thenReturn(List.of(user));
+        when(productRepository.findAllWithInventoryById(anyCollection())).thenReturn(List.of(product));
+        // Reserved in memory, so the batch needs no inventory statement
+        when(inventoryReservations.handles(1L)).thenReturn(true);
+        when(inventoryReservations.reserve(anyMap())).thenReturn(new InventoryReservations.Reservation(Set.of(), new HashMap<>()));
+        long[] ids = {100L};
+        when(orderRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<OrderEntity> orders = inv.getArgument(0);
+            orders.forEach(order -> order.setId(ids[0]++));
+            return orders;
+        });
+        when(orderMapper.toResponseDTO(any(OrderEntity.class))).thenAnswer(inv -> {
+            OrderResponseDTO response = new OrderResponseDTO();
+            response.setId(((OrderEntity) inv.getArgument(0)).getId());
+            return response;
+        });
+        when(orderMapper.toOrderItemResponseDTO(any())).thenAnswer(inv -> new OrderItemResponseDTO());
+
+        List<IOrderService.OrderOutcome> outcomes = orderService.createOrders(List.of(unknownUser, first, second));
+
+        assertInstanceOf(ResourceNotFoundException.class, outcomes.get(0).error());
+        assertEquals(100L, outcomes.get(1).order().getId());
+        assertEquals(101L, outcomes.get(2).order().getId());
+        verify(orderRepository, times(1)).saveAll(argThat(orders -> orders.size() == 2));
+        verify(orderItemsRepository, times(1)).saveAll(argThat(items -> items.size() == 2));
+        verify(productRepository, never()).findById(anyLong());
+        verify(inventoryRepository, never()).decrementStock(anyMap());
     }
 
     @Test
@@ -208,4 +409,79 @@ class OrderServiceTest {
         assertDoesNotThrow(() -> orderService.deleteOrder(1L));
         verify(orderRepository).delete(order);
     }
+
+    @Test
+    void getAllOrders_LoadsPageWithSetBasedQueries() {
+        OrderEntity first = new OrderEntity();
+        first.setId(1L);
+        first.setUserId(10L);
+        OrderEntity second = new OrderEntity();
+        second.setId(2L);
+        second.setUserId(10L);
+
+        OrderItemsEntity item1 = new OrderItemsEntity(100L, 1L, 5L, 1, 10.0);
+        OrderItemsEntity item2 = new OrderItemsEntity(101L, 2L, 6L, 2, 20.0);
+
+        UserEntity user = new UserEntity();
+        user.setId(10L);
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+
+        ProductEntity product5 = new ProductEntity();
+        product5.setId(5L);
+        product5.setName("Laptop");
+        ProductEntity product6 = new ProductEntity();
+        product6.setId(6L);
+        product6.setName("Mouse");
+
+        Pageable pageable = Pageable.ofSize(10).withPage(0);
+        when(orderRepository.findAll(pageable)).thenReturn(new PageImpl<>(List.of(first, second), pageable, 2));
+        when(orderItemsRepository.findByOrderIds(List.of(1L, 2L))).thenReturn(List.of(item1, item2));
+        when(userRepository.findAllById(anyCollection())).thenReturn(List.of(user));
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(product5, product6));
+        when(orderMapper.toResponseDTO(any(OrderEntity.class))).thenAnswer(inv -> new OrderResponseDTO());
+        when(orderMapper.toOrderItemResponseDTO(any())).thenAnswer(inv -> new OrderItemResponseDTO());
+
+        Page<OrderResponseDTO> result = orderService.getAllOrders(pageable);
+
+        assertEquals(2, result.getContent().size());
+        assertEquals("Jane Doe", result.getContent().get(0).getUserName());
+        assertEquals("Laptop", result.getContent().get(0).getItems().get(0).getProductName());
+        assertEquals("Mouse", result.getContent().get(1).getItems().get(0).getProductName());
+        verify(orderItemsRepository, times(1)).findByOrderIds(anyCollection());
+        verify(userRepository, times(1)).findAllById(anyCollection());
+        verify(productRepository, times(1)).findAllById(anyCollection());
+        verify(userRepository, never()).findById(anyLong());
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getOrdersByUserId_CursorContinuesFromTheLastRowShown() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 12, 0);
+        List<OrderEntity> rows = new ArrayList<>();
+        for (long id = 3; id >= 1; id--) {
+            OrderEntity order = new OrderEntity();
+            order.setId(id);
+            order.setUserId(10L);
+            order.setCreatedAt(createdAt);
+            rows.add(order);
+        }
+        when(userRepository.findById(10L)).thenReturn(Optional.of(new UserEntity()));
+        when(orderRepository.findByUserIdAfter(10L, null, null, 3)).thenReturn(rows);
+        when(orderMapper.toResponseDTO(any(OrderEntity.class))).thenAnswer(inv -> new OrderResponseDTO());
+
+        CursorSlice<OrderResponseDTO> first = orderService.getOrdersByUserId(10L, "", 2);
+        orderService.getOrdersByUserId(10L, first.nextCursor(), 2);
+
+        assertEquals(2, first.content().size());
+        // Resumes after order 2 at the same timestamp, so order 1 is not skipped
+        verify(orderRepository).findByUserIdAfter(10L, createdAt, 2L, 3);
+    }
+
+    private static OrderItemDTO orderItem(Long productId, int quantity) {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
 }
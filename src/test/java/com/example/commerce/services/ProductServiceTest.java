@@ -4,9 +4,13 @@ import com.example.commerce.dtos.requests.AddProductDTO;
 import com.example.commerce.dtos.responses.ProductResponseDTO;
 import com.example.commerce.dtos.requests.UpdateProductDTO;
 import com.example.commerce.entities.CategoryEntity;
+import com.example.commerce.entities.InventoryEntity;
 import com.example.commerce.entities.ProductEntity;
 import com.example.commerce.mappers.ProductMapper;
 import com.example.commerce.cache.CacheManager;
+import com.example.commerce.cache.CacheRegions;
+import com.example.commerce.cache.CacheTags;
+import com.example.commerce.cache.ProductCatalogSnapshot;
 import com.example.commerce.interfaces.ICategoryRepository;
 import com.example.commerce.interfaces.IInventoryRepository;
 import com.example.commerce.interfaces.IProductRepository;
@@ -16,7 +20,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -40,10 +50,16 @@ class ProductServiceTest {
     @Mock
     private CacheManager cacheManager;
 
+    @Mock
+    private ProductCatalogSnapshot catalogSnapshot;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        productService = new ProductService(productRepository, productMapper, categoryRepository, inventoryRepository, cacheManager);
+        productService = new ProductService(productRepository, productMapper, categoryRepository, inventoryRepository, cacheManager, catalogSnapshot);
+        // Cache misses run the loader, so the lookups under test still happen
+        when(cacheManager.get(any(), any(), any(Function.class)))
+                .thenAnswer(invocation -> invocation.<Function<CacheTags, ?>>getArgument(2).apply(new CacheTags()));
     }
 
     @Test
@@ -171,4 +187,74 @@ class ProductServiceTest {
         assertDoesNotThrow(() -> productService.deleteProduct(1L));
         verify(productRepository).delete(entity);
     }
+
+    @Test
+    void getAllProducts_UsesJoinedListingColumns() {
+        ProductEntity entity = new ProductEntity();
+        entity.setId(1L);
+        entity.setCategoryId(1L);
+
+        ProductResponseDTO responseDTO = new ProductResponseDTO();
+        responseDTO.setId(1L);
+        responseDTO.setCategoryName("Electronics");
+
+        Pageable pageable = Pageable.ofSize(10).withPage(0);
+        when(productRepository.findAllWithInventory(pageable)).thenReturn(new PageImpl<>(List.of(entity), pageable, 1));
+        when(productMapper.toResponseDTO(entity)).thenReturn(responseDTO);
+
+        Page<ProductResponseDTO> result = productService.getAllProducts(pageable, false);
+
+        assertEquals("Electronics", result.getContent().get(0).getCategoryName());
+        assertEquals(0, result.getContent().get(0).getQuantity());
+        verifyNoInteractions(categoryRepository, inventoryRepository, cacheManager);
+    }
+
+    @Test
+    void getAllProducts_PublicListingServedFromSnapshotWhenReady() {
+        ProductResponseDTO responseDTO = new ProductResponseDTO();
+        responseDTO.setId(1L);
+        Pageable pageable = Pageable.ofSize(10).withPage(0);
+        when(catalogSnapshot.isReady()).thenReturn(true);
+        when(catalogSnapshot.page(pageable, null)).thenReturn(new PageImpl<>(List.of(responseDTO), pageable, 1));
+
+        Page<ProductResponseDTO> result = productService.getAllProducts(pageable, false);
+
+        assertEquals(1L, result.getContent().get(0).getId());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void getAllProducts_AdminListingSkipsSnapshot() {
+        Pageable pageable = Pageable.ofSize(10).withPage(0);
+        when(catalogSnapshot.isReady()).thenReturn(true);
+        when(productRepository.findAll(pageable)).thenReturn(new PageImpl<>(List.of(), pageable, 0));
+
+        productService.getAllProducts(pageable, true);
+
+        verify(productRepository).findAll(pageable);
+        verify(catalogSnapshot, never()).page(any(), any());
+    }
+
+    @Test
+    void warmCache_BuildsProductEntriesFromBulkQueries() {
+        ProductEntity entity = new ProductEntity();
+        entity.setId(1L);
+        entity.setCategoryId(2L);
+
+        InventoryEntity inventory = new InventoryEntity();
+        inventory.setProductId(1L);
+        inventory.setQuantity(7);
+
+        ProductResponseDTO responseDTO = new ProductResponseDTO();
+        responseDTO.setId(1L);
+
+        when(inventoryRepository.findByProductIds(List.of(1L, 2L))).thenReturn(List.of(inventory));
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(entity));
+        when(productMapper.toResponseDTO(entity)).thenReturn(responseDTO);
+
+        assertEquals(1, productService.warmCache(List.of(1L, 2L)));
+        assertEquals(7, responseDTO.getQuantity());
+        verify(cacheManager).put(eq(CacheRegions.PRODUCT), eq(1L), eq(responseDTO), any());
+        verify(productRepository, never()).findById(any());
+    }
 }
@@ -20,6 +20,7 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.Optional;
 import java.util.Collections;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -47,6 +48,9 @@ class UserServiceTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         userService = new UserService(userRepository, userMapper, cacheManager, orderRepository, orderItemsRepository);
+        // Cache misses run the loader, so the lookups under test still happen
+        when(cacheManager.get(any(), any(), any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
     }
 
     @Test
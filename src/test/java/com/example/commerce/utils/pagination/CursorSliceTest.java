@@ -0,0 +1,52 @@
+package com.example.commerce.utils.pagination;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorSliceTest {
+
+    @Test
+    void fetchSize_AsksForOneExtraRow() {
+        assertEquals(11, CursorSlice.fetchSize(10));
+        assertThrows(IllegalArgumentException.class, () -> CursorSlice.fetchSize(0));
+    }
+
+    @Test
+    void of_ExtraRowMeansAnotherPageFromTheLastShownRow() {
+        CursorSlice<Long> slice = CursorSlice.of(List.of(1L, 2L, 3L), 2, id -> new KeysetCursor(null, id));
+
+        assertEquals(List.of(1L, 2L), slice.content());
+        assertTrue(slice.hasNext());
+        assertEquals(2L, KeysetCursor.decode(slice.nextCursor()).id());
+    }
+
+    @Test
+    void of_WithoutExtraRowIsTheLastPage() {
+        CursorSlice<Long> slice = CursorSlice.of(List.of(1L, 2L), 2, id -> new KeysetCursor(null, id));
+
+        assertEquals(List.of(1L, 2L), slice.content());
+        assertFalse(slice.hasNext());
+        assertNull(slice.nextCursor());
+    }
+
+    @Test
+    void parse_BlankCursorIsTheFirstPage() {
+        assertNull(CursorSlice.parse(null));
+        assertNull(CursorSlice.parse(""));
+        assertEquals(5L, CursorSlice.parse(new KeysetCursor(null, 5L).encode()).id());
+        assertThrows(IllegalArgumentException.class, () -> CursorSlice.parse("%%%"));
+    }
+
+    @Test
+    void map_KeepsTheCursor() {
+        CursorSlice<Long> slice = CursorSlice.of(List.of(1L, 2L, 3L), 2, id -> new KeysetCursor(null, id));
+
+        CursorSlice<String> mapped = slice.map(id -> "#" + id);
+
+        assertEquals(List.of("#1", "#2"), mapped.content());
+        assertEquals(slice.nextCursor(), mapped.nextCursor());
+    }
+}
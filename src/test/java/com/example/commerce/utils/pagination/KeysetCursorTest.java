@@ -0,0 +1,55 @@
+package com.example.commerce.utils.pagination;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void encode_RoundTripsIdOnlyCursor() {
+        KeysetCursor cursor = new KeysetCursor(null, 42L);
+
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encode_RoundTripsSortKeyAndId() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 1, 2, 3, 4, 5, 600_000_000);
+        KeysetCursor cursor = new KeysetCursor(createdAt.toString(), 7L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals(7L, decoded.id());
+        assertEquals(createdAt, decoded.sortKeyAsDateTime());
+    }
+
+    @Test
+    void encode_IsUrlSafe() {
+        String token = new KeysetCursor("a?b/c+d", Long.MAX_VALUE).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void decode_RejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("2026-01-01T00:00|abc")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("2026-01-01T00:00|")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("")));
+    }
+
+    @Test
+    void sortKeyAsDateTime_RejectsMissingOrInvalidTimestamp() {
+        assertThrows(IllegalArgumentException.class, () -> new KeysetCursor(null, 1L).sortKeyAsDateTime());
+        assertThrows(IllegalArgumentException.class, () -> new KeysetCursor("yesterday", 1L).sortKeyAsDateTime());
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
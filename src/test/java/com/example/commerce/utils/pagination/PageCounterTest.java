@@ -0,0 +1,197 @@
+package com.example.commerce.utils.pagination;
+
+import com.example.commerce.utils.pagination.PageCounter.CountMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PageCounterTest {
+
+    private static final Pageable FIRST_PAGE = Pageable.ofSize(2).withPage(0);
+
+    private MockEnvironment environment;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        environment = new MockEnvironment();
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(42L);
+    }
+
+    @Test
+    void modeFor_TableOverridesTheDefault() {
+        environment.setProperty("pagination.count.mode.orders", "NONE");
+        PageCounter pageCounter = counter(CountMode.CACHED);
+
+        assertEquals(CountMode.NONE, pageCounter.modeFor("orders"));
+        assertEquals(CountMode.CACHED, pageCounter.modeFor("products"));
+    }
+
+    @Test
+    void exact_CountsOnEveryPage() throws Exception {
+        PageCounter pageCounter = counter(CountMode.EXACT);
+
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+        Page<Integer> page = pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+
+        assertEquals(42L, page.getTotalElements());
+        assertEquals(2, pageCounter.limitFor("orders", FIRST_PAGE));
+        verify(connection, times(2)).prepareStatement("SELECT COUNT(*) FROM orders");
+    }
+
+    @Test
+    void cached_ReusesTheCountUntilInvalidated() throws Exception {
+        PageCounter pageCounter = counter(CountMode.CACHED);
+
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders WHERE user_id = ?", 7L);
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders WHERE user_id = ?", 7L);
+        verify(statement, times(1)).executeQuery();
+        verify(statement).setObject(1, 7L);
+
+        pageCounter.invalidate("orders");
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders WHERE user_id = ?", 7L);
+        verify(statement, times(2)).executeQuery();
+    }
+
+    @Test
+    void cached_InvalidationInsideATransactionWaitsForCommit() throws Exception {
+        PageCounter pageCounter = counter(CountMode.CACHED);
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            pageCounter.invalidate("orders");
+            // Still before commit: listings keep the committed count
+            pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+            verify(statement, times(1)).executeQuery();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+        verify(statement, times(2)).executeQuery();
+    }
+
+    @Test
+    void cached_CountRacingAnInvalidationIsNotCached() throws Exception {
+        PageCounter pageCounter = counter(CountMode.CACHED);
+        when(statement.executeQuery()).thenAnswer(inv -> {
+            pageCounter.invalidate("orders");
+            return resultSet;
+        });
+
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+
+        verify(statement, times(2)).executeQuery();
+    }
+
+    @Test
+    void cached_KeepsAtMostMaxEntriesCounts() throws Exception {
+        PageCounter pageCounter = new PageCounter(dataSource, environment, CountMode.CACHED, 60_000, 2);
+
+        for (long userId = 1; userId <= 3; userId++) {
+            pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders WHERE user_id = ?", userId);
+        }
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders WHERE user_id = ?", 3L);
+        verify(statement, times(3)).executeQuery();
+
+        // User 1 was the least recently counted, so its count made room for user 3
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders WHERE user_id = ?", 1L);
+        verify(statement, times(4)).executeQuery();
+    }
+
+    @Test
+    void cached_ExpiredCountIsCountedAgain() throws Exception {
+        PageCounter pageCounter = new PageCounter(dataSource, environment, CountMode.CACHED, 0, 10);
+
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+        pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders");
+
+        verify(statement, times(2)).executeQuery();
+    }
+
+    @Test
+    void estimated_UsesThePlannerRowsButNeverLessThanThePageShows() throws Exception {
+        PageCounter pageCounter = counter(CountMode.ESTIMATED);
+        when(resultSet.getString(1)).thenReturn("Seq Scan on orders  (cost=0.00..35.50 rows=500 width=8)", "Seq Scan on orders  (cost=0.00..1.01 rows=1 width=8)");
+
+        assertEquals(500L, pageCounter.toPage(List.of(1, 2), FIRST_PAGE, "orders", "FROM orders").getTotalElements());
+        assertEquals(12L, pageCounter.toPage(List.of(1, 2), Pageable.ofSize(2).withPage(5), "orders", "FROM orders").getTotalElements());
+        verify(connection, times(2)).prepareStatement("EXPLAIN SELECT 1 FROM orders");
+        verify(connection, never()).prepareStatement("SELECT COUNT(*) FROM orders");
+    }
+
+    @Test
+    void none_FetchesOneExtraRowInsteadOfCounting() throws Exception {
+        PageCounter pageCounter = counter(CountMode.NONE);
+
+        assertEquals(3, pageCounter.limitFor("orders", FIRST_PAGE));
+        Page<Integer> more = pageCounter.toPage(List.of(1, 2, 3), FIRST_PAGE, "orders", "FROM orders");
+        Page<Integer> last = pageCounter.toPage(List.of(1), FIRST_PAGE, "orders", "FROM orders");
+
+        assertInstanceOf(UncountedPage.class, more);
+        assertEquals(List.of(1, 2), more.getContent());
+        assertTrue(more.hasNext());
+        assertFalse(last.hasNext());
+        assertTrue(last.isLast());
+        verify(dataSource, never()).getConnection();
+    }
+
+    @Test
+    void uncountedPage_MapKeepsHasNext() {
+        UncountedPage<Integer> page = new UncountedPage<>(List.of(1, 2), Pageable.ofSize(2).withPage(3), true);
+
+        Page<String> mapped = page.map(String::valueOf);
+
+        assertInstanceOf(UncountedPage.class, mapped);
+        assertEquals(List.of("1", "2"), mapped.getContent());
+        assertTrue(mapped.hasNext());
+        assertEquals(3, mapped.getNumber());
+    }
+
+    @Test
+    void unpaged_TotalIsTheRowCount() throws Exception {
+        PageCounter pageCounter = counter(CountMode.EXACT);
+
+        assertEquals(3L, pageCounter.toPage(List.of(1, 2, 3), Pageable.unpaged(), "orders", "FROM orders").getTotalElements());
+        verify(dataSource, never()).getConnection();
+    }
+
+    private PageCounter counter(CountMode defaultMode) {
+        return new PageCounter(dataSource, environment, defaultMode, 60_000, 100);
+    }
+}